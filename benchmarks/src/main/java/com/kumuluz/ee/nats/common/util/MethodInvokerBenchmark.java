@@ -0,0 +1,72 @@
+package com.kumuluz.ee.nats.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the dispatch of a listener method through reflection, the {@link java.lang.invoke.MethodHandle} fallback
+ * and the {@link java.lang.invoke.LambdaMetafactory} invoker. Placed in the package of {@link MethodInvokers}, so both
+ * kinds of invokers can be built directly.
+ *
+ * @author Matej Bizjak
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MethodInvokerBenchmark {
+
+    public static class Listener {
+        private long received;
+
+        public String onMessage(String message, Long sequence) {
+            received += sequence;
+            return message;
+        }
+    }
+
+    private final Listener listener = new Listener();
+    private final String message = "message";
+    private final Long sequence = 1L;
+    private Method method;
+    private MethodInvoker methodHandle;
+    private MethodInvoker lambda;
+
+    @Setup
+    public void setup() throws Throwable {
+        method = Listener.class.getMethod("onMessage", String.class, Long.class);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        methodHandle = MethodInvokers.methodHandle(lookup.unreflect(method), false);
+        lambda = MethodInvokers.lambda(lookup, lookup.unreflect(method), false);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return method.invoke(listener, message, sequence);
+    }
+
+    @Benchmark
+    public Object methodHandle() throws Throwable {
+        return methodHandle.invoke(listener, message, sequence);
+    }
+
+    @Benchmark
+    public Object lambda() throws Throwable {
+        return lambda.invoke(listener, message, sequence);
+    }
+}
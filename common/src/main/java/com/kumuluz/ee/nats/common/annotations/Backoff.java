@@ -0,0 +1,51 @@
+package com.kumuluz.ee.nats.common.annotations;
+
+import com.kumuluz.ee.nats.common.backoff.BackoffPolicy;
+import com.kumuluz.ee.nats.common.backoff.BackoffType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for specifying the redelivery backoff of the messages a listener could not process.
+ * Durations are in the {@link java.time.Duration} format.
+ *
+ * @author Matej Bizjak
+ */
+
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Backoff {
+
+    BackoffType type() default BackoffType.EXPONENTIAL;
+
+    /**
+     * @return The first delay (exponential, full jitter) or the delay (fixed).
+     */
+    String initial() default "PT5S";
+
+    /**
+     * @return The maximum delay.
+     */
+    String max() default "PT1H";
+
+    double multiplier() default 5;
+
+    /**
+     * @return Custom policy, used with {@link BackoffType#CUSTOM}.
+     */
+    Class<? extends BackoffPolicy> policy() default BackoffPolicy.class;
+
+    /**
+     * @return Number of deliveries after which the message is handed to the dead-letter subject. 0 means unlimited.
+     */
+    int maxDeliveries() default 0;
+
+    /**
+     * @return Subject the message is republished to after the max deliveries. If empty, the message is only terminated.
+     */
+    String deadLetterSubject() default "";
+}
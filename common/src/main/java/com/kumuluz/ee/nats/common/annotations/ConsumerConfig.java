@@ -27,4 +27,9 @@ public @interface ConsumerConfig {
      */
     @Nonbinding ConfigurationOverride[] configOverrides() default {};
 
+    /**
+     * @return Redelivery backoff of the listener using this consumer. At most one value is allowed.
+     */
+    @Nonbinding Backoff[] backoff() default {};
+
 }
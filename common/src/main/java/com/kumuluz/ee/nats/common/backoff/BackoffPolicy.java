@@ -0,0 +1,70 @@
+package com.kumuluz.ee.nats.common.backoff;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computes the delay before a negatively acknowledged message is redelivered.
+ * Custom implementations must have a public no-argument constructor.
+ *
+ * @author Matej Bizjak
+ */
+
+@FunctionalInterface
+public interface BackoffPolicy {
+
+    /**
+     * Policy of the listeners without a backoff: 5 seconds multiplied by 5 for every redelivery (5^n seconds),
+     * capped at one hour. Same as the default values of {@link com.kumuluz.ee.nats.common.annotations.Backoff}.
+     */
+    BackoffPolicy DEFAULT = exponential(Duration.ofSeconds(5), Duration.ofHours(1), 5);
+
+    /**
+     * @param deliveredCount number of times the message has been delivered, starting with 1
+     * @return the delay before the next redelivery
+     */
+    Duration nextDelay(long deliveredCount);
+
+    static BackoffPolicy exponential(Duration initial, Duration max, double multiplier) {
+        return deliveredCount -> cap(initial.toMillis() * Math.pow(multiplier, deliveredCount - 1), max);
+    }
+
+    /**
+     * Full jitter with a floor: a random delay between the initial delay and initial * 3^(n-1), capped at the max
+     * delay. The policy only knows the delivered count, not the previous delay of the message, so the delays are drawn
+     * independently for every redelivery.
+     */
+    static BackoffPolicy fullJitter(Duration initial, Duration max) {
+        return deliveredCount -> {
+            double upper = Math.min(initial.toMillis() * Math.pow(3, deliveredCount - 1), max.toMillis());
+            if (upper <= initial.toMillis()) {
+                return cap(upper, max);
+            }
+            return cap(ThreadLocalRandom.current().nextDouble(initial.toMillis(), upper), max);
+        };
+    }
+
+    static BackoffPolicy fixed(Duration delay) {
+        return deliveredCount -> delay;
+    }
+
+    /**
+     * @param backoff backoff list of the consumer, the last delay is repeated for further redeliveries
+     */
+    static BackoffPolicy consumer(List<Duration> backoff) {
+        return deliveredCount -> {
+            if (backoff == null || backoff.isEmpty()) {
+                return Duration.ZERO;
+            }
+            return backoff.get((int) Math.min(Math.max(deliveredCount - 1, 0), backoff.size() - 1));
+        };
+    }
+
+    private static Duration cap(double millis, Duration max) {
+        if (Double.isNaN(millis) || millis >= max.toMillis()) {
+            return max;
+        }
+        return Duration.ofMillis((long) millis);
+    }
+}
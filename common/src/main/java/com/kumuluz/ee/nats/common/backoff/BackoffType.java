@@ -0,0 +1,31 @@
+package com.kumuluz.ee.nats.common.backoff;
+
+/**
+ * Built-in redelivery backoff policies.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum BackoffType {
+    /**
+     * Delay grows exponentially from the initial delay by the multiplier, capped at the max delay.
+     */
+    EXPONENTIAL,
+    /**
+     * Random delay between the initial delay and an exponentially growing upper bound, capped at the max delay.
+     * Spreads the redeliveries of messages which failed at the same time.
+     */
+    FULL_JITTER,
+    /**
+     * Always the initial delay.
+     */
+    FIXED,
+    /**
+     * Delays from the {@code backoff} list of the consumer configuration.
+     */
+    CONSUMER,
+    /**
+     * Custom {@link BackoffPolicy} implementation.
+     */
+    CUSTOM
+}
@@ -0,0 +1,125 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Codec backed by a Jackson {@link ObjectMapper}. Used for JSON and for the binary Jackson dataformats (CBOR, Smile).
+ * Keeps an {@link ObjectReader} per payload type and an {@link ObjectWriter} per payload class, which have their root
+ * de/serializers already resolved.
+ * Payloads of type {@link Stream} or {@link Iterator} are read lazily with a {@link MappingIterator}, one element
+ * of the array at a time.
+ *
+ * @author Matej Bizjak
+ */
+
+public class JacksonCodec implements NatsCodec {
+
+    private final String contentType;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public JacksonCodec(String contentType, ObjectMapper objectMapper) {
+        this.contentType = contentType;
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer();
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return writeValueAsBytes(value);
+    }
+
+    /**
+     * Serializes the value with the cached writer of its class. Jackson recycles the buffers of its generators, the
+     * codec does not pool any buffers of its own.
+     *
+     * @param value payload
+     * @return the serialized payload
+     * @throws JsonProcessingException if the payload cannot be serialized
+     */
+    public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+        return getWriter(value != null ? value.getClass() : null).writeValueAsBytes(value);
+    }
+
+    @Override
+    public Object decode(byte[] data, JavaType type) throws IOException {
+        Class<?> rawClass = type.getRawClass();
+        if (Stream.class.equals(rawClass)) {
+            MappingIterator<Object> iterator = getReader(type.containedTypeOrUnknown(0)).readValues(data);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(() -> {
+                        try {
+                            iterator.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        if (Iterator.class.equals(rawClass)) {
+            return getReader(type.containedTypeOrUnknown(0)).readValues(data);
+        }
+        return getReader(type).readValue(data);
+    }
+
+    @Override
+    public void prepare(JavaType type) {
+        if (Stream.class.equals(type.getRawClass()) || Iterator.class.equals(type.getRawClass())) {
+            getReader(type.containedTypeOrUnknown(0));
+        } else {
+            getReader(type);
+        }
+    }
+
+    /**
+     * @param type type of the payload
+     * @return the cached reader for the type
+     */
+    public ObjectReader getReader(JavaType type) {
+        ObjectReader reader = readers.get(type);  // avoids the locking of computeIfAbsent on the hot path
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, objectMapper::readerFor);
+        }
+        return reader;
+    }
+
+    /**
+     * @param aClass runtime class of the payload or null
+     * @return the cached writer for the class
+     */
+    public ObjectWriter getWriter(Class<?> aClass) {
+        if (aClass == null) {
+            return objectWriter;
+        }
+        ObjectWriter writer = writers.get(aClass);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(aClass, objectMapper::writerFor);
+        }
+        return writer;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+}
@@ -0,0 +1,46 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+import java.util.ServiceLoader;
+
+/**
+ * Encodes the message payloads and decodes them back. The codec is identified by its content type, which is sent
+ * in the {@link NatsCodecs#CONTENT_TYPE_HEADER} header, so that the consumer can choose the matching codec.
+ * Custom implementations are loaded with the {@link ServiceLoader} and override the built-in codecs with the same content type.
+ *
+ * @author Matej Bizjak
+ */
+
+public interface NatsCodec {
+
+    /**
+     * @return the content type, e.g. application/json
+     */
+    String getContentType();
+
+    /**
+     * @param value payload
+     * @return the encoded payload
+     * @throws IOException if the payload cannot be encoded
+     */
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * @param data encoded payload
+     * @param type type of the payload
+     * @return the decoded payload
+     * @throws IOException if the payload cannot be decoded
+     */
+    Object decode(byte[] data, JavaType type) throws IOException;
+
+    /**
+     * Called when a listener or a client is registered, for each type the codec will decode, so that the codec can
+     * resolve and cache whatever it needs ahead of the first message.
+     *
+     * @param type type of the payload
+     */
+    default void prepare(JavaType type) {
+    }
+}
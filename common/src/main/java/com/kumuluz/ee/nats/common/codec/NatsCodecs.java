@@ -0,0 +1,147 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.common.util.SerDes;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the available {@link NatsCodec}s. CBOR, Smile and Protobuf codecs are available only if their libraries
+ * are on the classpath.
+ *
+ * @author Matej Bizjak
+ */
+
+public class NatsCodecs {
+
+    private static final Logger LOG = Logger.getLogger(NatsCodecs.class.getName());
+
+    public static final String CONTENT_TYPE_HEADER = "Content-Type";
+
+    public static final String JSON = "application/json";
+    public static final String CBOR = "application/cbor";
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String PROTOBUF = "application/protobuf";
+    public static final String RAW = "application/octet-stream";
+
+    private static final Map<String, NatsCodec> CODECS = new ConcurrentHashMap<>();
+    private static final Map<String, String> OPTIONAL_DEPENDENCIES = Map.of(
+            CBOR, "com.fasterxml.jackson.dataformat:jackson-dataformat-cbor",
+            SMILE, "com.fasterxml.jackson.dataformat:jackson-dataformat-smile",
+            PROTOBUF, "com.google.protobuf:protobuf-java");
+    private static final NatsCodec DEFAULT_CODEC;
+
+    static {
+        CODECS.put(JSON, SerDes.getJsonCodec());
+        CODECS.put(RAW, new RawCodec());
+        registerJacksonCodec(CBOR, "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+        registerJacksonCodec(SMILE, "com.fasterxml.jackson.dataformat.smile.SmileFactory");
+        try {
+            CODECS.put(PROTOBUF, new ProtobufCodec());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.fine("Protobuf codec is not available, because protobuf-java is not on the classpath.");
+        }
+        ServiceLoader.load(NatsCodec.class).forEach(codec -> CODECS.put(codec.getContentType(), codec));
+        DEFAULT_CODEC = CODECS.get(JSON);
+    }
+
+    private static void registerJacksonCodec(String contentType, String factoryClassName) {
+        JsonFactory jsonFactory;
+        try {
+            jsonFactory = (JsonFactory) Class.forName(factoryClassName).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.fine(String.format("Codec %s is not available, because %s is not on the classpath."
+                    , contentType, factoryClassName));
+            return;
+        }
+        ObjectMapper objectMapper;
+        try {  // keeps the modules and the configuration of the provided ObjectMapper
+            objectMapper = SerDes.getObjectMapper().copyWith(jsonFactory);
+        } catch (RuntimeException e) {  // ObjectMapper subclasses which do not support copying
+            objectMapper = new ObjectMapper(jsonFactory);
+        }
+        CODECS.put(contentType, new JacksonCodec(contentType, objectMapper));
+    }
+
+    /**
+     * @return the JSON codec
+     */
+    public static NatsCodec getDefault() {
+        return DEFAULT_CODEC;
+    }
+
+    /**
+     * @param contentType content type of the codec
+     * @return the codec or null if it is not available
+     */
+    public static NatsCodec get(String contentType) {
+        return CODECS.get(contentType);
+    }
+
+    /**
+     * Resolves the codec from an annotation value.
+     *
+     * @param contentType content type of the codec, empty for the default codec
+     * @param method      annotated method
+     * @return the codec
+     * @throws DefinitionException if the codec is not available
+     */
+    public static NatsCodec resolve(String contentType, Method method) {
+        if (contentType == null || contentType.isEmpty()) {
+            return DEFAULT_CODEC;
+        }
+        NatsCodec codec = CODECS.get(contentType);
+        if (codec == null) {
+            String dependency = OPTIONAL_DEPENDENCIES.get(contentType);
+            throw new DefinitionException(String.format("Codec %s at method %s in class %s is not available.%s"
+                    , contentType, method.getName(), method.getDeclaringClass().getName()
+                    , dependency != null ? String.format(" Add %s to the dependencies.", dependency) : ""));
+        }
+        return codec;
+    }
+
+    /**
+     * Chooses the codec advertised by the message or the given codec if the message does not advertise any.
+     *
+     * @param msg      received message
+     * @param fallback codec of the listener
+     * @return the codec for decoding the message
+     */
+    public static NatsCodec forMessage(Message msg, NatsCodec fallback) {
+        if (msg.hasHeaders()) {
+            String contentType = msg.getHeaders().getFirst(CONTENT_TYPE_HEADER);
+            if (contentType != null) {
+                NatsCodec codec = CODECS.get(contentType);
+                if (codec != null) {
+                    return codec;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Advertises the codec in the message headers. JSON is not advertised, since it is assumed when the header is missing.
+     *
+     * @param headers headers of the message or null
+     * @param codec   codec the payload was encoded with
+     * @return the headers, null if there are none
+     */
+    public static Headers advertise(Headers headers, NatsCodec codec) {
+        if (codec == DEFAULT_CODEC) {
+            return headers;
+        }
+        if (headers == null) {
+            headers = new Headers();
+        }
+        return headers.put(CONTENT_TYPE_HEADER, codec.getContentType());
+    }
+}
@@ -0,0 +1,82 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Codec for the Protocol Buffers messages generated by protoc. The payload type must be a generated message class,
+ * which is decoded with its static {@code parseFrom(byte[])} method. Requires com.google.protobuf:protobuf-java
+ * on the classpath.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ProtobufCodec implements NatsCodec {
+
+    static final String MESSAGE_LITE_CLASS = "com.google.protobuf.MessageLite";
+
+    private final Class<?> messageLiteClass;
+    private final MethodHandle toByteArray;
+
+    private final ClassValue<MethodHandle> parsers = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findStatic(type, "parseFrom"
+                        , MethodType.methodType(type, byte[].class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    };
+
+    public ProtobufCodec() throws ReflectiveOperationException {
+        messageLiteClass = Class.forName(MESSAGE_LITE_CLASS);
+        toByteArray = MethodHandles.publicLookup().findVirtual(messageLiteClass, "toByteArray"
+                , MethodType.methodType(byte[].class));
+    }
+
+    @Override
+    public String getContentType() {
+        return NatsCodecs.PROTOBUF;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!messageLiteClass.isInstance(value)) {
+            throw new IOException(String.format("Protobuf codec cannot encode payload of class %s, which is not a protobuf message."
+                    , value.getClass().getName()));
+        }
+        try {
+            return (byte[]) toByteArray.invoke(value);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void prepare(JavaType type) {
+        parsers.get(type.getRawClass());
+    }
+
+    @Override
+    public Object decode(byte[] data, JavaType type) throws IOException {
+        MethodHandle parser = parsers.get(type.getRawClass());
+        if (parser == null) {
+            throw new IOException(String.format("Protobuf codec cannot decode payload as class %s, which is not a protobuf message."
+                    , type.getRawClass().getName()));
+        }
+        try {
+            return parser.invoke(data);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+}
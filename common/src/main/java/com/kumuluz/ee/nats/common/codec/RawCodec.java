@@ -0,0 +1,55 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Passes {@code byte[]} and {@link ByteBuffer} payloads through without any encoding.
+ *
+ * @author Matej Bizjak
+ */
+
+public class RawCodec implements NatsCodec {
+
+    @Override
+    public String getContentType() {
+        return NatsCodecs.RAW;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();  // leaves the position of the caller's buffer as is
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                    && buffer.remaining() == buffer.array().length) {
+                return buffer.array();
+            }
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            return data;
+        }
+        throw new IOException(String.format("Raw codec cannot encode payload of class %s, only byte[] and ByteBuffer are supported."
+                , value.getClass().getName()));
+    }
+
+    @Override
+    public Object decode(byte[] data, JavaType type) throws IOException {
+        Class<?> rawClass = type.getRawClass();
+        if (rawClass.equals(byte[].class) || rawClass.equals(Object.class)) {
+            return data;
+        }
+        if (rawClass.equals(ByteBuffer.class)) {
+            return ByteBuffer.wrap(data);
+        }
+        throw new IOException(String.format("Raw codec cannot decode payload as class %s, only byte[] and ByteBuffer are supported."
+                , rawClass.getName()));
+    }
+}
@@ -0,0 +1,38 @@
+package com.kumuluz.ee.nats.common.compression;
+
+/**
+ * Compression algorithm of the message payloads.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum CompressionType {
+
+    /**
+     * Uses the compression of the connection.
+     */
+    DEFAULT(null),
+    NONE(null),
+    GZIP("gzip"),
+    /**
+     * Requires org.lz4:lz4-java on the classpath.
+     */
+    LZ4("lz4"),
+    /**
+     * Requires com.github.luben:zstd-jni on the classpath.
+     */
+    ZSTD("zstd");
+
+    private final String encoding;
+
+    CompressionType(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return value of the Content-Encoding header or null if the payload is not compressed
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import com.kumuluz.ee.nats.common.util.PooledBuffers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression from the JDK.
+ *
+ * @author Matej Bizjak
+ */
+
+class GzipCompressor implements PayloadCompressor {
+
+    @Override
+    public String getEncoding() {
+        return CompressionType.GZIP.getEncoding();
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        return PooledBuffers.write(outputStream -> {
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                gzipOutputStream.write(data);
+            }
+        });
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] decompressed = gzipInputStream.readNBytes(maxSize);
+            if (gzipInputStream.read() != -1) {
+                throw new IOException(String.format("Decompressed gzip payload exceeds the limit of %d bytes.", maxSize));
+            }
+            return decompressed;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+/**
+ * LZ4 block compression from lz4-java, loaded reflectively so that the library stays optional.
+ * The compressed block is prefixed with the 4-byte length of the original payload. Received payloads are decompressed
+ * with the safe decompressor, which validates the block.
+ *
+ * @author Matej Bizjak
+ */
+
+class Lz4Compressor implements PayloadCompressor {
+
+    private final Object compressor;
+    private final Object decompressor;
+    private final MethodHandle compress;
+    private final MethodHandle decompress;
+
+    Lz4Compressor() throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> factoryClass = Class.forName("net.jpountz.lz4.LZ4Factory");
+        Class<?> compressorClass = Class.forName("net.jpountz.lz4.LZ4Compressor");
+        Class<?> decompressorClass = Class.forName("net.jpountz.lz4.LZ4SafeDecompressor");
+        Object factory = factoryClass.getMethod("fastestInstance").invoke(null);
+        compressor = factoryClass.getMethod("fastCompressor").invoke(factory);
+        decompressor = factoryClass.getMethod("safeDecompressor").invoke(factory);
+        compress = lookup.findVirtual(compressorClass, "compress", MethodType.methodType(byte[].class, byte[].class));
+        decompress = lookup.findVirtual(decompressorClass, "decompress", MethodType.methodType(int.class
+                , byte[].class, int.class, int.class, byte[].class, int.class, int.class));
+    }
+
+    @Override
+    public String getEncoding() {
+        return CompressionType.LZ4.getEncoding();
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        byte[] block;
+        try {
+            block = (byte[]) compress.invoke(compressor, data);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+        return ByteBuffer.allocate(Integer.BYTES + block.length)
+                .putInt(data.length)
+                .put(block)
+                .array();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        if (data.length < Integer.BYTES) {
+            throw new IOException("LZ4 payload is missing the original length.");
+        }
+        int length = ByteBuffer.wrap(data).getInt();
+        if (length < 0) {
+            throw new IOException(String.format("Invalid original length %d of the LZ4 payload.", length));
+        }
+        if (length > maxSize) {  // checked before the allocation, the length comes from the sender
+            throw new IOException(String.format("Original length %d of the LZ4 payload exceeds the limit of %d bytes."
+                    , length, maxSize));
+        }
+        byte[] decompressed = new byte[length];
+        int decompressedLength;
+        try {  // the safe decompressor never writes past the given length
+            decompressedLength = (int) decompress.invoke(decompressor, data, Integer.BYTES, data.length - Integer.BYTES
+                    , decompressed, 0, length);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+        if (decompressedLength != length) {
+            throw new IOException(String.format("LZ4 payload decompressed to %d bytes instead of %d."
+                    , decompressedLength, length));
+        }
+        return decompressed;
+    }
+}
@@ -0,0 +1,163 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import com.kumuluz.ee.nats.common.connection.config.ConnectionConfig;
+import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
+import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Compression of a publisher: payloads larger than the threshold are compressed and marked with the
+ * {@link #CONTENT_ENCODING_HEADER} header. Listeners decompress the payloads with {@link #decompress(Message)}.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PayloadCompression {
+
+    private static final Logger LOG = Logger.getLogger(PayloadCompression.class.getName());
+
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final int DEFAULT_THRESHOLD = 1024;
+    /**
+     * Decompressed payloads may be this many times larger than the max payload of the connection, unless the
+     * max decompressed size is configured.
+     */
+    public static final int DEFAULT_DECOMPRESSION_FACTOR = 16;
+
+    private static final int DEFAULT_MAX_PAYLOAD = 1024 * 1024;  // default of the NATS server
+
+    public static final PayloadCompression NONE = new PayloadCompression(null, Integer.MAX_VALUE);
+
+    private static final Map<CompressionType, PayloadCompressor> COMPRESSORS = new EnumMap<>(CompressionType.class);
+
+    static {
+        COMPRESSORS.put(CompressionType.GZIP, new GzipCompressor());
+        try {
+            COMPRESSORS.put(CompressionType.LZ4, new Lz4Compressor());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.fine("LZ4 compression is not available, because lz4-java is not on the classpath.");
+        }
+        try {
+            COMPRESSORS.put(CompressionType.ZSTD, new ZstdCompressor());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.fine("Zstandard compression is not available, because zstd-jni is not on the classpath.");
+        }
+    }
+
+    private final PayloadCompressor compressor;
+    private final int threshold;
+
+    private PayloadCompression(PayloadCompressor compressor, int threshold) {
+        this.compressor = compressor;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Resolves the compression of a publisher. Values which are not set are taken from the connection configuration.
+     *
+     * @param type           compression type, {@link CompressionType#DEFAULT} to use the one of the connection
+     * @param threshold      minimal size of the compressed payloads in bytes, negative to use the one of the connection
+     * @param connectionName connection of the publisher
+     * @param method         annotated method
+     * @return the compression
+     * @throws DefinitionException if the compression library is not available
+     */
+    public static PayloadCompression resolve(CompressionType type, int threshold, String connectionName, Method method) {
+        ConnectionConfig connectionConfig = NatsConfigLoader.getInstance().getConfigForConnection(connectionName);
+        if (type == CompressionType.DEFAULT) {
+            type = connectionConfig != null ? connectionConfig.getCompression() : CompressionType.NONE;
+        }
+        if (threshold < 0) {
+            threshold = connectionConfig != null ? connectionConfig.getCompressionThreshold() : DEFAULT_THRESHOLD;
+        }
+        if (type == CompressionType.NONE) {
+            return NONE;
+        }
+        PayloadCompressor compressor = COMPRESSORS.get(type);
+        if (compressor == null) {
+            throw new DefinitionException(String.format("Compression %s at method %s in class %s is not available, because its library is not on the classpath."
+                    , type, method.getName(), method.getDeclaringClass().getName()));
+        }
+        return new PayloadCompression(compressor, threshold);
+    }
+
+    /**
+     * @param data encoded payload
+     * @return whether the payload should be compressed
+     */
+    public boolean applies(byte[] data) {
+        return compressor != null && data.length >= threshold;
+    }
+
+    public byte[] compress(byte[] data) throws IOException {
+        return compressor.compress(data);
+    }
+
+    /**
+     * Marks the compressed payload in the message headers.
+     *
+     * @param headers headers of the message or null
+     * @return the headers
+     */
+    public Headers advertise(Headers headers) {
+        if (headers == null) {
+            headers = new Headers();
+        }
+        return headers.put(CONTENT_ENCODING_HEADER, compressor.getEncoding());
+    }
+
+    /**
+     * @param msg received message
+     * @return the payload of the message, decompressed if it has the {@link #CONTENT_ENCODING_HEADER} header
+     * @throws IOException if the payload cannot be decompressed, it exceeds the {@link #getMaxDecompressedSize(Message)
+     *                     max decompressed size} or the encoding is not available
+     */
+    public static byte[] decompress(Message msg) throws IOException {
+        if (!msg.hasHeaders() || msg.getHeaders().getFirst(CONTENT_ENCODING_HEADER) == null) {
+            return msg.getData();
+        }
+        return decompress(msg, getMaxDecompressedSize(msg));
+    }
+
+    static byte[] decompress(Message msg, int maxSize) throws IOException {
+        if (!msg.hasHeaders()) {
+            return msg.getData();
+        }
+        String encoding = msg.getHeaders().getFirst(CONTENT_ENCODING_HEADER);
+        if (encoding == null) {
+            return msg.getData();
+        }
+        for (PayloadCompressor compressor : COMPRESSORS.values()) {
+            if (compressor.getEncoding().equals(encoding)) {
+                return compressor.decompress(msg.getData(), maxSize);
+            }
+        }
+        throw new IOException(String.format("Content encoding %s of the message is not available.", encoding));
+    }
+
+    /**
+     * @param msg received message
+     * @return the configured max decompressed size or the max payload of the connection multiplied by
+     * {@link #DEFAULT_DECOMPRESSION_FACTOR}
+     */
+    public static int getMaxDecompressedSize(Message msg) {
+        return getMaxDecompressedSize(msg, NatsConfigLoader.getInstance().getGeneralConfig());
+    }
+
+    static int getMaxDecompressedSize(Message msg, GeneralConfig generalConfig) {
+        if (generalConfig != null && generalConfig.getMaxDecompressedSize() > 0) {
+            return generalConfig.getMaxDecompressedSize();
+        }
+        long maxPayload = msg.getConnection() != null && msg.getConnection().getMaxPayload() > 0
+                ? msg.getConnection().getMaxPayload() : DEFAULT_MAX_PAYLOAD;
+        return (int) Math.min(maxPayload * DEFAULT_DECOMPRESSION_FACTOR, Integer.MAX_VALUE - 8);
+    }
+}
@@ -0,0 +1,27 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import java.io.IOException;
+
+/**
+ * Compresses and decompresses the message payloads.
+ *
+ * @author Matej Bizjak
+ */
+
+public interface PayloadCompressor {
+
+    /**
+     * @return value of the Content-Encoding header
+     */
+    String getEncoding();
+
+    byte[] compress(byte[] data) throws IOException;
+
+    /**
+     * @param data    compressed payload, received from the network and therefore untrusted
+     * @param maxSize maximum size of the decompressed payload
+     * @return the decompressed payload
+     * @throws IOException if the payload is malformed or larger than the max size
+     */
+    byte[] decompress(byte[] data, int maxSize) throws IOException;
+}
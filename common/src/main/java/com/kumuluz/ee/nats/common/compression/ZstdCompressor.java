@@ -0,0 +1,64 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Zstandard compression from zstd-jni, loaded reflectively so that the library stays optional.
+ * The payload is a standard Zstandard frame, which contains the original length.
+ *
+ * @author Matej Bizjak
+ */
+
+class ZstdCompressor implements PayloadCompressor {
+
+    private static final int LEVEL = 3;
+
+    private final MethodHandle compress;
+    private final MethodHandle decompressedSize;
+    private final MethodHandle decompress;
+
+    ZstdCompressor() throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> zstdClass = Class.forName("com.github.luben.zstd.Zstd");
+        compress = lookup.findStatic(zstdClass, "compress", MethodType.methodType(byte[].class, byte[].class, int.class));
+        decompressedSize = lookup.findStatic(zstdClass, "decompressedSize", MethodType.methodType(long.class, byte[].class));
+        decompress = lookup.findStatic(zstdClass, "decompress", MethodType.methodType(byte[].class, byte[].class, int.class));
+    }
+
+    @Override
+    public String getEncoding() {
+        return CompressionType.ZSTD.getEncoding();
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        try {
+            return (byte[]) compress.invoke(data, LEVEL);
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        try {
+            long size = (long) decompressedSize.invoke(data);
+            if (size < 0) {
+                throw new IOException(String.format("Invalid original length %d of the Zstandard payload.", size));
+            }
+            if (size > maxSize) {  // checked before the allocation, the length comes from the sender
+                throw new IOException(String.format("Original length %d of the Zstandard payload exceeds the limit of %d bytes."
+                        , size, maxSize));
+            }
+            // fails if the frame decompresses to more than its declared size
+            return (byte[]) decompress.invoke(data, (int) size);
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+}
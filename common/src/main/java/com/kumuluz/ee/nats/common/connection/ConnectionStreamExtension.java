@@ -52,8 +52,9 @@ public class ConnectionStreamExtension implements Extension {
         if (connectionConfigs.size() > 0) {
             ExecutorService executorService = Executors.newFixedThreadPool(connectionConfigs.size());
             connectionConfigs.forEach((name, config) -> {
-                // calculate max timeout (number of server addresses * connection timeout)
-                Duration timeout = config.getConnectionTimeout().multipliedBy(config.getAddresses().size());
+                // calculate max timeout (number of server addresses * connection timeout * pool size)
+                Duration timeout = config.getConnectionTimeout().multipliedBy(config.getAddresses().size())
+                        .multipliedBy(config.getPoolSize());
                 if (timeout.compareTo(maxTimeout.get()) > 0) {
                     maxTimeout.set(timeout);
                 }
@@ -3,57 +3,198 @@ package com.kumuluz.ee.nats.common.connection;
 import com.kumuluz.ee.nats.common.connection.config.ConnectionConfig;
 import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
 import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+import com.kumuluz.ee.nats.common.connection.config.PoolStriping;
 import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
 import io.nats.client.Nats;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class for managing and establishing connections.
  * You can retrieve the connection by calling function getConnection(String name).
+ * A connection with a pool size greater than 1 opens several physical connections under the same name.
  *
  * @author Matej Bizjak
  */
 
 public class NatsConnection {
-    private static final HashMap<String, Connection> CONNECTIONS = new HashMap<>();
+    private static final Map<String, Connection> CONNECTIONS = new ConcurrentHashMap<>();
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final List<Consumer<Connection>> CLOSE_LISTENERS = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> DRAIN_LISTENERS = new CopyOnWriteArrayList<>();
     private static final Logger LOG = Logger.getLogger(NatsConnection.class.getName());
 
+    static {
+        // drain messages before disconnect
+        Runtime.getRuntime().addShutdownHook(new Thread(NatsConnection::drainAll));
+    }
+
+    /**
+     * @param name name of the connection
+     * @return the primary (first) connection of the pool
+     */
     public static Connection getConnection(String name) {
         return CONNECTIONS.get(name);
     }
 
+    /**
+     * Chooses the connection of the pool a message is published with, according to the {@link PoolStriping}.
+     *
+     * @param name    name of the connection
+     * @param subject subject of the message
+     * @return the connection or null if the connection was not established
+     */
+    public static Connection getConnection(String name, String subject) {
+        ConnectionPool pool = POOLS.get(name);
+        return pool != null ? pool.forSubject(subject) : CONNECTIONS.get(name);
+    }
+
+    /**
+     * Spreads the subscriptions across the connections of the pool; every call returns the next connection.
+     *
+     * @param name name of the connection
+     * @return the connection or null if the connection was not established
+     */
+    public static Connection getNextConnection(String name) {
+        ConnectionPool pool = POOLS.get(name);
+        return pool != null ? pool.next() : CONNECTIONS.get(name);
+    }
+
+    /**
+     * @param name name of the connection
+     * @return all the established connections of the pool
+     */
+    public static List<Connection> getPooledConnections(String name) {
+        ConnectionPool pool = POOLS.get(name);
+        return pool != null ? Collections.unmodifiableList(Arrays.asList(pool.connections)) : Collections.emptyList();
+    }
+
     public static void establishConnection(ConnectionConfig config) {
-        GeneralConfig generalConfig = NatsConfigLoader.getInstance().getGeneralConfig();
-        try {
-            Connection connection = Nats.connect(config.toOptionsBuilder().build());
-            CONNECTIONS.put(config.getName(), connection);
-            LOG.info(String.format("Connection to a NATS server/cluster %s was created successfully.", config.getName()));
+        List<Connection> connections = new ArrayList<>(config.getPoolSize());
+        for (int i = 0; i < config.getPoolSize(); i++) {
+            String connectionName = config.getPoolSize() > 1 ? config.getName() + "-" + i : config.getName();
+            try {
+                Connection connection = Nats.connect(config.toOptionsBuilder()
+                        .connectionName(connectionName)
+                        .connectionListener(NatsConnection::onConnectionEvent)
+                        .build());
+                connections.add(connection);
+                LOG.info(String.format("Connection to a NATS server/cluster %s was created successfully.", connectionName));
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, String.format("Cannot create a connection to a NATS server/cluster %s.", connectionName), e);
+            }
+        }
+        if (!connections.isEmpty()) {
+            POOLS.put(config.getName(), new ConnectionPool(connections.toArray(new Connection[0]), config.getPoolStriping()));
+            CONNECTIONS.put(config.getName(), connections.get(0));
+        }
+    }
+
+    /**
+     * @param listener notified when one of the connections is closed, used to release the resources tied to it
+     */
+    public static void addCloseListener(Consumer<Connection> listener) {
+        CLOSE_LISTENERS.add(listener);
+    }
+
+    private static void onConnectionEvent(Connection connection, ConnectionListener.Events event) {
+        if (event == ConnectionListener.Events.CLOSED) {
+            CLOSE_LISTENERS.forEach(listener -> listener.accept(connection));
+        }
+    }
+
+    /**
+     * @param listener run on shutdown before the connections are drained, used to publish the buffered messages
+     */
+    public static void addDrainListener(Runnable listener) {
+        DRAIN_LISTENERS.add(listener);
+    }
 
-            // drain messages before disconnect
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+    private static void drainAll() {
+        if (POOLS.isEmpty()) {
+            return;
+        }
+        for (Runnable listener : DRAIN_LISTENERS) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "Running a listener before draining the connections failed.", e);
+            }
+        }
+        GeneralConfig generalConfig = NatsConfigLoader.getInstance().getGeneralConfig();
+        // start all the drains first, they run concurrently
+        Map<String, CompletableFuture<Boolean>> drains = new LinkedHashMap<>();
+        POOLS.values().forEach(pool -> {
+            for (Connection connection : pool.connections) {
+                String connectionName = connection.getOptions().getConnectionName();
                 try {
-                    CompletableFuture<Boolean> drain = connection.drain(generalConfig.getDrainTimeout());
-                    if (drain.get().equals(Boolean.TRUE)) {
-                        LOG.info(String.format("Draining messages for connection %s completed successfully.", config.getName()));
-                    } else {
-                        LOG.severe(String.format("Draining messages for connection %s failed.", config.getName()));
-                    }
-                } catch (TimeoutException | InterruptedException | ExecutionException e) {
-                    LOG.log(Level.SEVERE, String.format("Draining messages for connection %s failed.", config.getName()), e);
+                    drains.put(connectionName, connection.drain(generalConfig.getDrainTimeout()));
+                } catch (TimeoutException | InterruptedException e) {
+                    LOG.log(Level.SEVERE, String.format("Draining messages for connection %s failed.", connectionName), e);
                 }
-            }));
-        } catch (Exception e) {
-            LOG.log(Level.SEVERE, String.format("Cannot create a connection to a NATS server/cluster %s.", config.getName()), e);
-        }
+            }
+        });
+        drains.forEach((connectionName, drain) -> {
+            try {
+                if (drain.get().equals(Boolean.TRUE)) {
+                    LOG.info(String.format("Draining messages for connection %s completed successfully.", connectionName));
+                } else {
+                    LOG.severe(String.format("Draining messages for connection %s failed.", connectionName));
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.log(Level.SEVERE, String.format("Draining messages for connection %s failed.", connectionName), e);
+            }
+        });
     }
 
+    /**
+     * @return snapshot of the primary connections by name
+     */
     public static HashMap<String, Connection> getAllConnections() {
-        return CONNECTIONS;
+        return new HashMap<>(CONNECTIONS);
+    }
+
+    /**
+     * Physical connections opened under one connection name.
+     */
+    static final class ConnectionPool {
+        private final Connection[] connections;
+        private final PoolStriping striping;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        ConnectionPool(Connection[] connections, PoolStriping striping) {
+            this.connections = connections;
+            this.striping = striping;
+        }
+
+        Connection forSubject(String subject) {
+            if (connections.length == 1) {
+                return connections[0];
+            }
+            if (striping == PoolStriping.ROUND_ROBIN || subject == null) {
+                return next();
+            }
+            return connections[Math.floorMod(subject.hashCode(), connections.length)];
+        }
+
+        Connection next() {
+            return connections[Math.floorMod(counter.getAndIncrement(), connections.length)];
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.kumuluz.ee.nats.common.connection.config;
+
+/**
+ * What an asynchronous JetStream publish does when the publish window of the context is full.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum BackpressureMode {
+    /**
+     * Waits for a free slot, at most for the request timeout of the context.
+     */
+    BLOCK,
+    /**
+     * Returns a failed future immediately.
+     */
+    FAIL_FAST,
+    /**
+     * Drops the oldest outstanding publish from the window and takes its slot. The future of the dropped publish
+     * completes with a cancellation; its message is not withdrawn and may still be stored by the server.
+     */
+    DROP_OLDEST
+}
@@ -1,5 +1,8 @@
 package com.kumuluz.ee.nats.common.connection.config;
 
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.util.ReplyExecutorType;
 import com.kumuluz.ee.nats.common.exception.ConfigurationException;
 import io.nats.client.JetStreamOptions;
 import io.nats.client.Nats;
@@ -45,6 +48,13 @@ public abstract class ConnectionConfig {
     private TLS tls;
     private List<StreamConsumerConfiguration> streamConsumerConfigurations;
     private Map<String, JetStreamOptions> jetStreamContextOptions;
+    private Map<String, PublishWindowConfig> publishWindowConfigs = Collections.emptyMap();
+    private CompressionType compression = CompressionType.NONE;
+    private int compressionThreshold = PayloadCompression.DEFAULT_THRESHOLD;
+    private ReplyExecutorType replyExecutor = ReplyExecutorType.POOL;
+    private int replyExecutorSize;
+    private int poolSize = 1;
+    private PoolStriping poolStriping = PoolStriping.SUBJECT_HASH;
 
     public ConnectionConfig(String name) {
         this.name = name;
@@ -170,6 +180,30 @@ public abstract class ConnectionConfig {
         this.jetStreamContextOptions = jetStreamContextOptions;
     }
 
+    public Map<String, PublishWindowConfig> getPublishWindowConfigs() {
+        return publishWindowConfigs;
+    }
+
+    public void setPublishWindowConfigs(Map<String, PublishWindowConfig> publishWindowConfigs) {
+        this.publishWindowConfigs = publishWindowConfigs;
+    }
+
+    public CompressionType getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CompressionType compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     /**
      * @return NATS options builder based on this set of properties
      * @throws IOException              if there is a problem reading a file or setting up the SSL context
@@ -322,4 +356,42 @@ public abstract class ConnectionConfig {
             return store;
         }
     }
+
+    public ReplyExecutorType getReplyExecutor() {
+        return replyExecutor;
+    }
+
+    public void setReplyExecutor(ReplyExecutorType replyExecutor) {
+        this.replyExecutor = replyExecutor;
+    }
+
+    /**
+     * @return number of reply threads or the maximum number of replies in flight on virtual threads, 0 for the default
+     */
+    public int getReplyExecutorSize() {
+        return replyExecutorSize;
+    }
+
+    public void setReplyExecutorSize(int replyExecutorSize) {
+        this.replyExecutorSize = replyExecutorSize;
+    }
+
+    /**
+     * @return number of physical connections opened under the name of this connection
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public PoolStriping getPoolStriping() {
+        return poolStriping;
+    }
+
+    public void setPoolStriping(PoolStriping poolStriping) {
+        this.poolStriping = poolStriping;
+    }
 }
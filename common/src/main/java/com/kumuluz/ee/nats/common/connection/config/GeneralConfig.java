@@ -1,5 +1,7 @@
 package com.kumuluz.ee.nats.common.connection.config;
 
+import com.kumuluz.ee.nats.common.util.ExecutorType;
+
 import java.time.Duration;
 
 /**
@@ -14,7 +16,11 @@ public class GeneralConfig {
         private Duration responseTimeout = Duration.ofSeconds(5);
         private Duration ackConfirmationTimeout = Duration.ofSeconds(5);
         private int ackConfirmationRetries = 5;
+        private int ackConfirmationMaxInFlight = 1024;
         private Duration drainTimeout = Duration.ofSeconds(10);
+        private ExecutorType listenerExecutor = ExecutorType.DISPATCHER;
+        private int listenerMaxInFlight = 256;
+        private int maxDecompressedSize;
 
         public Builder responseTimeout(Duration responseTimeout) {
             this.responseTimeout = responseTimeout;
@@ -31,17 +37,41 @@ public class GeneralConfig {
             return this;
         }
 
+        public Builder ackConfirmationMaxInFlight(int ackConfirmationMaxInFlight) {
+            this.ackConfirmationMaxInFlight = ackConfirmationMaxInFlight;
+            return this;
+        }
+
         public Builder drainTimeout(Duration drainTimeout) {
             this.drainTimeout = drainTimeout;
             return this;
         }
 
+        public Builder listenerExecutor(ExecutorType listenerExecutor) {
+            this.listenerExecutor = listenerExecutor;
+            return this;
+        }
+
+        public Builder listenerMaxInFlight(int listenerMaxInFlight) {
+            this.listenerMaxInFlight = listenerMaxInFlight;
+            return this;
+        }
+
+        public Builder maxDecompressedSize(int maxDecompressedSize) {
+            this.maxDecompressedSize = maxDecompressedSize;
+            return this;
+        }
+
         public GeneralConfig build() {
             GeneralConfig generalConfig = new GeneralConfig();
             generalConfig.responseTimeout = responseTimeout;
             generalConfig.ackConfirmationTimeout = ackConfirmationTimeout;
             generalConfig.ackConfirmationRetries = ackConfirmationRetries;
+            generalConfig.ackConfirmationMaxInFlight = ackConfirmationMaxInFlight;
             generalConfig.drainTimeout = drainTimeout;
+            generalConfig.listenerExecutor = listenerExecutor;
+            generalConfig.listenerMaxInFlight = listenerMaxInFlight;
+            generalConfig.maxDecompressedSize = maxDecompressedSize;
             return generalConfig;
         }
     }
@@ -49,7 +79,11 @@ public class GeneralConfig {
     private Duration responseTimeout;
     private Duration ackConfirmationTimeout;
     private int ackConfirmationRetries;
+    private int ackConfirmationMaxInFlight;
     private Duration drainTimeout;
+    private ExecutorType listenerExecutor;
+    private int listenerMaxInFlight;
+    private int maxDecompressedSize;
 
     public GeneralConfig() {
     }
@@ -66,10 +100,32 @@ public class GeneralConfig {
         return ackConfirmationRetries;
     }
 
+    /**
+     * @return maximum number of double acks waiting for the confirmation at once
+     */
+    public int getAckConfirmationMaxInFlight() {
+        return ackConfirmationMaxInFlight;
+    }
+
     public Duration getDrainTimeout() {
         return drainTimeout;
     }
 
+    public ExecutorType getListenerExecutor() {
+        return listenerExecutor;
+    }
+
+    public int getListenerMaxInFlight() {
+        return listenerMaxInFlight;
+    }
+
+    /**
+     * @return maximum size of a decompressed payload in bytes, 0 for the default based on the max payload
+     */
+    public int getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
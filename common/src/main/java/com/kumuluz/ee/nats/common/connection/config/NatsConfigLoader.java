@@ -1,7 +1,10 @@
 package com.kumuluz.ee.nats.common.connection.config;
 
 import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.common.util.ReplyExecutorType;
 import com.kumuluz.ee.nats.common.exception.ConfigurationException;
+import com.kumuluz.ee.nats.common.util.ExecutorType;
 import io.nats.client.JetStreamOptions;
 import io.nats.client.api.*;
 
@@ -88,12 +91,76 @@ public class NatsConfigLoader {
         // ack confirmation retries
         Optional<Integer> ackConfirmationRetries = configurationUtil.getInteger(prefix + ".ack-confirmation-retries");
         ackConfirmationRetries.ifPresent(builder::ackConfirmationRetries);
+        // ack confirmation max in-flight acks
+        Optional<Integer> ackConfirmationMaxInFlight = configurationUtil.getInteger(prefix + ".ack-confirmation-max-in-flight");
+        ackConfirmationMaxInFlight.ifPresent(builder::ackConfirmationMaxInFlight);
         // drain timeout
         Optional<String> drainTimeout = configurationUtil.get(prefix + ".drain-timeout");
         drainTimeout.ifPresent(x -> builder.drainTimeout(Duration.parse(x)));
+        // listener executor
+        Optional<String> listenerExecutor = configurationUtil.get(prefix + ".listener-executor");
+        listenerExecutor.ifPresent(x -> builder.listenerExecutor(parseExecutorType(prefix + ".listener-executor", x)));
+        // listener max in-flight messages
+        Optional<Integer> listenerMaxInFlight = configurationUtil.getInteger(prefix + ".listener-max-in-flight");
+        listenerMaxInFlight.ifPresent(builder::listenerMaxInFlight);
+        // max decompressed size
+        Optional<Integer> maxDecompressedSize = configurationUtil.getInteger(prefix + ".max-decompressed-size");
+        maxDecompressedSize.ifPresent(builder::maxDecompressedSize);
         generalConfig = builder.build();
     }
 
+    private ExecutorType parseExecutorType(String configKey, String value) {
+        String upperCaseValue = value.toUpperCase();
+        if (!upperCaseValue.equals(ExecutorType.DISPATCHER.name()) && !upperCaseValue.equals(ExecutorType.VIRTUAL.name())) {
+            throw new ConfigurationException(String.format("Invalid value %s of configuration key '%s'. Allowed values are dispatcher and virtual."
+                    , value, configKey));
+        }
+        return ExecutorType.valueOf(upperCaseValue);
+    }
+
+    private CompressionType parseCompressionType(String configKey, String value) {
+        String upperCaseValue = value.toUpperCase();
+        if (!upperCaseValue.equals(CompressionType.NONE.name()) && !upperCaseValue.equals(CompressionType.GZIP.name())
+                && !upperCaseValue.equals(CompressionType.LZ4.name()) && !upperCaseValue.equals(CompressionType.ZSTD.name())) {
+            throw new ConfigurationException(String.format("Invalid value %s of configuration key '%s'. Allowed values are none, gzip, lz4 and zstd."
+                    , value, configKey));
+        }
+        return CompressionType.valueOf(upperCaseValue);
+    }
+
+    private PoolStriping parsePoolStriping(String configKey, String value) {
+        String upperCaseValue = value.toUpperCase().replace('-', '_');
+        for (PoolStriping striping : PoolStriping.values()) {
+            if (striping.name().equals(upperCaseValue)) {
+                return striping;
+            }
+        }
+        throw new ConfigurationException(String.format("Invalid value %s of configuration key '%s'. Allowed values are subject-hash and round-robin."
+                , value, configKey));
+    }
+
+    private ReplyExecutorType parseReplyExecutorType(String configKey, String value) {
+        String upperCaseValue = value.toUpperCase();
+        for (ReplyExecutorType type : ReplyExecutorType.values()) {
+            if (type.name().equals(upperCaseValue)) {
+                return type;
+            }
+        }
+        throw new ConfigurationException(String.format("Invalid value %s of configuration key '%s'. Allowed values are inline, pool and virtual."
+                , value, configKey));
+    }
+
+    private BackpressureMode parseBackpressureMode(String configKey, String value) {
+        String upperCaseValue = value.toUpperCase().replace('-', '_');
+        for (BackpressureMode mode : BackpressureMode.values()) {
+            if (mode.name().equals(upperCaseValue)) {
+                return mode;
+            }
+        }
+        throw new ConfigurationException(String.format("Invalid value %s of configuration key '%s'. Allowed values are block, fail-fast and drop-oldest."
+                , value, configKey));
+    }
+
     private ConsumerConfiguration readConsumerConfiguration(String currentPrefix) {
         ConsumerConfiguration consumerConfiguration = new ConsumerConfiguration();
         // name
@@ -227,6 +294,30 @@ public class NatsConfigLoader {
         // credentials
         Optional<String> credentials = configurationUtil.get(currentPrefix + ".credentials");
         credentials.ifPresent(connectionConfig::setCredentials);
+        // compression
+        Optional<String> compression = configurationUtil.get(currentPrefix + ".compression");
+        compression.ifPresent(x -> connectionConfig.setCompression(parseCompressionType(currentPrefix + ".compression", x)));
+        // compression threshold
+        Optional<Integer> compressionThreshold = configurationUtil.getInteger(currentPrefix + ".compression-threshold");
+        compressionThreshold.ifPresent(connectionConfig::setCompressionThreshold);
+        // reply executor
+        Optional<String> replyExecutor = configurationUtil.get(currentPrefix + ".reply-executor");
+        replyExecutor.ifPresent(x -> connectionConfig.setReplyExecutor(parseReplyExecutorType(currentPrefix + ".reply-executor", x)));
+        // reply executor size
+        Optional<Integer> replyExecutorSize = configurationUtil.getInteger(currentPrefix + ".reply-executor-size");
+        replyExecutorSize.ifPresent(connectionConfig::setReplyExecutorSize);
+        // pool size
+        Optional<Integer> poolSize = configurationUtil.getInteger(currentPrefix + ".pool-size");
+        if (poolSize.isPresent()) {
+            if (poolSize.get() < 1) {
+                throw new ConfigurationException(String.format("Invalid value %d of configuration key '%s'. The pool size must be at least 1."
+                        , poolSize.get(), currentPrefix + ".pool-size"));
+            }
+            connectionConfig.setPoolSize(poolSize.get());
+        }
+        // pool striping
+        Optional<String> poolStriping = configurationUtil.get(currentPrefix + ".pool-striping");
+        poolStriping.ifPresent(x -> connectionConfig.setPoolStriping(parsePoolStriping(currentPrefix + ".pool-striping", x)));
 
         // (jet)streams
         Optional<Integer> streamsSize = configurationUtil.getListSize(currentPrefix + ".streams");
@@ -241,13 +332,16 @@ public class NatsConfigLoader {
         // jetStreamContext options
         Optional<Integer> jetStreamContextsSize = configurationUtil.getListSize(currentPrefix + ".jetstream-contexts");
         Map<String, JetStreamOptions> jetStreamContexts = new HashMap<>();
+        Map<String, PublishWindowConfig> publishWindows = new HashMap<>();
         if (jetStreamContextsSize.isPresent()) {
             for (int i = 0; i < jetStreamContextsSize.get(); i++) {
                 NamedJetStreamOptions namedJetStreamOptions = readJetStreamOptions(currentPrefix + ".jetstream-contexts" + "[" + i + "]");
                 jetStreamContexts.put(namedJetStreamOptions.getName(), namedJetStreamOptions.getJetStreamOptions());
+                publishWindows.put(namedJetStreamOptions.getName(), namedJetStreamOptions.getPublishWindowConfig());
             }
         }
         connectionConfig.setJetStreamContextOptions(jetStreamContexts);
+        connectionConfig.setPublishWindowConfigs(publishWindows);
 
         // TLS
         Optional<List<String>> tlsKeys = configurationUtil.getMapKeys(currentPrefix + ".tls");
@@ -382,7 +476,16 @@ public class NatsConfigLoader {
         Optional<String> requestTimeout = configurationUtil.get(currentPrefix + ".request-timeout");
         requestTimeout.ifPresent(x -> builder.requestTimeout(Duration.parse(x)));
 
+        PublishWindowConfig.Builder publishWindowBuilder = PublishWindowConfig.builder();
+        // max in-flight publishes
+        Optional<Integer> maxInFlight = configurationUtil.getInteger(currentPrefix + ".max-in-flight");
+        maxInFlight.ifPresent(publishWindowBuilder::maxInFlight);
+        // backpressure
+        Optional<String> backpressure = configurationUtil.get(currentPrefix + ".backpressure");
+        backpressure.ifPresent(x -> publishWindowBuilder.backpressure(parseBackpressureMode(currentPrefix + ".backpressure", x)));
+
         namedBuilder.jetStreamOptions(builder.build());
+        namedBuilder.publishWindowConfig(publishWindowBuilder.build());
         return namedBuilder.build();
     }
 
@@ -391,6 +494,7 @@ public class NatsConfigLoader {
         private static class Builder {
             private String name;
             private JetStreamOptions jetStreamOptions;
+            private PublishWindowConfig publishWindowConfig;
 
             private Builder name(String name) {
                 this.name = name;
@@ -402,16 +506,23 @@ public class NatsConfigLoader {
                 return this;
             }
 
+            private Builder publishWindowConfig(PublishWindowConfig publishWindowConfig) {
+                this.publishWindowConfig = publishWindowConfig;
+                return this;
+            }
+
             private NamedJetStreamOptions build() {
                 NamedJetStreamOptions namedJetStreamOptions = new NamedJetStreamOptions();
                 namedJetStreamOptions.name = name;
                 namedJetStreamOptions.jetStreamOptions = jetStreamOptions;
+                namedJetStreamOptions.publishWindowConfig = publishWindowConfig;
                 return namedJetStreamOptions;
             }
         }
 
         private String name;
         private JetStreamOptions jetStreamOptions;
+        private PublishWindowConfig publishWindowConfig;
 
         public NamedJetStreamOptions() {
         }
@@ -423,5 +534,9 @@ public class NatsConfigLoader {
         public JetStreamOptions getJetStreamOptions() {
             return jetStreamOptions;
         }
+
+        public PublishWindowConfig getPublishWindowConfig() {
+            return publishWindowConfig;
+        }
     }
 }
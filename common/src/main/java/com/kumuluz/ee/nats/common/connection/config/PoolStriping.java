@@ -0,0 +1,18 @@
+package com.kumuluz.ee.nats.common.connection.config;
+
+/**
+ * How the publishes of a logical connection are spread across the physical connections of its pool.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum PoolStriping {
+    /**
+     * All messages of a subject go through the same connection, which keeps them in order.
+     */
+    SUBJECT_HASH,
+    /**
+     * Every publish takes the next connection. Messages of the same subject may be reordered.
+     */
+    ROUND_ROBIN
+}
@@ -0,0 +1,56 @@
+package com.kumuluz.ee.nats.common.connection.config;
+
+/**
+ * Class for the publish window settings of a JetStream context: the maximum number of asynchronous publishes
+ * waiting for their acks, and the backpressure when the window is full.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PublishWindowConfig {
+
+    public static final PublishWindowConfig UNBOUNDED = builder().build();
+
+    public static class Builder {
+        private int maxInFlight = 0;
+        private BackpressureMode backpressure = BackpressureMode.BLOCK;
+
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder backpressure(BackpressureMode backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        public PublishWindowConfig build() {
+            PublishWindowConfig publishWindowConfig = new PublishWindowConfig();
+            publishWindowConfig.maxInFlight = maxInFlight;
+            publishWindowConfig.backpressure = backpressure;
+            return publishWindowConfig;
+        }
+    }
+
+    private int maxInFlight;
+    private BackpressureMode backpressure;
+
+    private PublishWindowConfig() {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return maximum number of publishes waiting for their acks, 0 means unbounded
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public BackpressureMode getBackpressure() {
+        return backpressure;
+    }
+}
@@ -12,6 +12,7 @@ import io.nats.client.api.StreamInfo;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -25,7 +26,7 @@ public class StreamManagement {
     private static final Logger LOG = Logger.getLogger(StreamManagement.class.getName());
 
     public static void establishAll() {
-        HashMap<String, Connection> connections = NatsConnection.getAllConnections();
+        Map<String, Connection> connections = NatsConnection.getAllConnections();
         HashMap<String, ConnectionConfig> connectionConfigs = NatsConfigLoader.getInstance().getConnectionConfigs();
         connections.forEach(
                 (name, connection) -> connectionConfigs.get(name).getStreamConsumerConfigurations().forEach(
@@ -0,0 +1,89 @@
+package com.kumuluz.ee.nats.common.reactive;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Cold {@link Flow.Publisher} of at most one item. The future is created for every subscriber, once the subscriber
+ * requests the item, so nothing is sent before there is demand for the result.
+ *
+ * @author Matej Bizjak
+ */
+
+public class FuturePublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<CompletableFuture<T>> futureSupplier;
+
+    /**
+     * @param futureSupplier starts the operation; a null result completes the subscriber without an item
+     */
+    public FuturePublisher(Supplier<CompletableFuture<T>> futureSupplier) {
+        this.futureSupplier = futureSupplier;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        subscriber.onSubscribe(new FutureSubscription(subscriber));
+    }
+
+    private class FutureSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<T> future;
+
+        private FutureSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {  // rule 3.9 of the Reactive Streams specification
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Non-positive request " + n + "."));
+                return;
+            }
+            if (!requested.compareAndSet(false, true)) {
+                return;
+            }
+
+            CompletableFuture<T> started;
+            try {
+                started = futureSupplier.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            future = started;
+            started.whenComplete((item, e) -> {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (e != null) {
+                    subscriber.onError(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    return;
+                }
+                if (item != null) {
+                    subscriber.onNext(item);
+                }
+                subscriber.onComplete();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<T> started = future;
+            if (started != null) {
+                started.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.kumuluz.ee.nats.common.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts a new thread for every task, but never runs more than the given number of tasks at once.
+ * When the limit is reached, {@link #execute(Runnable)} either blocks the caller (the dispatcher thread) until a task
+ * completes, or queues the task without blocking and rejects it once the queue is full.
+ *
+ * @author Matej Bizjak
+ */
+
+class BoundedThreadPerTaskExecutor extends AbstractExecutorService {
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final int queueCapacity;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates an executor which blocks the caller when the limit is reached.
+     */
+    BoundedThreadPerTaskExecutor(ThreadFactory threadFactory, int maxInFlight) {
+        this(threadFactory, maxInFlight, -1);
+    }
+
+    /**
+     * @param queueCapacity number of tasks which wait for a free slot without blocking the caller, further tasks are
+     *                      rejected; negative to block the caller instead
+     */
+    BoundedThreadPerTaskExecutor(ThreadFactory threadFactory, int maxInFlight, int queueCapacity) {
+        this.threadFactory = threadFactory;
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down.");
+        }
+        if (queueCapacity >= 0) {
+            if (!permits.tryAcquire()) {
+                enqueue(command);
+                return;
+            }
+        } else {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a free slot.", e);
+            }
+        }
+        start(command);
+    }
+
+    private void enqueue(Runnable command) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException(String.format("%d tasks are running and %d are waiting for a free slot."
+                    , maxInFlight, queueCapacity));
+        }
+        queue.add(command);
+        startQueued();  // a slot may have been released in the meantime
+    }
+
+    /**
+     * Starts the queued tasks while there are free slots.
+     */
+    private void startQueued() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable command = queue.poll();
+            if (command == null) {
+                permits.release();
+                return;
+            }
+            queued.decrementAndGet();
+            start(command);
+        }
+    }
+
+    /**
+     * Runs the task on a new thread, the caller holds a slot.
+     */
+    private void start(Runnable command) {
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                    startQueued();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && queue.isEmpty() && permits.availablePermits() == maxInFlight;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (permits.tryAcquire(maxInFlight, timeout, unit)) {
+            permits.release(maxInFlight);
+            return true;
+        }
+        return false;
+    }
+}
@@ -6,10 +6,12 @@ import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Util class for de/serializing Java Collection types (choosing the correct parameter/return type).
@@ -34,6 +36,12 @@ public class CollectionSerDes {
         } else if (List.class.isAssignableFrom(parameterType)) {
             genericParameterType = (ParameterizedType) method.getGenericParameterTypes()[0];
             deserType = typeFactory.constructCollectionType(List.class, typeFactory.constructType(genericParameterType.getActualTypeArguments()[0]));
+        } else if (Stream.class.equals(parameterType) || Iterator.class.equals(parameterType)) {  // elements are read lazily
+            Type genericType = method.getGenericParameterTypes()[0];
+            JavaType elementType = genericType instanceof ParameterizedType
+                    ? typeFactory.constructType(((ParameterizedType) genericType).getActualTypeArguments()[0])
+                    : typeFactory.constructType(Object.class);
+            deserType = typeFactory.constructParametricType(parameterType, elementType);
         } else {
             deserType = typeFactory.constructType(parameterType);
         }
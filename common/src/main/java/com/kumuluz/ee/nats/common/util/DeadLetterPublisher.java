@@ -0,0 +1,70 @@
+package com.kumuluz.ee.nats.common.util;
+
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+
+/**
+ * Builds and publishes dead letters: copies of messages a listener could not process, with the raw data, the original
+ * headers and the failure reason.
+ *
+ * @author Matej Bizjak
+ */
+
+public class DeadLetterPublisher {
+
+    public static final String ORIGINAL_SUBJECT_HEADER = "Nats-Original-Subject";
+    public static final String FAILURE_REASON_HEADER = "Nats-Failure-Reason";
+    public static final String DELIVERED_COUNT_HEADER = "Nats-Delivered-Count";
+
+    private static final int MAX_REASON_LENGTH = 512;
+
+    /**
+     * @param deadLetterSubject subject of the dead letter
+     * @param msg               message which was not processed
+     * @param cause             failure, may be null
+     * @return the dead letter
+     */
+    public static Message build(String deadLetterSubject, Message msg, Throwable cause) {
+        Headers headers = new Headers(msg.getHeaders());
+        headers.put(ORIGINAL_SUBJECT_HEADER, msg.getSubject());
+        headers.put(FAILURE_REASON_HEADER, getReason(cause));
+        if (msg.isJetStream()) {
+            headers.put(DELIVERED_COUNT_HEADER, String.valueOf(msg.metaData().deliveredCount()));
+        }
+        return NatsMessage.builder()
+                .subject(deadLetterSubject)
+                .headers(headers)
+                .data(msg.getData())
+                .build();
+    }
+
+    /**
+     * Publishes the dead letter with NATS Core.
+     */
+    public static void publish(Connection connection, String deadLetterSubject, Message msg, Throwable cause) {
+        connection.publish(build(deadLetterSubject, msg, cause));
+    }
+
+    /**
+     * Header values must be single-line ASCII.
+     */
+    private static String getReason(Throwable cause) {
+        if (cause == null) {
+            return "unknown";
+        }
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String reason = root.getMessage() != null ? root.getClass().getName() + ": " + root.getMessage()
+                : root.getClass().getName();
+        StringBuilder sanitized = new StringBuilder(Math.min(reason.length(), MAX_REASON_LENGTH));
+        for (int i = 0; i < reason.length() && sanitized.length() < MAX_REASON_LENGTH; i++) {
+            char c = reason.charAt(i);
+            sanitized.append(c >= 32 && c < 127 ? c : ' ');
+        }
+        return sanitized.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.kumuluz.ee.nats.common.util;
+
+/**
+ * Defines on which threads the listener methods are invoked.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum ExecutorType {
+    /**
+     * Inherits the value from the enclosing annotation or the configuration.
+     */
+    DEFAULT,
+    /**
+     * Listener method is invoked on the dispatcher thread or on the worker threads, if concurrency is greater than 1.
+     */
+    DISPATCHER,
+    /**
+     * Every message is processed on its own virtual thread. The number of messages in flight is bounded.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,64 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Finds and instantiates client implementations generated at build time by the KumuluzEE NATS annotation processor.
+ * The generated class is placed in the same package as the client interface and named after it, for example
+ * {@code ProductClient_NatsClientImpl} for interface {@code ProductClient}.
+ *
+ * @author Matej Bizjak
+ */
+
+public class GeneratedClientLoader {
+
+    public static final String CORE_SUFFIX = "NatsClientImpl";
+    public static final String JETSTREAM_SUFFIX = "JetStreamClientImpl";
+
+    /**
+     * @param aClass client interface
+     * @param suffix suffix of the generated class name
+     * @return the name of the generated implementation
+     */
+    public static String getImplementationName(Class<?> aClass, String suffix) {
+        String packageName = aClass.getPackageName();
+        String simpleName = packageName.isEmpty() ? aClass.getName() : aClass.getName().substring(packageName.length() + 1);
+        String name = simpleName.replace('$', '_') + "_" + suffix;
+        return packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    /**
+     * @param aClass client interface
+     * @param suffix suffix of the generated class name
+     * @return constructor of the generated implementation or null if the implementation was not generated
+     */
+    public static Constructor<?> findImplementation(Class<?> aClass, String suffix) {
+        try {
+            Class<?> implementation = Class.forName(getImplementationName(aClass, suffix), false, aClass.getClassLoader());
+            if (!aClass.isAssignableFrom(implementation)) {
+                return null;
+            }
+            return implementation.getConstructor();
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (InvocationTargetException e) {
+            if (e.getTargetException() instanceof RuntimeException) {
+                throw (RuntimeException) e.getTargetException();
+            }
+            throw new DefinitionException(String.format("Cannot instantiate the generated client %s."
+                    , constructor.getDeclaringClass().getName()), e.getTargetException());
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new DefinitionException(String.format("Cannot instantiate the generated client %s."
+                    , constructor.getDeclaringClass().getName()), e);
+        }
+    }
+}
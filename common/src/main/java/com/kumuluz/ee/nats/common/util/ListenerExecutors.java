@@ -0,0 +1,129 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates executors which run listener methods off the NATS dispatcher thread.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ListenerExecutors {
+
+    private static final Logger LOG = Logger.getLogger(ListenerExecutors.class.getName());
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory("nats-listener-");
+
+    /**
+     * Creates the executor of a listener.
+     *
+     * @param method       listener method
+     * @param executorType resolved executor type (either {@link ExecutorType#DISPATCHER} or {@link ExecutorType#VIRTUAL})
+     * @param concurrency  number of worker threads, used with {@link ExecutorType#DISPATCHER}
+     * @param maxInFlight  maximum number of messages processed at once, used with {@link ExecutorType#VIRTUAL}
+     * @return the executor or null if the listener runs on the dispatcher thread
+     */
+    public static ExecutorService newExecutor(Method method, ExecutorType executorType, int concurrency, int maxInFlight) {
+        if (executorType == ExecutorType.VIRTUAL) {
+            return newVirtualExecutor(method, maxInFlight);
+        }
+        return newWorkerPool(method, concurrency);
+    }
+
+    /**
+     * Creates a pool of worker threads for a listener with the given concurrency.
+     * The queue of waiting messages is bounded; when it is full, the dispatcher thread runs the listener itself,
+     * which stops it from taking further messages until a worker is available.
+     *
+     * @param method      listener method
+     * @param concurrency number of worker threads
+     * @return the worker pool or null if the concurrency is 1 and the listener runs on the dispatcher thread
+     */
+    public static ExecutorService newWorkerPool(Method method, int concurrency) {
+        if (concurrency < 1) {
+            throw new DefinitionException(String.format("Concurrency of listener method %s in class %s must be at least 1."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        if (concurrency == 1) {
+            return null;
+        }
+
+        return new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS
+                , new ArrayBlockingQueue<>(concurrency), platformThreadFactory(method)
+                , new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates an executor which processes every message on its own virtual thread. If virtual threads are not
+     * supported by the running JVM, platform threads are used instead.
+     *
+     * @param method      listener method
+     * @param maxInFlight maximum number of messages processed at once
+     * @return the executor
+     */
+    public static ExecutorService newVirtualExecutor(Method method, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new DefinitionException(String.format("Maximum number of in-flight messages of listener method %s in class %s must be at least 1."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        ThreadFactory threadFactory = VIRTUAL_THREAD_FACTORY;
+        if (threadFactory == null) {
+            LOG.warning(String.format("Virtual threads are not supported by the JVM, listener method %s in class %s will use platform threads."
+                    , method.getName(), method.getDeclaringClass().getName()));
+            threadFactory = platformThreadFactory(method);
+        }
+        return new BoundedThreadPerTaskExecutor(threadFactory, maxInFlight);
+    }
+
+    /**
+     * Creates an executor shared by several consumers, which runs every task on its own virtual thread (or a platform
+     * thread if virtual threads are not supported), but never more than the given number at once. The further tasks
+     * wait in a queue without blocking the caller.
+     *
+     * @param name        name of the threads
+     * @param maxInFlight maximum number of tasks run at once
+     * @return the executor
+     */
+    public static ExecutorService newSharedExecutor(String name, int maxInFlight) {
+        ThreadFactory threadFactory = createVirtualThreadFactory(name + "-");
+        if (threadFactory == null) {
+            threadFactory = platformThreadFactory(name + "-");
+        }
+        return new BoundedThreadPerTaskExecutor(threadFactory, maxInFlight, Integer.MAX_VALUE);
+    }
+
+    private static ThreadFactory platformThreadFactory(Method method) {
+        return platformThreadFactory(String.format("nats-listener-%s.%s-", method.getDeclaringClass().getSimpleName()
+                , method.getName()));
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Virtual threads are available since Java 21, while the extension is compiled for Java 11, so the factory
+     * is obtained reflectively ({@code Thread.ofVirtual().name(prefix, 0).factory()}).
+     *
+     * @return the factory or null if virtual threads are not supported
+     */
+    static ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
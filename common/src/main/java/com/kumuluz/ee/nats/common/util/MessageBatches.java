@@ -0,0 +1,107 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frames JSON payloads into a single batch message (a JSON array marked with the {@link #BATCH_HEADER} header)
+ * and unrolls such messages back into a message per element.
+ *
+ * @author Matej Bizjak
+ */
+
+public class MessageBatches {
+
+    public static final String BATCH_HEADER = "Nats-Batch";
+
+    /**
+     * @param elements encoded JSON payloads
+     * @return the JSON array of the payloads
+     */
+    public static byte[] frame(List<byte[]> elements) {
+        long length = 0;
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        byte[] data = new byte[Math.toIntExact(frameLength(length, elements.size()))];
+        data[0] = '[';
+        int position = 1;
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                data[position++] = ',';
+            }
+            byte[] element = elements.get(i);
+            System.arraycopy(element, 0, data, position, element.length);
+            position += element.length;
+        }
+        data[position] = ']';
+        return data;
+    }
+
+    /**
+     * @param elementsLength total length of the payloads
+     * @param count          number of the payloads
+     * @return the length of the JSON array of the payloads
+     */
+    public static long frameLength(long elementsLength, int count) {
+        return elementsLength + Math.max(count - 1, 0) + 2;
+    }
+
+    /**
+     * @param msg received message
+     * @return whether the message is a batch
+     */
+    public static boolean isBatch(Message msg) {
+        return msg.hasHeaders() && msg.getHeaders().containsKeyIgnoreCase(BATCH_HEADER);
+    }
+
+    /**
+     * Splits the batch into messages with the raw data of the elements and the headers of the batch.
+     *
+     * @param msg batch message
+     * @return a message per element
+     * @throws IOException if the batch is not a JSON array
+     */
+    public static List<Message> unroll(Message msg) throws IOException {
+        String contentType = msg.getHeaders().getFirst(NatsCodecs.CONTENT_TYPE_HEADER);
+        if (contentType != null && !contentType.equals(NatsCodecs.JSON)) {
+            throw new IOException(String.format("Batch messages must be encoded as JSON, not %s.", contentType));
+        }
+        byte[] data = PayloadCompression.decompress(msg);
+        Headers headers = new Headers(msg.getHeaders());
+        headers.remove(BATCH_HEADER, PayloadCompression.CONTENT_ENCODING_HEADER);
+
+        List<Message> messages = new ArrayList<>();
+        try (JsonParser parser = SerDes.getObjectMapper().getFactory().createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Batch message is not a JSON array.");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new IOException("Batch message is not a complete JSON array.");
+                }
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                parser.finishToken();  // strings are read lazily
+                int end = (int) parser.getCurrentLocation().getByteOffset();
+                messages.add(NatsMessage.builder()
+                        .subject(msg.getSubject())
+                        .replyTo(msg.getReplyTo())
+                        .headers(headers)
+                        .data(Arrays.copyOfRange(data, start, end))
+                        .build());
+            }
+        }
+        return messages;
+    }
+}
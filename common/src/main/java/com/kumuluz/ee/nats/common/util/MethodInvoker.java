@@ -0,0 +1,96 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Invokes a listener method with 1 or 2 parameters without reflection.
+ * The invoker is spun with {@link LambdaMetafactory}, so the call compiles to a direct invocation of the listener method.
+ * If the lambda cannot be created, a {@link MethodHandle} is used instead. Static listener methods ignore the target.
+ * Exceptions thrown by the listener method are propagated as they are, they are not wrapped like with {@link Method#invoke}.
+ *
+ * @author Matej Bizjak
+ */
+
+@FunctionalInterface
+public interface MethodInvoker {
+
+    /**
+     * @param target instance of the listener class
+     * @param arg0   first argument
+     * @param arg1   second argument, ignored if the method has only 1 parameter
+     * @return the value returned by the method or null if the method is void
+     * @throws Throwable anything thrown by the method
+     */
+    Object invoke(Object target, Object arg0, Object arg1) throws Throwable;
+
+    /**
+     * @param method listener method with 1 or 2 parameters
+     * @return invoker of the method
+     */
+    static MethodInvoker of(Method method) {
+        int parameterCount = method.getParameterCount();
+        if (parameterCount < 1 || parameterCount > 2) {
+            throw new DefinitionException(String.format("Listener method %s in class %s must have 1 or 2 parameters."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+        } catch (IllegalAccessException | SecurityException e) {
+            lookup = MethodHandles.publicLookup();
+        }
+        MethodHandle handle;
+        try {
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new DefinitionException(String.format("Listener method %s in class %s is not accessible."
+                    , method.getName(), declaringClass.getName()), e);
+        }
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        // the lambda is defined next to the listener class; newer JDKs require full privilege access for that,
+        // so we retry next to this class when the listener is public and visible from here
+        try {
+            return MethodInvokers.lambda(lookup, handle, isStatic);
+        } catch (Throwable e) {
+            if (Modifier.isPublic(declaringClass.getModifiers()) && Modifier.isPublic(method.getModifiers())
+                    && MethodInvokers.isVisible(declaringClass)) {
+                try {
+                    return MethodInvokers.lambda(MethodHandles.lookup(), handle, isStatic);
+                } catch (Throwable ex) {
+                    e = ex;
+                }
+            }
+            Logger.getLogger(MethodInvoker.class.getName()).log(Level.FINE, String.format(
+                    "Cannot create a lambda for listener method %s in class %s, using a method handle instead."
+                    , method.getName(), declaringClass.getName()), e);
+        }
+        return MethodInvokers.methodHandle(handle, isStatic);
+    }
+
+    /**
+     * Target of the lambda for instance listener methods with 2 parameters and a return value.
+     */
+    @FunctionalInterface
+    interface TriFunction {
+        Object apply(Object target, Object arg0, Object arg1);
+    }
+
+    /**
+     * Target of the lambda for void instance listener methods with 2 parameters.
+     */
+    @FunctionalInterface
+    interface TriConsumer {
+        void accept(Object target, Object arg0, Object arg1);
+    }
+}
@@ -0,0 +1,124 @@
+package com.kumuluz.ee.nats.common.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Builds the two kinds of {@link MethodInvoker}: a lambda spun with {@link LambdaMetafactory} and a {@link MethodHandle}
+ * fallback.
+ *
+ * @author Matej Bizjak
+ */
+
+final class MethodInvokers {
+
+    private MethodInvokers() {
+    }
+
+    /**
+     * @param lookup   lookup the lambda is defined with
+     * @param handle   direct handle of the listener method
+     * @param isStatic whether the listener method is static
+     * @return invoker which calls the method through a lambda
+     * @throws Throwable if the lambda cannot be created
+     */
+    @SuppressWarnings("unchecked")
+    static MethodInvoker lambda(MethodHandles.Lookup lookup, MethodHandle handle, boolean isStatic) throws Throwable {
+        boolean isVoid = handle.type().returnType().equals(void.class);
+        int arity = handle.type().parameterCount();  // includes the target of the instance methods
+        Class<?> samType;
+        switch (arity) {
+            case 1:
+                samType = isVoid ? Consumer.class : Function.class;
+                break;
+            case 2:
+                samType = isVoid ? BiConsumer.class : BiFunction.class;
+                break;
+            default:
+                samType = isVoid ? MethodInvoker.TriConsumer.class : MethodInvoker.TriFunction.class;
+                break;
+        }
+
+        MethodType instantiatedType = handle.type().wrap();
+        if (isVoid) {
+            instantiatedType = instantiatedType.changeReturnType(void.class);
+        }
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, isVoid ? "accept" : "apply"
+                , MethodType.methodType(samType), instantiatedType.erase(), handle, instantiatedType);
+        Object lambda = callSite.getTarget().invoke();
+
+        switch (arity) {
+            case 1:
+                if (isVoid) {
+                    Consumer<Object> consumer = (Consumer<Object>) lambda;
+                    return (target, arg0, arg1) -> {
+                        consumer.accept(arg0);
+                        return null;
+                    };
+                }
+                Function<Object, Object> function = (Function<Object, Object>) lambda;
+                return (target, arg0, arg1) -> function.apply(arg0);
+            case 2:
+                if (isVoid) {
+                    BiConsumer<Object, Object> biConsumer = (BiConsumer<Object, Object>) lambda;
+                    if (isStatic) {
+                        return (target, arg0, arg1) -> {
+                            biConsumer.accept(arg0, arg1);
+                            return null;
+                        };
+                    }
+                    return (target, arg0, arg1) -> {
+                        biConsumer.accept(target, arg0);
+                        return null;
+                    };
+                }
+                BiFunction<Object, Object, Object> biFunction = (BiFunction<Object, Object, Object>) lambda;
+                if (isStatic) {
+                    return (target, arg0, arg1) -> biFunction.apply(arg0, arg1);
+                }
+                return (target, arg0, arg1) -> biFunction.apply(target, arg0);
+            default:
+                if (isVoid) {
+                    MethodInvoker.TriConsumer triConsumer = (MethodInvoker.TriConsumer) lambda;
+                    return (target, arg0, arg1) -> {
+                        triConsumer.accept(target, arg0, arg1);
+                        return null;
+                    };
+                }
+                return ((MethodInvoker.TriFunction) lambda)::apply;
+        }
+    }
+
+    /**
+     * @param handle   handle of the listener method
+     * @param isStatic whether the listener method is static
+     * @return invoker which calls the method through the handle
+     */
+    static MethodInvoker methodHandle(MethodHandle handle, boolean isStatic) {
+        if (isStatic) {  // the target is ignored
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        if (handle.type().parameterCount() == 2) {  // the second argument is ignored
+            handle = MethodHandles.dropArguments(handle, 2, Object.class);
+        }
+        // fixed erased type, so the call is an exact invocation without boxing the arguments into an array;
+        // void methods return null
+        MethodHandle invoker = handle.asType(MethodType.genericMethodType(3));
+        return (target, arg0, arg1) -> (Object) invoker.invokeExact(target, arg0, arg1);
+    }
+
+    static boolean isVisible(Class<?> aClass) {
+        try {
+            return Class.forName(aClass.getName(), false, MethodInvoker.class.getClassLoader()) == aClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Striped pool of the output buffers used by the compressors which write into an {@link OutputStream}. The output is
+ * written into a pooled buffer and copied out once, with its exact size. The codecs do not use it. The copy cannot be
+ * avoided, since the NATS client keeps a reference to the data of a published message until it is written to the
+ * socket.
+ * Stripes are chosen by the thread id, so the pool works for virtual threads as well as for platform threads.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PooledBuffers {
+
+    private static final int INITIAL_SIZE = 4096;
+    private static final int MAX_RETAINED_SIZE = 256 * 1024;  // larger buffers are left to the garbage collector
+    private static final int STRIPES = stripes();
+    private static final AtomicReferenceArray<ByteArrayBuilder> POOL = new AtomicReferenceArray<>(STRIPES);
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * @param writer writes the payload into the given stream
+     * @return the written bytes
+     * @throws IOException if the writer fails
+     */
+    public static byte[] write(Writer writer) throws IOException {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        ByteArrayBuilder builder = POOL.getAndSet(stripe, null);
+        if (builder == null) {  // stripe is in use by another thread or by a nested call
+            builder = new ByteArrayBuilder(INITIAL_SIZE);
+        }
+        try {
+            writer.write(builder);
+            return builder.toByteArray();
+        } finally {
+            builder.reset();
+            if (builder.getCurrentSegment() != null && builder.getCurrentSegment().length <= MAX_RETAINED_SIZE) {
+                POOL.compareAndSet(stripe, null, builder);
+            }
+        }
+    }
+
+    private static int stripes() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        return Math.min(stripes, 64);
+    }
+}
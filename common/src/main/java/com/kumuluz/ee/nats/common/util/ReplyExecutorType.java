@@ -0,0 +1,23 @@
+package com.kumuluz.ee.nats.common.util;
+
+/**
+ * Defines on which threads the replies of asynchronous requests are deserialized and their futures completed.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum ReplyExecutorType {
+    /**
+     * On the NATS thread which received the reply. The fastest, but slow dependent stages delay the other replies
+     * of the connection.
+     */
+    INLINE,
+    /**
+     * On a bounded pool of platform threads of the connection.
+     */
+    POOL,
+    /**
+     * Every reply on its own virtual thread. The number of replies in flight is bounded.
+     */
+    VIRTUAL
+}
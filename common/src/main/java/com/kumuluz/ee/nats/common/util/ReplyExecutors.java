@@ -0,0 +1,76 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.connection.config.ConnectionConfig;
+import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Executors of the replies of asynchronous requests, one per connection, chosen by the {@link ReplyExecutorType}
+ * of the connection.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ReplyExecutors {
+
+    private static final Logger LOG = Logger.getLogger(ReplyExecutors.class.getName());
+    private static final int QUEUE_CAPACITY_PER_THREAD = 1024;
+    private static final int DEFAULT_VIRTUAL_MAX_IN_FLIGHT = 1024;
+    private static final int VIRTUAL_QUEUE_CAPACITY_FACTOR = 16;
+    private static final Map<String, Executor> EXECUTORS = new ConcurrentHashMap<>();
+
+    /**
+     * @param connectionName name of the connection
+     * @return the reply executor of the connection
+     */
+    public static Executor get(String connectionName) {
+        return EXECUTORS.computeIfAbsent(connectionName, ReplyExecutors::create);
+    }
+
+    private static Executor create(String connectionName) {
+        ConnectionConfig config = NatsConfigLoader.getInstance().getConfigForConnection(connectionName);
+        return create(connectionName, config != null ? config.getReplyExecutor() : ReplyExecutorType.POOL
+                , config != null ? config.getReplyExecutorSize() : 0);
+    }
+
+    static Executor create(String connectionName, ReplyExecutorType type, int size) {
+        switch (type) {
+            case INLINE:
+                return Runnable::run;
+            case VIRTUAL:
+                ThreadFactory virtualThreadFactory = ListenerExecutors.createVirtualThreadFactory("nats-reply-");
+                if (virtualThreadFactory != null) {
+                    int maxInFlight = size > 0 ? size : DEFAULT_VIRTUAL_MAX_IN_FLIGHT;
+                    // never blocks the NATS thread: the replies over the limit are queued, and once the queue is full
+                    // rejected, which completes the future of the request exceptionally
+                    return new BoundedThreadPerTaskExecutor(virtualThreadFactory, maxInFlight
+                            , maxInFlight * VIRTUAL_QUEUE_CAPACITY_FACTOR);
+                }
+                LOG.warning(String.format("Virtual threads are not supported by the JVM, replies of connection %s will use a thread pool."
+                        , connectionName));
+                size = 0;
+                // falls through
+            case POOL:
+            default:
+                int threads = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+                String prefix = String.format("nats-reply-%s-", connectionName);
+                AtomicInteger counter = new AtomicInteger();
+                // when the queue is full, the NATS thread deserializes the reply itself
+                return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS
+                        , new LinkedBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD), runnable -> {
+                            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+}
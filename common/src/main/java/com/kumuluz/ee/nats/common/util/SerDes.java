@@ -5,6 +5,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.kumuluz.ee.nats.common.codec.JacksonCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
 
 import java.io.IOException;
 
@@ -16,21 +18,33 @@ import java.io.IOException;
 
 public class SerDes {
     static final ObjectMapper OBJECT_MAPPER = NatsObjectMapperProvider.getObjectMapper();
+    static final JacksonCodec JSON_CODEC = new JacksonCodec(NatsCodecs.JSON, OBJECT_MAPPER);
 
     public static byte[] serialize(Object object) throws JsonProcessingException {
-        return OBJECT_MAPPER.writeValueAsBytes(object);
+        return JSON_CODEC.writeValueAsBytes(object);
     }
 
     public static <T> T deserialize(byte[] data, Class<T> clazz) throws IOException {
-        return OBJECT_MAPPER.readValue(data, clazz);
+        return JSON_CODEC.getReader(getTypeFactory().constructType(clazz)).readValue(data);
     }
 
     public static <T> T deserialize(byte[] data, TypeReference<T> valueTypeRef) throws IOException {
-        return OBJECT_MAPPER.readValue(data, valueTypeRef);
+        return JSON_CODEC.getReader(getTypeFactory().constructType(valueTypeRef)).readValue(data);
     }
 
     public static <T> T deserialize(byte[] data, JavaType valueType) throws IOException {
-        return OBJECT_MAPPER.readValue(data, valueType);
+        return JSON_CODEC.getReader(valueType).readValue(data);
+    }
+
+    public static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    /**
+     * @return the JSON codec with the cached readers and writers
+     */
+    public static JacksonCodec getJsonCodec() {
+        return JSON_CODEC;
     }
 
     public static TypeFactory getTypeFactory() {
@@ -0,0 +1,120 @@
+package com.kumuluz.ee.nats.common.backoff;
+
+import com.kumuluz.ee.nats.common.annotations.Backoff;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the delays of the built-in {@link BackoffPolicy} implementations.
+ *
+ * @author Matej Bizjak
+ */
+
+public class BackoffPolicyTest {
+
+    private static final Duration INITIAL = Duration.ofSeconds(1);
+    private static final Duration MAX = Duration.ofSeconds(60);
+
+    @Test
+    public void defaultReproducesThePowersOfFive() {
+        for (int deliveredCount = 1; deliveredCount <= 5; deliveredCount++) {  // 5^5 s is still below one hour
+            Assert.assertEquals(BackoffPolicy.DEFAULT.nextDelay(deliveredCount)
+                    , Duration.ofSeconds((long) Math.pow(5, deliveredCount)));
+        }
+        Assert.assertEquals(BackoffPolicy.DEFAULT.nextDelay(6), Duration.ofHours(1));
+        Assert.assertEquals(BackoffPolicy.DEFAULT.nextDelay(1000), Duration.ofHours(1));
+    }
+
+    @Test
+    public void defaultMatchesTheAnnotationDefaults() throws NoSuchMethodException {
+        Duration initial = Duration.parse((String) Backoff.class.getMethod("initial").getDefaultValue());
+        Duration max = Duration.parse((String) Backoff.class.getMethod("max").getDefaultValue());
+        double multiplier = (Double) Backoff.class.getMethod("multiplier").getDefaultValue();
+        BackoffPolicy fromAnnotation = BackoffPolicy.exponential(initial, max, multiplier);
+
+        Assert.assertEquals(Backoff.class.getMethod("type").getDefaultValue(), BackoffType.EXPONENTIAL);
+        for (int deliveredCount = 1; deliveredCount <= 10; deliveredCount++) {
+            Assert.assertEquals(fromAnnotation.nextDelay(deliveredCount), BackoffPolicy.DEFAULT.nextDelay(deliveredCount));
+        }
+    }
+
+    @Test
+    public void exponentialGrowsByTheMultiplierUpToTheCap() {
+        BackoffPolicy policy = BackoffPolicy.exponential(INITIAL, MAX, 2);
+
+        Assert.assertEquals(policy.nextDelay(1), Duration.ofSeconds(1));
+        Assert.assertEquals(policy.nextDelay(2), Duration.ofSeconds(2));
+        Assert.assertEquals(policy.nextDelay(3), Duration.ofSeconds(4));
+        Assert.assertEquals(policy.nextDelay(6), Duration.ofSeconds(32));
+        Assert.assertEquals(policy.nextDelay(7), MAX);
+        Assert.assertEquals(policy.nextDelay(Long.MAX_VALUE), MAX);  // overflows to infinity
+    }
+
+    @Test
+    public void exponentialWithFractionalMultiplier() {
+        BackoffPolicy policy = BackoffPolicy.exponential(INITIAL, MAX, 1.5);
+
+        Assert.assertEquals(policy.nextDelay(2), Duration.ofMillis(1500));
+        Assert.assertEquals(policy.nextDelay(3), Duration.ofMillis(2250));
+    }
+
+    @Test
+    public void fullJitterStaysWithinTheBounds() {
+        BackoffPolicy policy = BackoffPolicy.fullJitter(INITIAL, MAX);
+
+        Assert.assertEquals(policy.nextDelay(1), INITIAL);  // the upper bound equals the initial delay
+        for (int deliveredCount = 2; deliveredCount <= 10; deliveredCount++) {
+            long upper = Math.min(INITIAL.toMillis() * (long) Math.pow(3, deliveredCount - 1), MAX.toMillis());
+            for (int i = 0; i < 1000; i++) {
+                long delay = policy.nextDelay(deliveredCount).toMillis();
+                Assert.assertTrue(delay >= INITIAL.toMillis() && delay <= upper
+                        , String.format("Delay %d ms of delivery %d is not within [%d, %d] ms."
+                                , delay, deliveredCount, INITIAL.toMillis(), upper));
+            }
+        }
+        Assert.assertTrue(policy.nextDelay(Long.MAX_VALUE).compareTo(MAX) <= 0);
+    }
+
+    @Test
+    public void fullJitterIsSpread() {
+        BackoffPolicy policy = BackoffPolicy.fullJitter(INITIAL, MAX);
+
+        long distinct = IntStream.range(0, 100)
+                .mapToObj(i -> policy.nextDelay(4))
+                .distinct()
+                .count();
+        Assert.assertTrue(distinct > 1);
+    }
+
+    @Test
+    public void fixedIgnoresTheDeliveredCount() {
+        BackoffPolicy policy = BackoffPolicy.fixed(Duration.ofSeconds(7));
+
+        Assert.assertEquals(policy.nextDelay(1), Duration.ofSeconds(7));
+        Assert.assertEquals(policy.nextDelay(100), Duration.ofSeconds(7));
+    }
+
+    @Test
+    public void consumerRepeatsTheLastDelay() {
+        List<Duration> backoff = Arrays.asList(Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(30));
+        BackoffPolicy policy = BackoffPolicy.consumer(backoff);
+
+        Assert.assertEquals(policy.nextDelay(0), Duration.ofSeconds(1));
+        Assert.assertEquals(policy.nextDelay(1), Duration.ofSeconds(1));
+        Assert.assertEquals(policy.nextDelay(2), Duration.ofSeconds(10));
+        Assert.assertEquals(policy.nextDelay(3), Duration.ofSeconds(30));
+        Assert.assertEquals(policy.nextDelay(50), Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void consumerWithoutBackoffRedeliversImmediately() {
+        Assert.assertEquals(BackoffPolicy.consumer(null).nextDelay(3), Duration.ZERO);
+        Assert.assertEquals(BackoffPolicy.consumer(Collections.emptyList()).nextDelay(3), Duration.ZERO);
+    }
+}
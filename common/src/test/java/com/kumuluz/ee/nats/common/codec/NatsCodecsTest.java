@@ -0,0 +1,190 @@
+package com.kumuluz.ee.nats.common.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.protobuf.StringValue;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Round trips through the built-in codecs and the codec negotiation with the Content-Type header.
+ *
+ * @author Matej Bizjak
+ */
+
+public class NatsCodecsTest {
+
+    private static final TypeFactory TYPE_FACTORY = TypeFactory.defaultInstance();
+
+    public static class Product {
+        private int id;
+        private String name;
+        private List<String> tags;
+
+        public Product() {
+        }
+
+        public Product(int id, String name, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Product)) {
+                return false;
+            }
+            Product product = (Product) o;
+            return id == product.id && Objects.equals(name, product.name) && Objects.equals(tags, product.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name, tags);
+        }
+    }
+
+    @DataProvider
+    public Object[][] jacksonCodecs() {
+        return new Object[][]{{NatsCodecs.JSON}, {NatsCodecs.CBOR}, {NatsCodecs.SMILE}};
+    }
+
+    @Test(dataProvider = "jacksonCodecs")
+    public void jacksonRoundTrip(String contentType) throws IOException {
+        NatsCodec codec = NatsCodecs.get(contentType);
+        Product product = new Product(1, "Corn", Arrays.asList("food", "grain"));
+        List<Product> products = Arrays.asList(product, new Product(2, "Rice", List.of()));
+        JavaType listType = TYPE_FACTORY.constructCollectionType(List.class, Product.class);
+
+        Assert.assertNotNull(codec, contentType);
+        Assert.assertEquals(codec.getContentType(), contentType);
+        Assert.assertEquals(codec.decode(codec.encode(product), TYPE_FACTORY.constructType(Product.class)), product);
+        Assert.assertEquals(codec.decode(codec.encode(products), listType), products);
+        Assert.assertEquals(codec.decode(codec.encode("text"), TYPE_FACTORY.constructType(String.class)), "text");
+    }
+
+    @Test
+    public void binaryJacksonCodecsDoNotProduceJson() throws IOException {
+        Product product = new Product(1, "Corn", List.of());
+        byte[] json = NatsCodecs.getDefault().encode(product);
+
+        Assert.assertNotEquals(NatsCodecs.get(NatsCodecs.CBOR).encode(product), json);
+        Assert.assertNotEquals(NatsCodecs.get(NatsCodecs.SMILE).encode(product), json);
+    }
+
+    @Test
+    public void protobufRoundTrip() throws IOException {
+        NatsCodec codec = NatsCodecs.get(NatsCodecs.PROTOBUF);
+        StringValue value = StringValue.of("corn");
+        byte[] data = codec.encode(value);
+
+        Assert.assertEquals(data, value.toByteArray());
+        Assert.assertEquals(codec.decode(data, TYPE_FACTORY.constructType(StringValue.class)), value);
+    }
+
+    @Test
+    public void protobufRejectsOtherClasses() {
+        NatsCodec codec = NatsCodecs.get(NatsCodecs.PROTOBUF);
+
+        Assert.assertThrows(IOException.class, () -> codec.encode(new Product()));
+        Assert.assertThrows(IOException.class, () -> codec.decode(new byte[0], TYPE_FACTORY.constructType(Product.class)));
+    }
+
+    @Test
+    public void rawPassesBytesThrough() throws IOException {
+        NatsCodec codec = NatsCodecs.get(NatsCodecs.RAW);
+        byte[] data = "payload".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer slice = ByteBuffer.wrap("--payload--".getBytes(StandardCharsets.UTF_8), 2, 7);
+
+        Assert.assertSame(codec.encode(data), data);
+        Assert.assertEquals(codec.encode(slice), data);
+        Assert.assertEquals(slice.position(), 2);
+        Assert.assertSame(codec.decode(data, TYPE_FACTORY.constructType(byte[].class)), data);
+        Assert.assertEquals(codec.decode(data, TYPE_FACTORY.constructType(ByteBuffer.class)), ByteBuffer.wrap(data));
+        Assert.assertThrows(IOException.class, () -> codec.encode("text"));
+    }
+
+    @Test
+    public void advertisedCodecIsUsedForDecoding() throws IOException {
+        NatsCodec cbor = NatsCodecs.get(NatsCodecs.CBOR);
+        Product product = new Product(3, "Wheat", List.of("grain"));
+        Message msg = message(NatsCodecs.advertise(null, cbor), cbor.encode(product));
+
+        NatsCodec codec = NatsCodecs.forMessage(msg, NatsCodecs.getDefault());
+
+        Assert.assertSame(codec, cbor);
+        Assert.assertEquals(codec.decode(msg.getData(), TYPE_FACTORY.constructType(Product.class)), product);
+    }
+
+    @Test
+    public void fallbackIsUsedWithoutAKnownContentType() {
+        NatsCodec fallback = NatsCodecs.get(NatsCodecs.SMILE);
+
+        Assert.assertSame(NatsCodecs.forMessage(message(null, new byte[0]), fallback), fallback);
+        Assert.assertSame(NatsCodecs.forMessage(message(new Headers().put("Other", "x"), new byte[0]), fallback), fallback);
+        Assert.assertSame(NatsCodecs.forMessage(message(new Headers()
+                .put(NatsCodecs.CONTENT_TYPE_HEADER, "application/unknown"), new byte[0]), fallback), fallback);
+    }
+
+    @Test
+    public void jsonIsNotAdvertised() {
+        Assert.assertNull(NatsCodecs.advertise(null, NatsCodecs.getDefault()));
+        Assert.assertEquals(NatsCodecs.advertise(null, NatsCodecs.get(NatsCodecs.CBOR))
+                .getFirst(NatsCodecs.CONTENT_TYPE_HEADER), NatsCodecs.CBOR);
+    }
+
+    @Test
+    public void resolve() throws NoSuchMethodException {
+        Method method = getClass().getMethod("resolve");
+
+        Assert.assertSame(NatsCodecs.resolve("", method), NatsCodecs.getDefault());
+        Assert.assertSame(NatsCodecs.resolve(NatsCodecs.CBOR, method), NatsCodecs.get(NatsCodecs.CBOR));
+        Assert.assertThrows(DefinitionException.class, () -> NatsCodecs.resolve("application/unknown", method));
+    }
+
+    private static Message message(Headers headers, byte[] data) {
+        return NatsMessage.builder()
+                .subject("products")
+                .headers(headers)
+                .data(data)
+                .build();
+    }
+}
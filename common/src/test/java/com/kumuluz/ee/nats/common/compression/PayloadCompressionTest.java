@@ -0,0 +1,98 @@
+package com.kumuluz.ee.nats.common.compression;
+
+import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Round trips through the compressors and the rejection of payloads that decompress beyond the limit.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PayloadCompressionTest {
+
+    private static final int LIMIT = 64 * 1024;
+
+    @DataProvider
+    public Object[][] compressors() throws ReflectiveOperationException {
+        return new Object[][]{{new GzipCompressor()}, {new Lz4Compressor()}, {new ZstdCompressor()}};
+    }
+
+    @Test(dataProvider = "compressors")
+    public void roundTrip(PayloadCompressor compressor) throws IOException {
+        byte[] data = "compressible ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed = compressor.compress(data);
+
+        Assert.assertTrue(compressed.length < data.length);
+        Assert.assertEquals(compressor.decompress(compressed, data.length), data);
+        Assert.assertEquals(compressor.decompress(compressor.compress(new byte[0]), 0), new byte[0]);
+    }
+
+    @Test(dataProvider = "compressors")
+    public void payloadOverTheLimitIsRejected(PayloadCompressor compressor) throws IOException {
+        byte[] compressed = compressor.compress(new byte[LIMIT + 1]);
+
+        Assert.assertEquals(compressor.decompress(compressed, LIMIT + 1).length, LIMIT + 1);
+        Assert.assertThrows(IOException.class, () -> compressor.decompress(compressed, LIMIT));
+    }
+
+    @Test(dataProvider = "compressors")
+    public void malformedPayloadIsRejected(PayloadCompressor compressor) {
+        byte[] garbage = new byte[100];
+        Arrays.fill(garbage, (byte) 0x5a);
+
+        Assert.assertThrows(IOException.class, () -> compressor.decompress(garbage, LIMIT));
+    }
+
+    @Test
+    public void lz4ForgedLengthIsRejectedBeforeTheAllocation() throws Exception {
+        Lz4Compressor compressor = new Lz4Compressor();
+        byte[] compressed = compressor.compress(new byte[1024]);
+
+        ByteBuffer.wrap(compressed).putInt(Integer.MAX_VALUE);
+        Assert.assertThrows(IOException.class, () -> compressor.decompress(compressed, LIMIT));
+
+        ByteBuffer.wrap(compressed).putInt(16);  // the block expands beyond the declared length
+        Assert.assertThrows(IOException.class, () -> compressor.decompress(compressed, LIMIT));
+    }
+
+    @Test
+    public void messageDecompressionIsBounded() throws IOException {
+        GzipCompressor compressor = new GzipCompressor();
+        byte[] data = new byte[LIMIT];
+
+        Assert.assertEquals(PayloadCompression.decompress(message(compressor, data), LIMIT), data);
+        Assert.assertThrows(IOException.class, () -> PayloadCompression.decompress(message(compressor, data), LIMIT - 1));
+    }
+
+    @Test
+    public void maxDecompressedSize() {
+        Message msg = NatsMessage.builder().subject("products").build();  // without a connection
+        int defaultSize = 1024 * 1024 * PayloadCompression.DEFAULT_DECOMPRESSION_FACTOR;
+
+        Assert.assertEquals(PayloadCompression.getMaxDecompressedSize(msg, null), defaultSize);
+        Assert.assertEquals(PayloadCompression.getMaxDecompressedSize(msg, GeneralConfig.builder().build()), defaultSize);
+        Assert.assertEquals(PayloadCompression.getMaxDecompressedSize(msg, GeneralConfig.builder()
+                .maxDecompressedSize(LIMIT)
+                .build()), LIMIT);
+    }
+
+    private static Message message(PayloadCompressor compressor, byte[] data) throws IOException {
+        return NatsMessage.builder()
+                .subject("products")
+                .headers(new Headers().put(PayloadCompression.CONTENT_ENCODING_HEADER, compressor.getEncoding()))
+                .data(compressor.compress(data))
+                .build();
+    }
+}
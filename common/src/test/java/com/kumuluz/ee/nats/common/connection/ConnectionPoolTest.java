@@ -0,0 +1,116 @@
+package com.kumuluz.ee.nats.common.connection;
+
+import com.kumuluz.ee.nats.common.connection.config.PoolStriping;
+import io.nats.client.Connection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks how the connections of a pool are chosen for the publishes and the subscriptions, against connection stubs
+ * which are only compared by identity.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ConnectionPoolTest {
+
+    @Test
+    public void subjectHashKeepsASubjectOnOneConnection() {
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections(3), PoolStriping.SUBJECT_HASH);
+
+        Set<Connection> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String subject = "orders." + i;
+            Connection connection = pool.forSubject(subject);
+            for (int j = 0; j < 5; j++) {
+                Assert.assertSame(pool.forSubject(subject), connection, "The order per subject would be lost.");
+            }
+            used.add(connection);
+        }
+        Assert.assertEquals(used.size(), 3, "The subjects must be spread across the pool.");
+    }
+
+    @Test
+    public void subjectHashIsNotAffectedByOtherPublishes() {
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections(3), PoolStriping.SUBJECT_HASH);
+        Connection connection = pool.forSubject("orders");
+
+        pool.next();
+        pool.forSubject(null);
+
+        Assert.assertSame(pool.forSubject("orders"), connection);
+    }
+
+    @Test
+    public void roundRobinRotates() {
+        Connection[] connections = connections(3);
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections, PoolStriping.ROUND_ROBIN);
+
+        List<Connection> chosen = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            chosen.add(pool.forSubject("orders"));
+        }
+
+        Assert.assertEquals(chosen, Arrays.asList(connections[0], connections[1], connections[2], connections[0]
+                , connections[1], connections[2], connections[0]));
+    }
+
+    @Test
+    public void subjectlessPublishesRotate() {
+        Connection[] connections = connections(2);
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections, PoolStriping.SUBJECT_HASH);
+
+        Assert.assertSame(pool.forSubject(null), connections[0]);
+        Assert.assertSame(pool.forSubject(null), connections[1]);
+        Assert.assertSame(pool.forSubject(null), connections[0]);
+    }
+
+    @Test
+    public void subscriptionsRotateRegardlessOfTheStriping() {
+        Connection[] connections = connections(2);
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections, PoolStriping.SUBJECT_HASH);
+
+        Assert.assertSame(pool.next(), connections[0]);
+        Assert.assertSame(pool.next(), connections[1]);
+        Assert.assertSame(pool.next(), connections[0]);
+    }
+
+    @Test
+    public void singleConnectionIsAlwaysChosen() {
+        Connection[] connections = connections(1);
+        NatsConnection.ConnectionPool pool = new NatsConnection.ConnectionPool(connections, PoolStriping.ROUND_ROBIN);
+
+        for (String subject : Arrays.asList("orders", "payments", null)) {
+            Assert.assertSame(pool.forSubject(subject), connections[0]);
+        }
+        Assert.assertSame(pool.next(), connections[0]);
+    }
+
+    private static Connection[] connections(int count) {
+        Connection[] connections = new Connection[count];
+        for (int i = 0; i < count; i++) {
+            String name = "orders-" + i;
+            connections[i] = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader()
+                    , new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return name;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+        return connections;
+    }
+}
@@ -0,0 +1,189 @@
+package com.kumuluz.ee.nats.common.reactive;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks when the single item publisher starts the operation and which signals it sends, with futures completed by
+ * the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class FuturePublisherTest {
+
+    /**
+     * Starts a new future on every call and counts the calls.
+     */
+    private static class StubOperation {
+        private final AtomicInteger started = new AtomicInteger();
+        private final List<CompletableFuture<String>> futures = new ArrayList<>();
+
+        private CompletableFuture<String> start() {
+            started.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            futures.add(future);
+            return future;
+        }
+    }
+
+    /**
+     * Records the signals of the publisher.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<String> {
+        private final List<String> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private int completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed++;
+        }
+    }
+
+    @Test
+    public void nothingIsStartedBeforeTheRequest() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(operation::start));
+
+        Assert.assertEquals(operation.started.get(), 0);
+        subscriber.subscription.request(1);
+        Assert.assertEquals(operation.started.get(), 1);
+    }
+
+    @Test
+    public void itemIsEmittedOnceAndCompletes() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(operation::start));
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(Long.MAX_VALUE);  // the operation is not started again
+        Assert.assertTrue(subscriber.items.isEmpty());
+        operation.futures.get(0).complete("ack");
+
+        Assert.assertEquals(operation.started.get(), 1);
+        Assert.assertEquals(subscriber.items, Collections.singletonList("ack"));
+        Assert.assertEquals(subscriber.completed, 1);
+        Assert.assertNull(subscriber.error);
+    }
+
+    @Test
+    public void everySubscriberStartsItsOwnOperation() {
+        StubOperation operation = new StubOperation();
+        FuturePublisher<String> publisher = new FuturePublisher<>(operation::start);
+        RecordingSubscriber first = subscribe(publisher);
+        RecordingSubscriber second = subscribe(publisher);
+
+        first.subscription.request(1);
+        second.subscription.request(1);
+        operation.futures.get(1).complete("second");
+
+        Assert.assertEquals(operation.started.get(), 2);
+        Assert.assertTrue(first.items.isEmpty());
+        Assert.assertEquals(second.items, Collections.singletonList("second"));
+    }
+
+    @Test
+    public void nullResultCompletesWithoutAnItem() {
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<String>(
+                () -> CompletableFuture.completedFuture(null)));
+
+        subscriber.subscription.request(1);
+
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertEquals(subscriber.completed, 1);
+    }
+
+    @Test
+    public void failureIsUnwrapped() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(() -> operation.start()
+                .thenApply(String::toUpperCase)));
+
+        subscriber.subscription.request(1);
+        operation.futures.get(0).completeExceptionally(new IllegalStateException("no responders"));
+
+        Assert.assertTrue(subscriber.error instanceof IllegalStateException, String.valueOf(subscriber.error));
+        Assert.assertFalse(subscriber.error instanceof CompletionException);
+        Assert.assertEquals(subscriber.completed, 0);
+    }
+
+    @Test
+    public void supplierFailureFailsTheSubscriber() {
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<String>(() -> {
+            throw new IllegalArgumentException("cannot serialize");
+        }));
+
+        subscriber.subscription.request(1);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void cancelCancelsTheFutureAndSuppressesTheSignals() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(operation::start));
+        subscriber.subscription.request(1);
+
+        subscriber.subscription.cancel();
+        operation.futures.get(0).complete("late");
+
+        Assert.assertTrue(operation.futures.get(0).isCancelled());
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertEquals(subscriber.completed, 0);
+        Assert.assertNull(subscriber.error);
+    }
+
+    @Test
+    public void cancelBeforeTheRequestStartsNothing() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(operation::start));
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        Assert.assertEquals(operation.started.get(), 0);
+    }
+
+    @Test
+    public void nonPositiveRequestFails() {
+        StubOperation operation = new StubOperation();
+        RecordingSubscriber subscriber = subscribe(new FuturePublisher<>(operation::start));
+
+        subscriber.subscription.request(0);
+        subscriber.subscription.request(1);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertEquals(operation.started.get(), 0);
+    }
+
+    private static RecordingSubscriber subscribe(FuturePublisher<String> publisher) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+}
@@ -0,0 +1,117 @@
+package com.kumuluz.ee.nats.common.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the limit of the tasks running at once, with the blocking and the queueing behaviour.
+ *
+ * @author Matej Bizjak
+ */
+
+public class BoundedThreadPerTaskExecutorTest {
+
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    @Test
+    public void queueingExecutorNeverBlocksTheCaller() throws Exception {
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(THREAD_FACTORY, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch queuedRan = new CountDownLatch(1);
+
+        executor.execute(() -> await(release));
+        executor.execute(queuedRan::countDown);  // queued, returns immediately
+        Assert.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+        Assert.assertEquals(queuedRan.getCount(), 1);
+
+        release.countDown();
+        Assert.assertTrue(queuedRan.await(1, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queuedTasksRespectTheLimit() throws Exception {
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(THREAD_FACTORY, 4, 1000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep();
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(maxRunning.get() <= 4, String.valueOf(maxRunning.get()));
+    }
+
+    @Test
+    public void rejectionFailsTheDependentFuture() {
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(THREAD_FACTORY, 1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+
+        CompletableFuture<String> reply = CompletableFuture.completedFuture("reply")
+                .thenApplyAsync(String::toUpperCase, executor);
+
+        try {
+            reply.get(1, TimeUnit.SECONDS);
+            Assert.fail("The future did not fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void blockingExecutorWaitsForAFreeSlot() throws Exception {
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(THREAD_FACTORY, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> executor.execute(() -> {
+        }));
+        Thread.sleep(50);
+        Assert.assertFalse(second.isDone());
+
+        release.countDown();
+        second.get(1, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Frames payloads into batch messages and unrolls them back.
+ *
+ * @author Matej Bizjak
+ */
+
+public class MessageBatchesTest {
+
+    private static final int MAX_PAYLOAD = 64;
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<byte[]> elements = json("{\"id\":1,\"tags\":[\"a\",\"b\"]}", "\"text, with a comma\"", "42", "null"
+                , "[1,[2]]", "{}");
+        Message batch = batch(MessageBatches.frame(elements));
+
+        List<Message> messages = MessageBatches.unroll(batch);
+
+        Assert.assertEquals(data(messages), data(elements));
+        for (Message message : messages) {
+            Assert.assertEquals(message.getSubject(), "products");
+            Assert.assertEquals(message.getReplyTo(), "reply");
+            Assert.assertNull(message.getHeaders().getFirst(MessageBatches.BATCH_HEADER));
+            Assert.assertEquals(message.getHeaders().getFirst("Other"), "value");
+        }
+    }
+
+    @Test
+    public void emptyAndSingleBatches() throws IOException {
+        Assert.assertEquals(MessageBatches.frame(Collections.emptyList()), "[]".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(MessageBatches.unroll(batch(MessageBatches.frame(Collections.emptyList()))).isEmpty());
+        Assert.assertEquals(data(MessageBatches.unroll(batch(MessageBatches.frame(json("\"only\"")))))
+                , List.of("\"only\""));
+    }
+
+    @Test
+    public void frameLengthMatchesTheFrame() {
+        for (int count = 0; count <= 5; count++) {
+            List<byte[]> elements = Collections.nCopies(count, "\"abc\"".getBytes(StandardCharsets.UTF_8));
+
+            Assert.assertEquals(MessageBatches.frame(elements).length, MessageBatches.frameLength(5L * count, count));
+        }
+    }
+
+    @Test
+    public void batchFillingTheMaxPayloadRoundTrips() throws IOException {
+        // 5 elements of 11 bytes, 4 commas and 2 brackets
+        List<byte[]> elements = Collections.nCopies(5, "\"123456789\"".getBytes(StandardCharsets.UTF_8));
+        byte[] extra = "12".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(MessageBatches.frameLength(55, 5), 61);
+        Assert.assertEquals(MessageBatches.frameLength(55 + extra.length, 6), MAX_PAYLOAD);  // fits exactly
+        Assert.assertTrue(MessageBatches.frameLength(55 + extra.length + 1, 6) > MAX_PAYLOAD);  // one byte too many
+        List<Message> messages = MessageBatches.unroll(batch(MessageBatches.frame(concat(elements, extra))));
+        Assert.assertEquals(data(messages), data(concat(elements, extra)));
+    }
+
+    @Test
+    public void nonJsonBatchesAreRejected() {
+        Message cbor = NatsMessage.builder()
+                .subject("products")
+                .headers(new Headers().put(MessageBatches.BATCH_HEADER, "1")
+                        .put(NatsCodecs.CONTENT_TYPE_HEADER, NatsCodecs.CBOR))
+                .data(new byte[]{1})
+                .build();
+
+        Assert.assertThrows(IOException.class, () -> MessageBatches.unroll(cbor));
+        Assert.assertThrows(IOException.class, () -> MessageBatches.unroll(batch("{}".getBytes(StandardCharsets.UTF_8))));
+        Assert.assertThrows(IOException.class, () -> MessageBatches.unroll(batch("[1,2".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static Message batch(byte[] data) {
+        return NatsMessage.builder()
+                .subject("products")
+                .replyTo("reply")
+                .headers(new Headers().put(MessageBatches.BATCH_HEADER, "n").put("Other", "value"))
+                .data(data)
+                .build();
+    }
+
+    private static List<byte[]> json(String... elements) {
+        return Arrays.stream(elements).map(e -> e.getBytes(StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    private static List<byte[]> concat(List<byte[]> elements, byte[] element) {
+        List<byte[]> all = new ArrayList<>(elements);
+        all.add(element);
+        return all;
+    }
+
+    private static List<String> data(List<?> elements) {
+        return elements.stream()
+                .map(e -> e instanceof Message ? ((Message) e).getData() : (byte[]) e)
+                .map(data -> new String(data, StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+}
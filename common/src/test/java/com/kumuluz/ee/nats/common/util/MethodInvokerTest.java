@@ -0,0 +1,169 @@
+package com.kumuluz.ee.nats.common.util;
+
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the lambda and the method handle invokers behave like {@link Method#invoke}.
+ *
+ * @author Matej Bizjak
+ */
+
+public class MethodInvokerTest {
+
+    private static final List<String> RECORDED = new ArrayList<>();
+
+    public static class Listener {
+        private final String prefix;
+
+        public Listener(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String concat(String value, Integer count) {
+            return prefix + value + count;
+        }
+
+        public int twice(int value) {
+            return value * 2;
+        }
+
+        public static long sum(long a, long b) {
+            return a + b;
+        }
+
+        public static String upper(String value) {
+            return value.toUpperCase();
+        }
+
+        public void record(String value) {
+            RECORDED.add(prefix + value);
+        }
+
+        public static void recordBoth(String a, String b) {
+            RECORDED.add(a + b);
+        }
+
+        public String fail(String message) throws IOException {
+            throw new IOException(message);
+        }
+
+        private String secret(String value) {
+            return prefix + "secret-" + value;
+        }
+
+        public void none() {
+        }
+
+        public void three(String a, String b, String c) {
+        }
+    }
+
+    @DataProvider
+    public Object[][] modes() {
+        return new Object[][]{{"of"}, {"lambda"}, {"methodHandle"}};
+    }
+
+    @BeforeMethod
+    public void clear() {
+        RECORDED.clear();
+    }
+
+    @Test(dataProvider = "modes")
+    public void instanceMethodWithBoxedParameters(String mode) throws Throwable {
+        assertSameAsReflection(mode, method("concat", String.class, Integer.class), "value", 3);
+    }
+
+    @Test(dataProvider = "modes")
+    public void primitiveParameterAndReturn(String mode) throws Throwable {
+        assertSameAsReflection(mode, method("twice", int.class), 21, null);
+    }
+
+    @Test(dataProvider = "modes")
+    public void staticMethods(String mode) throws Throwable {
+        assertSameAsReflection(mode, method("sum", long.class, long.class), 40L, 2L);
+        assertSameAsReflection(mode, method("upper", String.class), "value", null);
+    }
+
+    @Test(dataProvider = "modes")
+    public void privateMethod(String mode) throws Throwable {
+        assertSameAsReflection(mode, method("secret", String.class), "value", null);
+    }
+
+    @Test(dataProvider = "modes")
+    public void voidMethods(String mode) throws Throwable {
+        Listener listener = new Listener("p-");
+
+        Assert.assertNull(invoker(mode, method("record", String.class)).invoke(listener, "a", null));
+        Assert.assertNull(invoker(mode, method("recordBoth", String.class, String.class)).invoke(listener, "b", "c"));
+
+        Assert.assertEquals(RECORDED, List.of("p-a", "bc"));
+    }
+
+    @Test(dataProvider = "modes")
+    public void exceptionsAreNotWrapped(String mode) throws Throwable {
+        Method method = method("fail", String.class);
+        Listener listener = new Listener("p-");
+
+        Throwable expected;
+        try {
+            method.invoke(listener, "boom");
+            throw new AssertionError("Reflection did not throw.");
+        } catch (InvocationTargetException e) {
+            expected = e.getCause();
+        }
+
+        try {
+            invoker(mode, method).invoke(listener, "boom", null);
+            Assert.fail("Invoker did not throw.");
+        } catch (IOException e) {
+            Assert.assertEquals(e.getClass(), expected.getClass());
+            Assert.assertEquals(e.getMessage(), expected.getMessage());
+        }
+    }
+
+    @Test
+    public void wrongParameterCountIsRejected() throws NoSuchMethodException {
+        Assert.assertThrows(DefinitionException.class, () -> MethodInvoker.of(method("none")));
+        Assert.assertThrows(DefinitionException.class, () -> MethodInvoker.of(method("three", String.class
+                , String.class, String.class)));
+    }
+
+    private static void assertSameAsReflection(String mode, Method method, Object arg0, Object arg1) throws Throwable {
+        Listener listener = new Listener("p-");
+        method.setAccessible(true);
+        Object[] args = method.getParameterCount() == 1 ? new Object[]{arg0} : new Object[]{arg0, arg1};
+
+        Object expected = method.invoke(listener, args);
+        Object actual = invoker(mode, method).invoke(listener, arg0, arg1);
+
+        Assert.assertEquals(actual, expected);
+    }
+
+    private static MethodInvoker invoker(String mode, Method method) throws Throwable {
+        if (mode.equals("of")) {
+            return MethodInvoker.of(method);
+        }
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (mode.equals("lambda")) {
+            return MethodInvokers.lambda(lookup, lookup.unreflect(method), isStatic);
+        }
+        return MethodInvokers.methodHandle(lookup.unreflect(method), isStatic);
+    }
+
+    private static Method method(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return Listener.class.getDeclaredMethod(name, parameterTypes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.kumuluz.ee.nats.common.util;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks on which threads the replies are run by the executor types and what happens when an executor is full.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ReplyExecutorsTest {
+
+    @Test
+    public void inlineRunsOnTheCaller() {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        ReplyExecutors.create("inline", ReplyExecutorType.INLINE, 0).execute(() -> thread.set(Thread.currentThread()));
+
+        Assert.assertSame(thread.get(), Thread.currentThread());
+    }
+
+    @Test
+    public void poolRunsOnItsThreads() throws Exception {
+        Executor executor = ReplyExecutors.create("orders", ReplyExecutorType.POOL, 2);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            thread.set(Thread.currentThread());
+            ran.countDown();
+        });
+
+        Assert.assertTrue(ran.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(thread.get().getName().startsWith("nats-reply-orders-"), thread.get().getName());
+        Assert.assertTrue(thread.get().isDaemon());
+        ((ExecutorService) executor).shutdown();
+    }
+
+    @Test
+    public void fullPoolRunsTheReplyOnTheCaller() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReplyExecutors.create("orders", ReplyExecutorType.POOL, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queuedRan = new AtomicInteger();
+        executor.execute(() -> await(release));
+        int capacity = executor.getQueue().remainingCapacity();
+        for (int i = 0; i < capacity; i++) {
+            executor.execute(queuedRan::incrementAndGet);
+        }
+
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        executor.execute(() -> thread.set(Thread.currentThread()));  // neither blocks nor rejects the NATS thread
+
+        Assert.assertSame(thread.get(), Thread.currentThread());
+        Assert.assertEquals(queuedRan.get(), 0);
+        release.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assert.assertEquals(queuedRan.get(), capacity, "The queued replies must be drained.");
+    }
+
+    @Test
+    public void virtualFallsBackToThePoolWithoutVirtualThreads() throws Exception {
+        if (ListenerExecutors.createVirtualThreadFactory("nats-reply-") != null) {
+            throw new SkipException("The JVM supports virtual threads.");
+        }
+
+        Executor executor = ReplyExecutors.create("orders", ReplyExecutorType.VIRTUAL, 4);
+
+        Assert.assertTrue(executor instanceof ThreadPoolExecutor);
+        Assert.assertEquals(((ThreadPoolExecutor) executor).getMaximumPoolSize()
+                , Runtime.getRuntime().availableProcessors(), "The virtual in-flight limit is not a pool size.");
+        ((ExecutorService) executor).shutdown();
+    }
+
+    @Test
+    public void fullVirtualExecutorRejectsTheReply() {
+        if (ListenerExecutors.createVirtualThreadFactory("nats-reply-") == null) {
+            throw new SkipException("The JVM does not support virtual threads.");
+        }
+        Executor executor = ReplyExecutors.create("orders", ReplyExecutorType.VIRTUAL, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        try {
+            for (int i = 0; i < 16; i++) {  // the queue holds 16 times the in-flight limit
+                executor.execute(() -> {
+                });
+            }
+
+            Assert.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+            }));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
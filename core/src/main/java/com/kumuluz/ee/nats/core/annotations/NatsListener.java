@@ -1,5 +1,7 @@
 package com.kumuluz.ee.nats.core.annotations;
 
+import com.kumuluz.ee.nats.common.util.ExecutorType;
+
 import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 import java.lang.annotation.*;
@@ -19,4 +21,12 @@ public @interface NatsListener {
     @Nonbinding String connection() default "";
 
     @Nonbinding String queue() default "";
+
+    @Nonbinding int concurrency() default 1;
+
+    @Nonbinding ExecutorType executor() default ExecutorType.DEFAULT;
+
+    @Nonbinding String deadLetterSubject() default "";
+
+    @Nonbinding String codec() default "";
 }
@@ -1,5 +1,8 @@
 package com.kumuluz.ee.nats.core.annotations;
 
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.common.util.ExecutorType;
+
 import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 import java.lang.annotation.*;
@@ -35,4 +38,61 @@ public @interface Subject {
      * @return Time to wait for the response.
      */
     @Nonbinding String responseTimeout() default "";
+
+    /**
+     * @return The number of threads processing the messages of the listener in parallel. Defaults to the value
+     * of the {@link NatsListener}.
+     */
+    @Nonbinding int concurrency() default 0;
+
+    /**
+     * @return The threads on which the listener is invoked. Defaults to the value of the {@link NatsListener}.
+     */
+    @Nonbinding ExecutorType executor() default ExecutorType.DEFAULT;
+
+    /**
+     * @return The subject to which the messages the listener could not process are republished. Defaults to the value
+     * of the {@link NatsListener}.
+     */
+    @Nonbinding String deadLetterSubject() default "";
+
+    /**
+     * @return Content type of the codec the payload is encoded with. Listeners use it when the message does not
+     * advertise its own codec. Defaults to the value of the {@link NatsListener} or JSON.
+     */
+    @Nonbinding String codec() default "";
+
+    /**
+     * @return Compression of the payloads. Defaults to the compression of the connection.
+     */
+    @Nonbinding CompressionType compression() default CompressionType.DEFAULT;
+
+    /**
+     * @return Minimal size of the compressed payloads in bytes. Defaults to the threshold of the connection.
+     */
+    @Nonbinding int compressionThreshold() default -1;
+
+    /**
+     * @return Maximum number of payloads of a void client method coalesced into a single batch message.
+     * 1 disables batching.
+     */
+    @Nonbinding int batchSize() default 1;
+
+    /**
+     * @return Maximum time a payload waits for the batch to fill up, in the {@link java.time.Duration} format.
+     * Defaults to 10 milliseconds.
+     */
+    @Nonbinding String linger() default "";
+
+    /**
+     * @return Number of replies a scatter-gather request waits for. 0 gathers all the replies within the gather
+     * timeout, 1 is a regular request.
+     */
+    @Nonbinding int maxReplies() default 1;
+
+    /**
+     * @return The longest time the replies of a scatter-gather request are gathered, in the
+     * {@link java.time.Duration} format. Defaults to the response timeout.
+     */
+    @Nonbinding String gatherTimeout() default "";
 }
@@ -1,5 +1,6 @@
 package com.kumuluz.ee.nats.core.cdi.client;
 
+import com.kumuluz.ee.nats.common.util.GeneratedClientLoader;
 import com.kumuluz.ee.nats.core.CoreExtension;
 import com.kumuluz.ee.nats.core.annotations.RegisterNatsClient;
 import com.kumuluz.ee.nats.core.util.InterfaceValidationUtil;
@@ -9,8 +10,10 @@ import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.*;
 import javax.inject.Singleton;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.logging.Logger;
 
 /**
  * @author Matej Bizjak
@@ -24,6 +27,8 @@ import java.util.Set;
 
 public class ClientInitializerExtension implements Extension {
 
+    private static final Logger LOG = Logger.getLogger(ClientInitializerExtension.class.getName());
+
     private final Set<AnnotatedType> classes;
 
     public ClientInitializerExtension() {
@@ -49,7 +54,13 @@ public class ClientInitializerExtension implements Extension {
 
         for (AnnotatedType anType : this.classes) {
             Class<? extends Annotation> scopeClass = resolveScope(anType.getJavaClass());
-            afterBeanDiscovery.addBean(new InvokerClientDelegateBean(anType.getJavaClass(), scopeClass));
+            Constructor<?> generatedClient = GeneratedClientLoader.findImplementation(anType.getJavaClass()
+                    , GeneratedClientLoader.CORE_SUFFIX);
+            if (generatedClient != null) {
+                LOG.info(String.format("Using generated implementation %s for NATS client %s."
+                        , generatedClient.getDeclaringClass().getName(), anType.getJavaClass().getName()));
+            }
+            afterBeanDiscovery.addBean(new InvokerClientDelegateBean(anType.getJavaClass(), scopeClass, generatedClient));
         }
     }
 
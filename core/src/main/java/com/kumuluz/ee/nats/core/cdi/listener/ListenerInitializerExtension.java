@@ -1,19 +1,32 @@
 package com.kumuluz.ee.nats.core.cdi.listener;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
 import com.kumuluz.ee.nats.common.connection.NatsConnection;
+import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
+import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
 import com.kumuluz.ee.nats.common.connection.config.SingleConnectionConfig;
 import com.kumuluz.ee.nats.common.exception.DefinitionException;
 import com.kumuluz.ee.nats.common.exception.InvocationException;
+import com.kumuluz.ee.nats.common.exception.NatsException;
 import com.kumuluz.ee.nats.common.exception.SerializationException;
 import com.kumuluz.ee.nats.common.util.AnnotatedInstance;
 import com.kumuluz.ee.nats.common.util.CollectionSerDes;
-import com.kumuluz.ee.nats.common.util.SerDes;
+import com.kumuluz.ee.nats.common.util.DeadLetterPublisher;
+import com.kumuluz.ee.nats.common.util.ExecutorType;
+import com.kumuluz.ee.nats.common.util.ListenerExecutors;
+import com.kumuluz.ee.nats.common.util.MessageBatches;
+import com.kumuluz.ee.nats.common.util.MethodInvoker;
 import com.kumuluz.ee.nats.core.CoreExtension;
 import com.kumuluz.ee.nats.core.annotations.NatsListener;
 import com.kumuluz.ee.nats.core.annotations.Subject;
 import io.nats.client.Connection;
 import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.impl.Headers;
 
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterDeploymentValidation;
@@ -21,10 +34,12 @@ import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.ProcessBean;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -66,6 +81,7 @@ public class ListenerInitializerExtension implements Extension {
             LOG.info(String.format("Found Core listener method %s in class %s.", inst.getMethod().getName(), inst.getMethod().getDeclaringClass()));
         }
 
+        GeneralConfig generalConfig = NatsConfigLoader.getInstance().getGeneralConfig();
         for (AnnotatedInstance<Subject, NatsListener> inst : INSTANCES) {
             Method method = inst.getMethod();
 
@@ -94,55 +110,117 @@ public class ListenerInitializerExtension implements Extension {
             if (queueName.isEmpty()) {
                 queueName = natsListenerAnnotation.queue();
             }
+            String deadLetterSubject = subjectAnnotation.deadLetterSubject().isEmpty()
+                    ? natsListenerAnnotation.deadLetterSubject() : subjectAnnotation.deadLetterSubject();
+            NatsCodec codec = NatsCodecs.resolve(subjectAnnotation.codec().isEmpty()
+                    ? natsListenerAnnotation.codec() : subjectAnnotation.codec(), method);
+            JavaType payloadType = CollectionSerDes.getCollectionParameterType(method);
+            codec.prepare(payloadType);
+            PayloadCompression compression = PayloadCompression.resolve(subjectAnnotation.compression()
+                    , subjectAnnotation.compressionThreshold(), connectionName, method);
 
             Class<?> methodReturnType = method.getReturnType();
             boolean isVoid = methodReturnType.equals(Void.class) || methodReturnType.equals(void.class);
 
-            Connection connection = NatsConnection.getConnection(connectionName);
+            Connection connection = NatsConnection.getNextConnection(connectionName);
             if (connection == null) {
                 LOG.severe(String.format("Cannot establish a NATS Core listener for method %s class %s and connection %s, because the connection was not established."
                         , method.getName(), method.getDeclaringClass().getName(), connectionName));
                 continue;
             }
 
+            int concurrency = subjectAnnotation.concurrency() > 0 ? subjectAnnotation.concurrency()
+                    : natsListenerAnnotation.concurrency();
+            ExecutorType executorType = subjectAnnotation.executor() != ExecutorType.DEFAULT ? subjectAnnotation.executor()
+                    : natsListenerAnnotation.executor();
+            if (executorType == ExecutorType.DEFAULT) {
+                executorType = generalConfig.getListenerExecutor();
+            }
+            ExecutorService executor = ListenerExecutors.newExecutor(method, executorType, concurrency
+                    , generalConfig.getListenerMaxInFlight());
+
             Object reference = beanManager.getReference(inst.getBean(), method.getDeclaringClass()
                     , beanManager.createCreationalContext(inst.getBean()));
-            Object[] args = new Object[method.getParameterCount()];
-
-            Dispatcher dispatcher = connection.createDispatcher(msg -> {
-                Object receivedMsg;
-                try {
-                    receivedMsg = SerDes.deserialize(msg.getData(), CollectionSerDes.getCollectionParameterType(method));
-                    args[0] = receivedMsg;
-                } catch (IOException e) {
-                    throw new SerializationException(String
-                            .format("Cannot deserialize the message as class %s for subject %s and connection %s."
-                                    , method.getParameterTypes()[0].getName(), msg.getSubject()
-                                    , msg.getConnection().getConnectedUrl()
-                            ), e);
-                }
+            MethodInvoker invoker = MethodInvoker.of(method);
 
+            BiConsumer<Message, Object> listener = (msg, receivedMsg) -> {
                 Object responseMsg;
                 try {
-                    responseMsg = method.invoke(reference, args);
-                } catch (IllegalAccessException | InvocationTargetException e) {
+                    responseMsg = invoker.invoke(reference, receivedMsg, null);
+                } catch (Throwable e) {
+                    deadLetter(connection, deadLetterSubject, msg, e);
                     throw new InvocationException(String
                             .format("Method %s could not be invoked for subject %s and connection %s."
-                                    , method.getName(), msg.getSubject(), msg.getConnection().getConnectedUrl()
+                                    , method.getName(), msg.getSubject(), connection.getConnectedUrl()
                             ), e);
                 }
 
                 if (!isVoid && msg.getReplyTo() != null && !msg.getReplyTo().isEmpty()) {
                     try {
-                        connection.publish(msg.getReplyTo(), SerDes.serialize(responseMsg));
-                    } catch (JsonProcessingException e) {
+                        byte[] data = codec.encode(responseMsg);
+                        Headers headers = NatsCodecs.advertise(null, codec);
+                        if (compression.applies(data)) {
+                            data = compression.compress(data);
+                            headers = compression.advertise(headers);
+                        }
+                        connection.publish(msg.getReplyTo(), headers, data);
+                    } catch (IOException e) {
                         throw new SerializationException(String
                                 .format("Cannot serialize the response message as object %s for subject %s and connection %s."
                                         , method.getReturnType().getName(), msg.getSubject()
-                                        , msg.getConnection().getConnectedUrl()
+                                        , connection.getConnectedUrl()
                                 ), e);
                     }
                 }
+            };
+
+            MessageHandler handler = msg -> {
+                Object receivedMsg;
+                try {
+                    receivedMsg = NatsCodecs.forMessage(msg, codec)
+                            .decode(PayloadCompression.decompress(msg), payloadType);
+                } catch (IOException e) {
+                    deadLetter(connection, deadLetterSubject, msg, e);
+                    throw new SerializationException(String
+                            .format("Cannot deserialize the message as class %s for subject %s and connection %s."
+                                    , method.getParameterTypes()[0].getName(), msg.getSubject()
+                                    , connection.getConnectedUrl()
+                            ), e);
+                }
+
+                if (executor == null) {
+                    listener.accept(msg, receivedMsg);
+                } else {
+                    executor.execute(() -> {
+                        try {
+                            listener.accept(msg, receivedMsg);
+                        } catch (NatsException e) {
+                            LOG.log(Level.SEVERE, e.getMessage(), e);
+                        }
+                    });
+                }
+            };
+
+            Dispatcher dispatcher = connection.createDispatcher(msg -> {
+                if (!MessageBatches.isBatch(msg)) {
+                    handler.onMessage(msg);
+                    return;
+                }
+                List<Message> elements;
+                try {
+                    elements = MessageBatches.unroll(msg);
+                } catch (IOException e) {
+                    deadLetter(connection, deadLetterSubject, msg, e);
+                    throw new SerializationException(String.format("Cannot unroll the batch message for subject %s and connection %s."
+                            , msg.getSubject(), connection.getConnectedUrl()), e);
+                }
+                for (Message element : elements) {  // a failed element does not affect the rest of the batch
+                    try {
+                        handler.onMessage(element);
+                    } catch (NatsException e) {
+                        LOG.log(Level.SEVERE, e.getMessage(), e);
+                    }
+                }
             });
 
             if (queueName != null && !queueName.isEmpty()) {
@@ -152,7 +230,27 @@ public class ListenerInitializerExtension implements Extension {
             }
 
             // disconnect
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> dispatcher.unsubscribe(subjectName)));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                dispatcher.unsubscribe(subjectName);
+                if (executor != null) {
+                    executor.shutdown();
+                }
+            }));
+        }
+    }
+
+    /**
+     * NATS Core does not redeliver messages, so the message is handed to the dead-letter subject on the first failure.
+     */
+    private static void deadLetter(Connection connection, String deadLetterSubject, Message msg, Throwable cause) {
+        if (deadLetterSubject.isEmpty()) {
+            return;
+        }
+        try {
+            DeadLetterPublisher.publish(connection, deadLetterSubject, msg, cause);
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, String.format("Cannot publish the message to the dead-letter subject %s for subject %s."
+                    , deadLetterSubject, msg.getSubject()), e);
         }
     }
 }
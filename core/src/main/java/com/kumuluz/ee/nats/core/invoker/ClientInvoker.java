@@ -1,24 +1,30 @@
 package com.kumuluz.ee.nats.core.invoker;
 
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
 import com.kumuluz.ee.nats.common.connection.NatsConnection;
-import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
-import com.kumuluz.ee.nats.common.connection.config.SingleConnectionConfig;
 import com.kumuluz.ee.nats.common.exception.SerializationException;
-import com.kumuluz.ee.nats.common.util.CollectionSerDes;
-import com.kumuluz.ee.nats.common.util.SerDes;
+import com.kumuluz.ee.nats.common.reactive.FuturePublisher;
 import com.kumuluz.ee.nats.core.annotations.RegisterNatsClient;
-import com.kumuluz.ee.nats.core.annotations.Subject;
 import io.nats.client.Connection;
 import io.nats.client.Message;
+import io.nats.client.impl.Headers;
 import io.nats.client.impl.NatsMessage;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.lang.reflect.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.stream.StreamSupport;
 
 /**
  * Invokes NATS Client for methods of interfaces annotated with {@link RegisterNatsClient}.
@@ -29,113 +35,131 @@ import java.util.logging.Logger;
 public class ClientInvoker implements InvocationHandler {
 
     private static final Logger LOG = Logger.getLogger(ClientInvoker.class.getName());
+    private static final Duration GATHER_TIMEOUT_MARGIN = Duration.ofSeconds(1);
 
+    /**
+     * The plan of a method is created on its first invocation, so an invalid method does not fail the injection.
+     */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        String connectionName = getAnnotatedConnection(method);
-        String subjectName = getAnnotatedSubject(method, args);
-        Object payload = getPayload(method, args);
-        Class<?> returnType = method.getReturnType();
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass.equals(Object.class)) {
+            return method.invoke(this, args);
+        }
+        if (declaringClass.equals(Closeable.class) || declaringClass.equals(AutoCloseable.class)) {
+            return null;
+        }
 
-        Connection connection = NatsConnection.getConnection(connectionName);
+        InvocationPlan plan = InvocationPlan.of(method);
+        return execute(plan, plan.getSubject(args), plan.getPayload(args));
+    }
+
+    /**
+     * Sends the payload as described by the invocation plan. Shared by the proxy and the generated NATS Client
+     * implementations.
+     *
+     * @param plan    invocation plan of the client method
+     * @param subject subject to send the message to
+     * @param payload message payload
+     * @return response, future of the response, gathered replies or null if no response is expected
+     * @throws Exception if the message cannot be serialized, or the response is not received
+     */
+    public static Object execute(InvocationPlan plan, String subject, Object payload) throws Exception {
+        Method method = plan.getMethod();
+        Connection connection = NatsConnection.getConnection(plan.getConnectionName(), subject);
         if (connection == null) {
             LOG.severe(String.format("Cannot invoke NATS Client method %s in class %s for connection %s, because the connection was not established."
-                    , method.getName(), method.getDeclaringClass().getName(), connectionName));
+                    , method.getName(), method.getDeclaringClass().getName(), plan.getConnectionName()));
             return null;
         }
 
-        NatsMessage.Builder builder = NatsMessage.builder();
-        builder.data(SerDes.serialize(payload));
-        builder.subject(subjectName);
-        Message message = builder.build();
-
-        if (returnType.equals(Void.class) || returnType.equals(void.class)) {  // doesn't expect a response
-            connection.publish(message);
-        } else if (returnType.equals(CompletableFuture.class)) {  // return CompletableFuture - for async response
-            return connection.request(message)
-                    .thenApplyAsync(response -> {
-                        if (response != null) {
-                            try {
-                                return SerDes.deserialize(response.getData(), CollectionSerDes.getCollectionReturnType(method));
-                            } catch (IOException e) {
-                                throw new SerializationException(String
-                                        .format("Cannot deserialize the message as class %s for subject %s and connection %s."
-                                                , method.getParameterTypes()[0].getName(), message.getSubject()
-                                                , connection.getConnectedUrl()
-                                        ), e);
-                            }
-                        } else {
-                            return null;
-                        }
-                    });
-        } else {  // wait for response
-            CompletableFuture<Message> incoming = connection.request(message);
-            Message response = incoming.get(getAnnotatedResponseTimeout(method).get(ChronoUnit.SECONDS), TimeUnit.SECONDS);
-            if (response != null) {
-                return SerDes.deserialize(response.getData(), CollectionSerDes.getCollectionReturnType(method));
-            }
+        byte[] data = plan.getCodec().encode(payload);
+        if (plan.getBatchSize() > 1) {  // compressed as a whole batch
+            PublishBatcher.of(plan).add(connection, subject, data);
+            return null;
         }
-        return null;
-    }
-
-    private String getAnnotatedConnection(Method method) {
-        String connectionName;
-
-        // declaring class annotation
-        RegisterNatsClient registerNatsClientAnnotation = method.getDeclaringClass().getAnnotation(RegisterNatsClient.class);
-        connectionName = registerNatsClientAnnotation.connection();
-
-        // method annotation variables
-        Subject subjectAnnotation = method.getAnnotation(Subject.class);
-        if (subjectAnnotation != null && !subjectAnnotation.connection().isEmpty()) {
-            connectionName = subjectAnnotation.connection();
+        Headers headers = NatsCodecs.advertise(null, plan.getCodec());
+        if (plan.getCompression().applies(data)) {
+            data = plan.getCompression().compress(data);
+            headers = plan.getCompression().advertise(headers);
         }
+        NatsMessage.Builder builder = NatsMessage.builder();
+        builder.data(data);
+        builder.subject(subject);
+        builder.headers(headers);
+        Message message = builder.build();
 
-        if (connectionName.isEmpty()) {
-            connectionName = SingleConnectionConfig.DEFAULT_NAME;
+        switch (plan.getReturnMode()) {
+            case PUBLISH:  // doesn't expect a response
+                connection.publish(message);
+                return null;
+            case REQUEST_ASYNC:  // return CompletableFuture - for async response
+                return requestAsync(plan, connection, subject, message);
+            case REQUEST_PUBLISHER:  // emit the response on demand
+                return new FuturePublisher<>(() -> requestAsync(plan, connection, subject, message));
+            case GATHER_PUBLISHER:  // emit the replies on demand
+                Headers gatherHeaders = headers;
+                byte[] gatherData = data;
+                return new GatherPublisher(() -> ReplyGatherer.of(connection).request(subject, gatherHeaders, gatherData
+                        , plan.getMaxReplies(), plan.getGatherTimeout()), reply -> decode(plan, connection, subject, reply));
+            case GATHER_SYNC:  // wait for all the replies
+                ReplyGatherer.Gather gather = ReplyGatherer.of(connection).request(subject, headers, data
+                        , plan.getMaxReplies(), plan.getGatherTimeout());
+                // the gather is finished by the timeout, the margin only guards against a stalled scheduler
+                List<Message> gathered = gather.getReplies()
+                        .get(plan.getGatherTimeout().plus(GATHER_TIMEOUT_MARGIN).toMillis(), TimeUnit.MILLISECONDS);
+                return decodeAll(plan, connection, subject, gathered);
+            case GATHER_ASYNC:  // return CompletableFuture - for all the replies
+                return ReplyGatherer.of(connection).request(subject, headers, data, plan.getMaxReplies(), plan.getGatherTimeout())
+                        .getReplies()
+                        .thenApplyAsync(replies -> decodeAll(plan, connection, subject, replies), plan.getReplyExecutor());
+            case GATHER_STREAM:  // stream the replies as they arrive
+                Iterator<Message> replies = ReplyGatherer.of(connection).request(subject, headers, data
+                        , plan.getMaxReplies(), plan.getGatherTimeout()).iterator();
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(replies, Spliterator.ORDERED), false)
+                        .map(reply -> decode(plan, connection, subject, reply));
+            default:  // wait for response
+                CompletableFuture<Message> incoming = connection.request(message);
+                Message response = incoming.get(plan.getResponseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                if (response != null) {
+                    return NatsCodecs.forMessage(response, plan.getCodec())
+                            .decode(PayloadCompression.decompress(response), plan.getResponseType());
+                }
+                return null;
         }
-
-        return connectionName;
     }
 
-    private String getAnnotatedSubject(Method method, Object[] args) {
-        String subject = null;
-        // method annotation
-        Subject subjectAnnotation = method.getAnnotation(Subject.class);
-        if (subjectAnnotation != null) {
-            subject = subjectAnnotation.value();
-        }
-        // parameter annotation - overrides the method annotation value if both exists
-        Parameter[] parameters = method.getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            if (parameters[i].isAnnotationPresent(Subject.class)) {
-                return (String) args[i];
-            }
-        }
-        return subject;
+    /**
+     * The reply is deserialized on the reply executor of the connection; the request fails with a
+     * {@link java.util.concurrent.TimeoutException} after the response timeout.
+     */
+    private static CompletableFuture<Object> requestAsync(InvocationPlan plan, Connection connection, String subject
+            , Message message) {
+        return connection.request(message)
+                .orTimeout(plan.getResponseTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .thenApplyAsync(response -> response != null ? decode(plan, connection, subject, response) : null
+                        , plan.getReplyExecutor());
     }
 
-    private Duration getAnnotatedResponseTimeout(Method method) {
-        Duration responseTimeout = null;
-
-        Subject subjectAnnotation = method.getAnnotation(Subject.class);
-        if (subjectAnnotation != null && !subjectAnnotation.responseTimeout().isEmpty()) {
-            responseTimeout = Duration.parse(subjectAnnotation.responseTimeout());
-        }
-
-        if (responseTimeout == null) {
-            responseTimeout = NatsConfigLoader.getInstance().getGeneralConfig().getResponseTimeout();
+    private static Object decode(InvocationPlan plan, Connection connection, String subject, Message response) {
+        try {
+            return NatsCodecs.forMessage(response, plan.getCodec())
+                    .decode(PayloadCompression.decompress(response), plan.getResponseType());
+        } catch (IOException e) {
+            throw new SerializationException(String
+                    .format("Cannot deserialize the message as class %s for subject %s and connection %s."
+                            , plan.getResponseType().getRawClass().getName(), subject
+                            , connection.getConnectedUrl()
+                    ), e);
         }
-        return responseTimeout;
     }
 
-    private Object getPayload(Method method, Object[] args) {
-        int index = 0;
-        for (int i = 0; i < method.getParameters().length; i++) {
-            if (!method.getParameters()[i].isAnnotationPresent(Subject.class)) {
-                index = i;
-            }
+    private static List<Object> decodeAll(InvocationPlan plan, Connection connection, String subject
+            , List<Message> replies) {
+        List<Object> decoded = new ArrayList<>(replies.size());
+        for (Message reply : replies) {
+            decoded.add(decode(plan, connection, subject, reply));
         }
-        return args[index];
+        return decoded;
     }
 }
@@ -0,0 +1,126 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import io.nats.client.Message;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cold {@link Flow.Publisher} of the replies of a scatter-gather request. The request is sent for every subscriber,
+ * once it requests the first reply; the replies are buffered and emitted as the subscriber requests them.
+ *
+ * @author Matej Bizjak
+ */
+
+final class GatherPublisher implements Flow.Publisher<Object> {
+
+    private final Supplier<ReplyGatherer.Gather> request;
+    private final Function<Message, Object> decoder;
+
+    GatherPublisher(Supplier<ReplyGatherer.Gather> request, Function<Message, Object> decoder) {
+        this.request = request;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+        subscriber.onSubscribe(new GatherSubscription(subscriber));
+    }
+
+    private class GatherSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Object> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile ReplyGatherer.Gather gather;
+        private volatile boolean done;
+
+        private GatherSubscription(Flow.Subscriber<? super Object> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) {
+                return;
+            }
+            if (n <= 0) {  // rule 3.9 of the Reactive Streams specification
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Non-positive request " + n + "."));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+
+            if (started.compareAndSet(false, true)) {
+                ReplyGatherer.Gather requested;
+                try {
+                    requested = request.get();
+                } catch (RuntimeException e) {
+                    done = true;
+                    subscriber.onError(e);
+                    return;
+                }
+                gather = requested;
+                requested.listen(this::drain);
+                if (done) {  // cancelled while the request was sent
+                    requested.cancel();
+                    return;
+                }
+            }
+            drain();
+        }
+
+        /**
+         * Stops the gathering, so the request does not hold its inbox until the gather timeout.
+         */
+        @Override
+        public void cancel() {
+            done = true;
+            ReplyGatherer.Gather current = gather;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        /**
+         * Emits the buffered replies up to the demand; serialized, so that only one thread signals the subscriber.
+         */
+        private void drain() {
+            if (gather == null || wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!done) {
+                    Message message = gather.peek();
+                    if (message == null) {
+                        break;
+                    }
+                    if (ReplyGatherer.Gather.isEnd(message)) {
+                        done = true;
+                        subscriber.onComplete();
+                        break;
+                    }
+                    if (demand.get() == 0) {
+                        break;
+                    }
+                    message = gather.poll();
+                    Object reply;
+                    try {
+                        reply = decoder.apply(message);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(reply);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
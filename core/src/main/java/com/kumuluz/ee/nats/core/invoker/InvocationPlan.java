@@ -0,0 +1,350 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+import com.kumuluz.ee.nats.common.connection.config.SingleConnectionConfig;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.common.util.CollectionSerDes;
+import com.kumuluz.ee.nats.common.util.ReplyExecutors;
+import com.kumuluz.ee.nats.common.util.SerDes;
+import com.kumuluz.ee.nats.core.annotations.RegisterNatsClient;
+import com.kumuluz.ee.nats.core.annotations.Subject;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, precomputed description of how a NATS Client method is invoked.
+ * Resolved once per {@link Method}, so that the invocation itself does not need any reflection or parsing.
+ *
+ * @author Matej Bizjak
+ */
+
+public final class InvocationPlan {
+
+    private static final Map<Method, InvocationPlan> PLANS = new ConcurrentHashMap<>();
+    private static final Duration DEFAULT_LINGER = Duration.ofMillis(10);
+
+    public enum ReturnMode {
+        /**
+         * Publish only, does not expect a response.
+         */
+        PUBLISH,
+        /**
+         * Request with an asynchronous response ({@link CompletableFuture}).
+         */
+        REQUEST_ASYNC,
+        /**
+         * Request which waits for the response.
+         */
+        REQUEST_SYNC,
+        /**
+         * Request with the response emitted by a {@link Flow.Publisher}, once the subscriber requests it.
+         */
+        REQUEST_PUBLISHER,
+        /**
+         * Scatter-gather request which waits for all the replies ({@link List}).
+         */
+        GATHER_SYNC,
+        /**
+         * Scatter-gather request with an asynchronous list of replies ({@link CompletableFuture} of a {@link List}).
+         */
+        GATHER_ASYNC,
+        /**
+         * Scatter-gather request with the replies streamed as they arrive ({@link Stream}).
+         */
+        GATHER_STREAM,
+        /**
+         * Scatter-gather request with the replies emitted by a {@link Flow.Publisher} as the subscriber requests them.
+         */
+        GATHER_PUBLISHER
+    }
+
+    private final Method method;
+    private final String connectionName;
+    private final String subject;
+    private final int subjectIndex;
+    private final int payloadIndex;
+    private final JavaType responseType;
+    private final Duration responseTimeout;
+    private final ReturnMode returnMode;
+    private final NatsCodec codec;
+    private final PayloadCompression compression;
+    private final int batchSize;
+    private final Duration linger;
+    private final int maxReplies;
+    private final Duration gatherTimeout;
+    private final Executor replyExecutor;
+
+    private InvocationPlan(Method method) {
+        this.method = method;
+        this.connectionName = resolveConnection(method);
+
+        Subject subjectAnnotation = method.getAnnotation(Subject.class);
+        this.subject = subjectAnnotation != null ? subjectAnnotation.value() : null;
+
+        // parameter annotation - overrides the method annotation value if both exists
+        int subjectIndex = -1;
+        int payloadIndex = 0;
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(Subject.class)) {
+                if (subjectIndex < 0) {
+                    subjectIndex = i;
+                }
+            } else {
+                payloadIndex = i;
+            }
+        }
+        this.subjectIndex = subjectIndex;
+        this.payloadIndex = payloadIndex;
+
+        Class<?> returnType = method.getReturnType();
+        this.maxReplies = subjectAnnotation != null ? subjectAnnotation.maxReplies() : 1;
+        if (returnType.equals(Void.class) || returnType.equals(void.class)) {
+            this.returnMode = ReturnMode.PUBLISH;
+            this.responseType = null;
+        } else if (returnType.equals(Flow.Publisher.class)) {
+            this.returnMode = maxReplies != 1 ? ReturnMode.GATHER_PUBLISHER : ReturnMode.REQUEST_PUBLISHER;
+            this.responseType = SerDes.getTypeFactory().constructType(getGatherElementType(method));
+        } else if (maxReplies != 1 || returnType.equals(Stream.class)) {
+            this.returnMode = resolveGatherMode(method);
+            this.responseType = SerDes.getTypeFactory().constructType(getGatherElementType(method));
+        } else {
+            this.returnMode = returnType.equals(CompletableFuture.class) ? ReturnMode.REQUEST_ASYNC : ReturnMode.REQUEST_SYNC;
+            this.responseType = CollectionSerDes.getCollectionReturnType(method);
+        }
+        this.responseTimeout = resolveResponseTimeout(method, subjectAnnotation);
+        this.gatherTimeout = resolveGatherTimeout(method, subjectAnnotation, responseTimeout);
+        this.replyExecutor = ReplyExecutors.get(connectionName);
+        if (maxReplies < 0) {
+            throw new DefinitionException(String.format("Max replies must not be negative - at method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        this.codec = NatsCodecs.resolve(subjectAnnotation != null ? subjectAnnotation.codec() : "", method);
+        if (responseType != null) {
+            codec.prepare(responseType);
+        }
+        this.compression = subjectAnnotation != null ? PayloadCompression.resolve(subjectAnnotation.compression()
+                , subjectAnnotation.compressionThreshold(), connectionName, method)
+                : PayloadCompression.resolve(CompressionType.DEFAULT, -1, connectionName, method);
+        this.batchSize = subjectAnnotation != null ? subjectAnnotation.batchSize() : 1;
+        this.linger = resolveLinger(method, subjectAnnotation);
+        if (batchSize > 1 && returnMode != ReturnMode.PUBLISH) {
+            throw new DefinitionException(String.format("Batching is only supported for void methods - at method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        if (batchSize > 1 && codec != NatsCodecs.getDefault()) {
+            throw new DefinitionException(String.format("Batching is only supported with the JSON codec - at method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+    }
+
+    /**
+     * Returns the plan for the given method, creating it on the first call.
+     *
+     * @param method NATS Client method
+     * @return the invocation plan
+     */
+    public static InvocationPlan of(Method method) {
+        return PLANS.computeIfAbsent(method, InvocationPlan::new);
+    }
+
+    /**
+     * Returns the plan for the method with the given name and parameter types, creating it on the first call.
+     * Used by the generated NATS Client implementations.
+     *
+     * @param aClass         interface annotated with {@link RegisterNatsClient}
+     * @param name           method name
+     * @param parameterTypes method parameter types
+     * @return the invocation plan
+     */
+    public static InvocationPlan of(Class<?> aClass, String name, Class<?>... parameterTypes) {
+        try {
+            return of(aClass.getMethod(name, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            throw new DefinitionException(String.format("NATS client's method %s in class %s does not exist."
+                    , name, aClass.getName()), e);
+        }
+    }
+
+    private static String resolveConnection(Method method) {
+        String connectionName = "";
+
+        // declaring class annotation
+        RegisterNatsClient registerNatsClientAnnotation = method.getDeclaringClass().getAnnotation(RegisterNatsClient.class);
+        if (registerNatsClientAnnotation != null) {
+            connectionName = registerNatsClientAnnotation.connection();
+        }
+
+        // method annotation variables
+        Subject subjectAnnotation = method.getAnnotation(Subject.class);
+        if (subjectAnnotation != null && !subjectAnnotation.connection().isEmpty()) {
+            connectionName = subjectAnnotation.connection();
+        }
+
+        if (connectionName.isEmpty()) {
+            connectionName = SingleConnectionConfig.DEFAULT_NAME;
+        }
+
+        return connectionName;
+    }
+
+    private static Duration resolveResponseTimeout(Method method, Subject subjectAnnotation) {
+        if (subjectAnnotation != null && !subjectAnnotation.responseTimeout().isEmpty()) {
+            try {
+                return Duration.parse(subjectAnnotation.responseTimeout());
+            } catch (DateTimeParseException e) {
+                throw new DefinitionException(String.format("Invalid response timeout %s at method %s in class %s."
+                        , subjectAnnotation.responseTimeout(), method.getName(), method.getDeclaringClass().getName()), e);
+            }
+        }
+        return NatsConfigLoader.getInstance().getGeneralConfig().getResponseTimeout();
+    }
+
+    private static ReturnMode resolveGatherMode(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType.equals(List.class)) {
+            return ReturnMode.GATHER_SYNC;
+        } else if (returnType.equals(Stream.class)) {
+            return ReturnMode.GATHER_STREAM;
+        } else if (returnType.equals(CompletableFuture.class) && method.getGenericReturnType() instanceof ParameterizedType
+                && getRawType(((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0]) == List.class) {
+            return ReturnMode.GATHER_ASYNC;
+        }
+        throw new DefinitionException(String.format("Scatter-gather method %s in class %s must return List<T>, Stream<T>, Flow.Publisher<T> or CompletableFuture<List<T>>."
+                , method.getName(), method.getDeclaringClass().getName()));
+    }
+
+    /**
+     * @return T of the List&lt;T&gt;, Stream&lt;T&gt;, Flow.Publisher&lt;T&gt; or CompletableFuture&lt;List&lt;T&gt;&gt; return type
+     */
+    private static Type getGatherElementType(Method method) {
+        Type type = method.getGenericReturnType();
+        if (method.getReturnType().equals(CompletableFuture.class)) {
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+    }
+
+    private static Class<?> getRawType(Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return type instanceof Class<?> ? (Class<?>) type : null;
+    }
+
+    private static Duration resolveGatherTimeout(Method method, Subject subjectAnnotation, Duration responseTimeout) {
+        if (subjectAnnotation == null || subjectAnnotation.gatherTimeout().isEmpty()) {
+            return responseTimeout;
+        }
+        try {
+            return Duration.parse(subjectAnnotation.gatherTimeout());
+        } catch (DateTimeParseException e) {
+            throw new DefinitionException(String.format("Invalid gather timeout %s at method %s in class %s."
+                    , subjectAnnotation.gatherTimeout(), method.getName(), method.getDeclaringClass().getName()), e);
+        }
+    }
+
+    private static Duration resolveLinger(Method method, Subject subjectAnnotation) {
+        if (subjectAnnotation == null || subjectAnnotation.linger().isEmpty()) {
+            return DEFAULT_LINGER;
+        }
+        try {
+            return Duration.parse(subjectAnnotation.linger());
+        } catch (DateTimeParseException e) {
+            throw new DefinitionException(String.format("Invalid linger %s at method %s in class %s."
+                    , subjectAnnotation.linger(), method.getName(), method.getDeclaringClass().getName()), e);
+        }
+    }
+
+    /**
+     * @return the subject from the method annotation
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getSubject(Object[] args) {
+        if (subjectIndex >= 0) {
+            return (String) args[subjectIndex];
+        }
+        return subject;
+    }
+
+    public Object getPayload(Object[] args) {
+        return args[payloadIndex];
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public JavaType getResponseType() {
+        return responseType;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * @return executor of the asynchronous replies of the connection
+     */
+    public Executor getReplyExecutor() {
+        return replyExecutor;
+    }
+
+    public ReturnMode getReturnMode() {
+        return returnMode;
+    }
+
+    public NatsCodec getCodec() {
+        return codec;
+    }
+
+    public PayloadCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return maximum number of payloads in a batch message, 1 if batching is disabled
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Duration getLinger() {
+        return linger;
+    }
+
+    /**
+     * @return number of replies a scatter-gather request waits for, 0 for no limit
+     */
+    public int getMaxReplies() {
+        return maxReplies;
+    }
+
+    public Duration getGatherTimeout() {
+        return gatherTimeout;
+    }
+}
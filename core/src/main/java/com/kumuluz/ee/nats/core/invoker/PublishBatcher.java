@@ -0,0 +1,149 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.connection.NatsConnection;
+import com.kumuluz.ee.nats.common.util.MessageBatches;
+import io.nats.client.Connection;
+import io.nats.client.impl.Headers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the payloads of a void NATS Client method into batch messages, per subject. A batch is published when it
+ * reaches the batch size, when the next payload would exceed the max payload of the connection, or when its first
+ * payload waited for the linger time. The batches of a subject are drained and published under the same lock, so they
+ * are published in order.
+ *
+ * @author Matej Bizjak
+ */
+
+final class PublishBatcher {
+
+    private static final Logger LOG = Logger.getLogger(PublishBatcher.class.getName());
+
+    private static final Map<InvocationPlan, PublishBatcher> BATCHERS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "nats-publish-linger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // publish the pending batches before the connections are drained and closed
+        NatsConnection.addDrainListener(() -> BATCHERS.values().forEach(PublishBatcher::flushAll));
+    }
+
+    private final InvocationPlan plan;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final int headersLength;
+
+    private PublishBatcher(InvocationPlan plan) {
+        this.plan = plan;
+        // the headers count towards the max payload, reserve the longest ones
+        this.headersLength = headers(plan.getBatchSize(), plan.getCompression() != PayloadCompression.NONE)
+                .serializedLength();
+    }
+
+    static PublishBatcher of(InvocationPlan plan) {
+        return BATCHERS.computeIfAbsent(plan, PublishBatcher::new);
+    }
+
+    /**
+     * @param connection connection to publish the batch with
+     * @param subject    subject of the message
+     * @param data       encoded payload
+     * @throws IOException if a full batch cannot be compressed
+     */
+    void add(Connection connection, String subject, byte[] data) throws IOException {
+        batches.computeIfAbsent(subject, Batch::new).add(connection, data);
+    }
+
+    private void flushAll() {
+        batches.values().forEach(Batch::flush);
+    }
+
+    private Headers headers(int count, boolean compressed) {
+        Headers headers = new Headers().put(MessageBatches.BATCH_HEADER, String.valueOf(count));
+        return compressed ? plan.getCompression().advertise(headers) : headers;
+    }
+
+    private class Batch {
+
+        private final String subject;
+        private List<byte[]> elements = new ArrayList<>();
+        private long length;
+        private ScheduledFuture<?> lingerFlush;
+
+        private Batch(String subject) {
+            this.subject = subject;
+        }
+
+        /**
+         * Publishes the pending elements first if the payload would not fit next to them, and the batch after the
+         * payload if it is full.
+         */
+        private synchronized void add(Connection connection, byte[] data) throws IOException {
+            if (!elements.isEmpty() && MessageBatches.frameLength(length + data.length, elements.size() + 1)
+                    > connection.getMaxPayload() - headersLength) {
+                publish(connection);
+            }
+            elements.add(data);
+            length += data.length;
+            if (elements.size() >= plan.getBatchSize()) {
+                publish(connection);
+            } else if (elements.size() == 1) {
+                lingerFlush = SCHEDULER.schedule(this::flush, plan.getLinger().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Publishes the pending elements with the current connection of the client.
+         */
+        private synchronized void flush() {
+            if (elements.isEmpty()) {
+                return;
+            }
+            int count = elements.size();
+            try {
+                Connection connection = NatsConnection.getConnection(plan.getConnectionName(), subject);
+                if (connection == null) {
+                    throw new IOException(String.format("Connection %s is not established.", plan.getConnectionName()));
+                }
+                publish(connection);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.SEVERE, String.format("Cannot publish a batch of %d messages for subject %s."
+                        , count, subject), e);
+            }
+        }
+
+        /**
+         * Drains the pending elements and publishes them, the caller holds the lock of the batch.
+         */
+        private void publish(Connection connection) throws IOException {
+            if (lingerFlush != null) {
+                lingerFlush.cancel(false);
+                lingerFlush = null;
+            }
+            List<byte[]> drained = elements;
+            elements = new ArrayList<>(plan.getBatchSize());
+            length = 0;
+
+            byte[] data = MessageBatches.frame(drained);
+            boolean compressed = plan.getCompression().applies(data);
+            if (compressed) {
+                data = plan.getCompression().compress(data);
+            }
+            connection.publish(subject, headers(drained.size(), compressed), data);
+        }
+    }
+}
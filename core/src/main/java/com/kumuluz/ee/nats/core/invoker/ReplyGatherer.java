@@ -0,0 +1,254 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import com.kumuluz.ee.nats.common.connection.NatsConnection;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scatter-gather requests of a connection. All requests share one wildcard inbox subscription; the replies are routed
+ * to the request by the last token of the inbox subject and gathered until the max replies are received or the gather
+ * timeout expires. The gatherer of a connection is discarded when the connection closes.
+ *
+ * @author Matej Bizjak
+ */
+
+final class ReplyGatherer {
+
+    private static final Map<Connection, ReplyGatherer> GATHERERS = new ConcurrentHashMap<>();
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "nats-gather-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SCHEDULER.setRemoveOnCancelPolicy(true);  // the timeouts of the finished gathers are not kept until they expire
+        NatsConnection.addCloseListener(GATHERERS::remove);
+    }
+
+    private final Connection connection;
+    private final String inboxPrefix;
+    private final Map<String, Gather> gathers = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+
+    private ReplyGatherer(Connection connection) {
+        this.connection = connection;
+        this.inboxPrefix = connection.createInbox() + ".";
+        Dispatcher dispatcher = connection.createDispatcher(this::onReply);
+        dispatcher.subscribe(inboxPrefix + "*");
+    }
+
+    static ReplyGatherer of(Connection connection) {
+        return GATHERERS.computeIfAbsent(connection, ReplyGatherer::new);
+    }
+
+    /**
+     * Publishes the request and starts gathering its replies.
+     *
+     * @param subject    subject of the request
+     * @param headers    headers of the request, may be null
+     * @param data       encoded payload
+     * @param maxReplies number of replies after which the gathering stops, 0 for no limit
+     * @param timeout    the longest time the replies are gathered
+     * @return the gathered replies
+     */
+    Gather request(String subject, Headers headers, byte[] data, int maxReplies, Duration timeout) {
+        String token = Long.toString(tokens.incrementAndGet(), 36);
+        Gather gather = new Gather(maxReplies, () -> finish(token));
+        gathers.put(token, gather);
+        gather.timeout = SCHEDULER.schedule(() -> finish(token), timeout.toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            connection.publish(NatsMessage.builder()
+                    .subject(subject)
+                    .replyTo(inboxPrefix + token)
+                    .headers(headers)
+                    .data(data)
+                    .build());
+        } catch (RuntimeException e) {
+            finish(token);
+            throw e;
+        }
+        return gather;
+    }
+
+    private void onReply(Message msg) {
+        String token = msg.getSubject().substring(inboxPrefix.length());
+        Gather gather = gathers.get(token);
+        if (gather == null) {  // late reply
+            return;
+        }
+        if (msg.isStatusMessage() || gather.add(msg)) {  // no responders or enough replies
+            finish(token);
+        }
+    }
+
+    private void finish(String token) {
+        Gather gather = gathers.remove(token);
+        if (gather != null) {
+            gather.finish();
+        }
+    }
+
+    /**
+     * Replies of one request, available as a future of the whole list or, in the order of arrival, as a blocking
+     * iterator or through {@link #peek()} and {@link #poll()}. A gather has a single consumer, which reads the replies
+     * from the same buffer the future is completed with.
+     */
+    static final class Gather {
+
+        private static final Message END = NatsMessage.builder().subject("END").build();
+
+        private final int maxReplies;
+        private final Runnable canceller;
+        private final List<Message> replies = new ArrayList<>();
+        private final CompletableFuture<List<Message>> done = new CompletableFuture<>();
+        private int next;  // index of the next reply of the consumer
+        private boolean finished;
+        private volatile Runnable listener;
+        private volatile ScheduledFuture<?> timeout;
+
+        private Gather(int maxReplies, Runnable canceller) {
+            this.maxReplies = maxReplies;
+            this.canceller = canceller;
+        }
+
+        /**
+         * @return true if the max replies were received
+         */
+        private boolean add(Message msg) {
+            boolean full;
+            synchronized (this) {
+                if (finished) {
+                    return false;
+                }
+                replies.add(msg);
+                full = maxReplies > 0 && replies.size() >= maxReplies;
+                notifyAll();
+            }
+            signal();
+            return full;
+        }
+
+        private void finish() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                notifyAll();
+            }
+            ScheduledFuture<?> current = timeout;
+            if (current != null) {
+                current.cancel(false);
+            }
+            done.complete(Collections.unmodifiableList(replies));  // no longer modified
+            signal();
+        }
+
+        /**
+         * Stops the gathering; the replies received so far remain available.
+         */
+        void cancel() {
+            canceller.run();
+        }
+
+        private void signal() {
+            Runnable current = listener;
+            if (current != null) {
+                current.run();
+            }
+        }
+
+        /**
+         * @param listener notified after every reply and when the gathering stops
+         */
+        void listen(Runnable listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @return the next reply, {@link #isEnd(Message) the end} or null if no reply is available yet
+         */
+        synchronized Message peek() {
+            if (next < replies.size()) {
+                return replies.get(next);
+            }
+            return finished ? END : null;
+        }
+
+        /**
+         * Moves to the next reply; the end is never passed.
+         */
+        synchronized Message poll() {
+            Message message = peek();
+            if (message != null && message != END) {
+                next++;
+            }
+            return message;
+        }
+
+        static boolean isEnd(Message message) {
+            return message == END;
+        }
+
+        /**
+         * @return future completed with all the gathered replies
+         */
+        CompletableFuture<List<Message>> getReplies() {
+            return done;
+        }
+
+        /**
+         * @return iterator which blocks until the next reply arrives or the gathering stops
+         */
+        Iterator<Message> iterator() {
+            return new Iterator<Message>() {
+                private Message next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null) {
+                        synchronized (Gather.this) {
+                            try {
+                                while ((next = poll()) == null) {
+                                    Gather.this.wait();
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                next = END;
+                            }
+                        }
+                    }
+                    return next != END;  // stays at the end for the later calls
+                }
+
+                @Override
+                public Message next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Message message = next;
+                    next = null;
+                    return message;
+                }
+            };
+        }
+    }
+}
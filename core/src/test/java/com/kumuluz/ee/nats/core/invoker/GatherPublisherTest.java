@@ -0,0 +1,166 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the demand and the cancellation of the gathered replies publisher, against a connection stub whose replies
+ * are sent by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class GatherPublisherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Records the signals of the publisher.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Object> {
+        private final List<Object> items = Collections.synchronizedList(new ArrayList<>());
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Object item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void requestIsSentOnTheFirstDemand() {
+        StubConnection stub = new StubConnection();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 0, null));
+
+        Assert.assertEquals(stub.published(), 0);
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(1);
+        Assert.assertEquals(stub.published(), 1);
+    }
+
+    @Test
+    public void repliesAreEmittedUpToTheDemand() throws Exception {
+        StubConnection stub = new StubConnection();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 3, null));
+        subscriber.subscription.request(1);
+
+        stub.reply(0, "a");
+        stub.reply(0, "b");
+        stub.reply(0, "c");  // the last reply finishes the gather
+
+        Assert.assertEquals(subscriber.items, Collections.singletonList("a"));
+        Assert.assertFalse(subscriber.completed);
+        subscriber.subscription.request(1);
+        Assert.assertEquals(subscriber.items, Arrays.asList("a", "b"));
+        Assert.assertFalse(subscriber.completed, "The buffered reply must be emitted before the completion.");
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Assert.assertEquals(subscriber.items, Arrays.asList("a", "b", "c"));
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void noRespondersComplete() throws Exception {
+        StubConnection stub = new StubConnection();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 0, null));
+        subscriber.subscription.request(1);
+
+        stub.noResponders(0);
+
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void cancelStopsTheGather() throws Exception {
+        StubConnection stub = new StubConnection();
+        AtomicReference<ReplyGatherer.Gather> gather = new AtomicReference<>();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 0, gather));
+        subscriber.subscription.request(5);
+        stub.reply(0, "a");
+
+        subscriber.subscription.cancel();
+        stub.reply(0, "b");
+
+        Assert.assertTrue(gather.get().getReplies().isDone(), "The gather must not wait for the timeout.");
+        Assert.assertEquals(gather.get().getReplies().get(1, TimeUnit.SECONDS).size(), 1);
+        Assert.assertEquals(subscriber.items, Collections.singletonList("a"));
+        Assert.assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void nonPositiveRequestFailsAndStopsTheGather() {
+        StubConnection stub = new StubConnection();
+        AtomicReference<ReplyGatherer.Gather> gather = new AtomicReference<>();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 0, gather));
+        subscriber.subscription.request(1);
+
+        subscriber.subscription.request(0);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertTrue(gather.get().getReplies().isDone());
+    }
+
+    @Test
+    public void decoderFailureFailsTheSubscriber() throws Exception {
+        StubConnection stub = new StubConnection();
+        RecordingSubscriber subscriber = subscribe(publisher(stub, 0, null));
+        subscriber.subscription.request(2);
+
+        stub.reply(0, "a");
+        stub.reply(0, "poison");
+        stub.reply(0, "c");
+
+        Assert.assertEquals(subscriber.items, Collections.singletonList("a"));
+        Assert.assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+
+    private static GatherPublisher publisher(StubConnection stub, int maxReplies
+            , AtomicReference<ReplyGatherer.Gather> gather) {
+        return new GatherPublisher(() -> {
+            ReplyGatherer.Gather requested = ReplyGatherer.of(stub.connection)
+                    .request("inventory", null, new byte[0], maxReplies, TIMEOUT);
+            if (gather != null) {
+                gather.set(requested);
+            }
+            return requested;
+        }, reply -> {
+            String data = StubConnection.data(reply);
+            if (data.equals("poison")) {
+                throw new IllegalStateException("cannot decode");
+            }
+            return data;
+        });
+    }
+
+    private static RecordingSubscriber subscribe(GatherPublisher publisher) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+}
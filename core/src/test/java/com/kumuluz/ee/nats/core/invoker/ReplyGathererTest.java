@@ -0,0 +1,134 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import io.nats.client.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Checks how the gathering of the replies stops, against a connection stub whose replies are sent by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ReplyGathererTest {
+
+    private static final Duration LONG_TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void maxRepliesFinishTheGather() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather gather = request(stub, 2, LONG_TIMEOUT);
+
+        stub.reply(0, "a");
+        Assert.assertFalse(gather.getReplies().isDone());
+        stub.reply(0, "b");
+        stub.reply(0, "c");  // late reply
+
+        Assert.assertEquals(data(gather.getReplies().get(1, TimeUnit.SECONDS)), Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void timeoutFinishesTheGather() throws Exception {
+        StubConnection stub = new StubConnection();
+        long start = System.nanoTime();
+        ReplyGatherer.Gather gather = request(stub, 0, Duration.ofMillis(100));
+
+        stub.reply(0, "a");
+
+        Assert.assertEquals(data(gather.getReplies().get(1, TimeUnit.SECONDS)), Collections.singletonList("a"));
+        Assert.assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+    }
+
+    @Test
+    public void noRespondersFinishTheGather() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather gather = request(stub, 0, LONG_TIMEOUT);
+
+        stub.noResponders(0);
+
+        Assert.assertTrue(gather.getReplies().get(1, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    public void cancelFinishesTheGather() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather gather = request(stub, 0, LONG_TIMEOUT);
+        stub.reply(0, "a");
+
+        gather.cancel();
+        stub.reply(0, "b");  // late reply
+
+        Assert.assertEquals(data(gather.getReplies().get(1, TimeUnit.SECONDS)), Collections.singletonList("a"));
+        Assert.assertEquals(StubConnection.data(gather.poll()), "a");
+        Assert.assertTrue(ReplyGatherer.Gather.isEnd(gather.poll()));
+    }
+
+    @Test
+    public void repliesOfTheRequestsAreKeptApart() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather first = request(stub, 1, LONG_TIMEOUT);
+        ReplyGatherer.Gather second = request(stub, 1, LONG_TIMEOUT);
+
+        stub.reply(1, "second");
+        stub.reply(0, "first");
+
+        Assert.assertEquals(data(first.getReplies().get(1, TimeUnit.SECONDS)), Collections.singletonList("first"));
+        Assert.assertEquals(data(second.getReplies().get(1, TimeUnit.SECONDS)), Collections.singletonList("second"));
+    }
+
+    @Test
+    public void iteratorBlocksUntilTheNextReply() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather gather = request(stub, 3, LONG_TIMEOUT);
+        Iterator<Message> replies = gather.iterator();
+
+        CompletableFuture<List<String>> streamed = CompletableFuture.supplyAsync(() -> {
+            List<String> data = new ArrayList<>();
+            replies.forEachRemaining(reply -> data.add(StubConnection.data(reply)));
+            return data;
+        });
+        for (String data : Arrays.asList("a", "b", "c")) {
+            Thread.sleep(20);
+            Assert.assertFalse(streamed.isDone());
+            stub.reply(0, data);
+        }
+
+        Assert.assertEquals(streamed.get(1, TimeUnit.SECONDS), Arrays.asList("a", "b", "c"));
+        Assert.assertFalse(replies.hasNext());
+    }
+
+    @Test
+    public void pollStopsAtTheEnd() throws Exception {
+        StubConnection stub = new StubConnection();
+        ReplyGatherer.Gather gather = request(stub, 2, LONG_TIMEOUT);
+
+        Assert.assertNull(gather.peek());
+        stub.reply(0, "a");
+        Assert.assertEquals(StubConnection.data(gather.peek()), "a");
+        Assert.assertEquals(StubConnection.data(gather.poll()), "a");
+        Assert.assertNull(gather.poll());
+        stub.reply(0, "b");
+        Assert.assertEquals(StubConnection.data(gather.poll()), "b");
+
+        Assert.assertTrue(ReplyGatherer.Gather.isEnd(gather.poll()));
+        Assert.assertTrue(ReplyGatherer.Gather.isEnd(gather.peek()));
+    }
+
+    private static ReplyGatherer.Gather request(StubConnection stub, int maxReplies, Duration timeout) {
+        return ReplyGatherer.of(stub.connection).request("inventory", null, new byte[0], maxReplies, timeout);
+    }
+
+    private static List<String> data(List<Message> replies) {
+        return replies.stream().map(StubConnection::data).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.impl.NatsMessage;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection stub which records the published requests and delivers the replies the test sends to the dispatcher.
+ * Only the methods used by the {@link ReplyGatherer} are supported.
+ *
+ * @author Matej Bizjak
+ */
+
+class StubConnection {
+
+    private static final AtomicInteger INBOXES = new AtomicInteger();
+
+    private final List<Message> published = new ArrayList<>();
+    private volatile MessageHandler handler;
+
+    final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader()
+            , new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "createInbox":
+                        return "_INBOX.stub" + INBOXES.incrementAndGet();
+                    case "createDispatcher":
+                        handler = (MessageHandler) args[0];
+                        return dispatcher();
+                    case "publish":
+                        synchronized (published) {
+                            published.add((Message) args[0]);
+                        }
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "StubConnection";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+    private static Dispatcher dispatcher() {
+        return (Dispatcher) Proxy.newProxyInstance(Dispatcher.class.getClassLoader(), new Class<?>[]{Dispatcher.class}
+                , (proxy, method, args) -> {
+                    if (method.getName().equals("subscribe")) {
+                        return proxy;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    int published() {
+        synchronized (published) {
+            return published.size();
+        }
+    }
+
+    /**
+     * Replies to the request with the given index.
+     */
+    void reply(int request, String data) throws InterruptedException {
+        handler.onMessage(NatsMessage.builder()
+                .subject(replyTo(request))
+                .data(data.getBytes(StandardCharsets.UTF_8))
+                .build());
+    }
+
+    /**
+     * Sends the no responders status to the request with the given index.
+     */
+    void noResponders(int request) throws InterruptedException {
+        String subject = replyTo(request);
+        handler.onMessage((Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class}
+                , (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getSubject":
+                            return subject;
+                        case "isStatusMessage":
+                            return true;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }));
+    }
+
+    private String replyTo(int request) {
+        synchronized (published) {
+            return published.get(request).getReplyTo();
+        }
+    }
+
+    static String data(Message message) {
+        return new String(message.getData(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.kumuluz.ee.nats.jetstream.annotations;
+
+import com.kumuluz.ee.nats.common.annotations.Backoff;
+import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+
+import javax.enterprise.util.Nonbinding;
+import javax.inject.Qualifier;
+import java.lang.annotation.*;
+
+/**
+ * Annotation for defining method as a NATS JetStream batch listener (managed pull consumer).
+ * The messages are fetched in batches and passed to the method as a list.
+ *
+ * @author Matej Bizjak
+ */
+
+@Documented
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface JetStreamBatchListener {
+
+    @Nonbinding String connection() default "default";
+
+    @Nonbinding String context() default "default";
+
+    @Nonbinding String stream() default "";
+
+    @Nonbinding String subject() default "";
+
+    @Nonbinding String durable() default "";
+
+    @Nonbinding boolean bind() default false;
+
+    /**
+     * @return Maximum number of messages in a batch.
+     */
+    @Nonbinding int batchSize() default 100;
+
+    /**
+     * @return Maximum time to wait for the batch to fill up, in the {@link java.time.Duration} format.
+     */
+    @Nonbinding String maxWait() default "PT1S";
+
+    /**
+     * @return Maximum size of a batch in bytes. 0 means no limit.
+     */
+    @Nonbinding int maxBytes() default 0;
+
+    /**
+     * @return Redelivery backoff of the messages which were not processed. Overrides the backoff of the {@link ConsumerConfig}.
+     * At most one value is allowed.
+     */
+    @Nonbinding Backoff[] backoff() default {};
+
+    /**
+     * @return Content type of the codec used when the message does not advertise its own. Defaults to JSON.
+     */
+    @Nonbinding String codec() default "";
+}
@@ -1,5 +1,8 @@
 package com.kumuluz.ee.nats.jetstream.annotations;
 
+import com.kumuluz.ee.nats.common.annotations.Backoff;
+import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+
 import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 import java.lang.annotation.*;
@@ -33,4 +36,17 @@ public @interface JetStreamListener {
     @Nonbinding String durable() default "";
 
     @Nonbinding boolean ordered() default false;
+
+    @Nonbinding int concurrency() default 1;
+
+    /**
+     * @return Redelivery backoff of the messages which were not processed. Overrides the backoff of the {@link ConsumerConfig}.
+     * At most one value is allowed.
+     */
+    @Nonbinding Backoff[] backoff() default {};
+
+    /**
+     * @return Content type of the codec used when the message does not advertise its own. Defaults to JSON.
+     */
+    @Nonbinding String codec() default "";
 }
@@ -1,5 +1,8 @@
 package com.kumuluz.ee.nats.jetstream.annotations;
 
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.jetstream.msgid.MessageIdStrategy;
+
 import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 import java.lang.annotation.*;
@@ -36,4 +39,23 @@ public @interface JetStreamSubject {
      */
     @Nonbinding boolean uniqueMessageHeader() default false;
 
+    /**
+     * @return How the message ID is generated. Setting it to anything but DEFAULT enables the unique header.
+     */
+    @Nonbinding MessageIdStrategy messageId() default MessageIdStrategy.DEFAULT;
+
+    /**
+     * @return Content type of the codec the payload is encoded with. Defaults to JSON.
+     */
+    @Nonbinding String codec() default "";
+
+    /**
+     * @return Compression of the payloads. Defaults to the compression of the connection.
+     */
+    @Nonbinding CompressionType compression() default CompressionType.DEFAULT;
+
+    /**
+     * @return Minimal size of the compressed payloads in bytes. Defaults to the threshold of the connection.
+     */
+    @Nonbinding int compressionThreshold() default -1;
 }
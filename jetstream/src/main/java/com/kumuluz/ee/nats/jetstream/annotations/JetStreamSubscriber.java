@@ -5,7 +5,8 @@ import javax.inject.Qualifier;
 import java.lang.annotation.*;
 
 /**
- * Annotation for injecting a NATS JetStream subscriber (pull listener).
+ * Annotation for injecting a NATS JetStream subscriber (pull listener), either as a {@link io.nats.client.JetStreamSubscription}
+ * or as a {@link java.util.concurrent.Flow.Publisher} of the payloads.
  *
  * @author Matej Bizjak
  */
@@ -27,4 +28,20 @@ public @interface JetStreamSubscriber {
     @Nonbinding String durable() default "";
 
     @Nonbinding boolean bind() default false;
+
+    /**
+     * @return Maximum number of messages a {@link java.util.concurrent.Flow.Publisher} fetches at once.
+     */
+    @Nonbinding int batchSize() default 100;
+
+    /**
+     * @return Maximum time a fetch of a {@link java.util.concurrent.Flow.Publisher} waits for the messages.
+     */
+    @Nonbinding String maxWait() default "PT1S";
+
+    /**
+     * @return Content type of the codec a {@link java.util.concurrent.Flow.Publisher} decodes the messages with,
+     * when the message does not advertise its own codec. Defaults to JSON.
+     */
+    @Nonbinding String codec() default "";
 }
@@ -0,0 +1,16 @@
+package com.kumuluz.ee.nats.jetstream.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks the payload field or the JetStream Client method parameter whose value is used as the message ID
+ * (Nats-Msg-Id header) of the published message.
+ *
+ * @author Matej Bizjak
+ */
+
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+public @interface MessageId {
+}
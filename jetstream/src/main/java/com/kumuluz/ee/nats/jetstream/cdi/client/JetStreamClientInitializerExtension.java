@@ -1,5 +1,6 @@
 package com.kumuluz.ee.nats.jetstream.cdi.client;
 
+import com.kumuluz.ee.nats.common.util.GeneratedClientLoader;
 import com.kumuluz.ee.nats.jetstream.JetStreamExtension;
 import com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient;
 import com.kumuluz.ee.nats.jetstream.util.JetStreamInterfaceValidationUtil;
@@ -9,8 +10,10 @@ import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.*;
 import javax.inject.Singleton;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.logging.Logger;
 
 /**
  * @author Matej Bizjak
@@ -24,6 +27,8 @@ import java.util.Set;
 
 public class JetStreamClientInitializerExtension implements Extension {
 
+    private static final Logger LOG = Logger.getLogger(JetStreamClientInitializerExtension.class.getName());
+
     private final Set<AnnotatedType> classes;
 
     public JetStreamClientInitializerExtension() {
@@ -49,7 +54,13 @@ public class JetStreamClientInitializerExtension implements Extension {
 
         for (AnnotatedType anType : this.classes) {
             Class<? extends Annotation> scopeClass = resolveScope(anType.getJavaClass());
-            afterBeanDiscovery.addBean(new JetStreamClientInvokerDelegateBean(anType.getJavaClass(), scopeClass));
+            Constructor<?> generatedClient = GeneratedClientLoader.findImplementation(anType.getJavaClass()
+                    , GeneratedClientLoader.JETSTREAM_SUFFIX);
+            if (generatedClient != null) {
+                LOG.info(String.format("Using generated implementation %s for JetStream client %s."
+                        , generatedClient.getDeclaringClass().getName(), anType.getJavaClass().getName()));
+            }
+            afterBeanDiscovery.addBean(new JetStreamClientInvokerDelegateBean(anType.getJavaClass(), scopeClass, generatedClient));
         }
     }
 
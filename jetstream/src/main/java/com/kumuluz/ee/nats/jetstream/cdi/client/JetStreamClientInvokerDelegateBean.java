@@ -1,6 +1,8 @@
 package com.kumuluz.ee.nats.jetstream.cdi.client;
 
+import com.kumuluz.ee.nats.common.util.GeneratedClientLoader;
 import com.kumuluz.ee.nats.jetstream.annotations.JetStreamClient;
+import com.kumuluz.ee.nats.jetstream.proxy.JetStreamClientBuilder;
 
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.Any;
@@ -10,7 +12,7 @@ import javax.enterprise.inject.spi.InjectionPoint;
 import javax.enterprise.inject.spi.PassivationCapable;
 import javax.enterprise.util.AnnotationLiteral;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Proxy;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashSet;
@@ -21,7 +23,8 @@ import java.util.Set;
  */
 
 /**
- * Bean that creates a JetStream Client using a {@link JetStreamInjectableClientHandler}.
+ * Bean that creates a JetStream Client, either by instantiating the implementation generated at build time or using
+ * a {@link JetStreamClientBuilder}.
  *
  * @author Matej Bizjak
  */
@@ -30,10 +33,16 @@ public class JetStreamClientInvokerDelegateBean implements Bean<Object>, Passiva
 
     private final Class<?> restClientType;
     private final Class<? extends Annotation> scope;
+    private final Constructor<?> generatedClient;
 
     public JetStreamClientInvokerDelegateBean(Class<?> restClientType, Class<? extends Annotation> scope) {
+        this(restClientType, scope, null);
+    }
+
+    public JetStreamClientInvokerDelegateBean(Class<?> restClientType, Class<? extends Annotation> scope, Constructor<?> generatedClient) {
         this.restClientType = restClientType;
         this.scope = scope;
+        this.generatedClient = generatedClient;
     }
 
     @Override
@@ -53,8 +62,10 @@ public class JetStreamClientInvokerDelegateBean implements Bean<Object>, Passiva
 
     @Override
     public Object create(CreationalContext<Object> creationalContext) {
-        return Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class[]{restClientType},
-                new JetStreamInjectableClientHandler());
+        if (generatedClient != null) {
+            return GeneratedClientLoader.newInstance(generatedClient);
+        }
+        return JetStreamClientBuilder.getInstance().build(restClientType);
     }
 
     @Override
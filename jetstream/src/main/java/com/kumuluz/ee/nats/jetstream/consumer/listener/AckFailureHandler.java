@@ -0,0 +1,29 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.kumuluz.ee.nats.jetstream.wrappers.JetStreamMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Callback for double-acked messages whose acknowledgment was not confirmed by the server, even after all the retries.
+ * Such messages will be redelivered once their ack wait expires. Implementations are loaded with the {@link ServiceLoader}.
+ *
+ * @author Matej Bizjak
+ */
+
+public interface AckFailureHandler {
+
+    /**
+     * @param message message which acknowledgment was not confirmed
+     * @param cause   the last failure
+     */
+    void onAckFailure(JetStreamMessage message, Throwable cause);
+
+    static List<AckFailureHandler> getHandlers() {
+        List<AckFailureHandler> handlers = new ArrayList<>();
+        ServiceLoader.load(AckFailureHandler.class).forEach(handlers::add);
+        return handlers;
+    }
+}
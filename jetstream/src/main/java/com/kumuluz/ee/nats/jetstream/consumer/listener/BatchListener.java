@@ -0,0 +1,186 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.util.MethodInvoker;
+import com.kumuluz.ee.nats.jetstream.wrappers.JetStreamMessage;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import io.nats.client.PullRequestOptions;
+import io.nats.client.api.AckPolicy;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetch loop of a method annotated with {@link com.kumuluz.ee.nats.jetstream.annotations.JetStreamBatchListener}.
+ * Fetches a batch of messages, deserializes it, invokes the method with the whole batch and acknowledges it.
+ *
+ * @author Matej Bizjak
+ */
+
+class BatchListener implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(BatchListener.class.getName());
+
+    private final Method method;
+    private final Object reference;
+    private final MethodInvoker invoker;
+    private final JetStreamSubscription subscription;
+    private final JavaType elementType;
+    private final NatsCodec codec;
+    private final int batchSize;
+    private final Duration maxWait;
+    private final int maxBytes;
+    private final AckPolicy ackPolicy;
+    private final RedeliveryHandler redeliveryHandler;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    BatchListener(Method method, Object reference, JetStreamSubscription subscription, JavaType elementType
+            , NatsCodec codec, int batchSize, Duration maxWait, int maxBytes, AckPolicy ackPolicy, RedeliveryHandler redeliveryHandler) {
+        this.method = method;
+        this.reference = reference;
+        this.invoker = MethodInvoker.of(method);
+        this.subscription = subscription;
+        this.elementType = elementType;
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.maxWait = maxWait;
+        this.maxBytes = maxBytes;
+        this.ackPolicy = ackPolicy;
+        this.redeliveryHandler = redeliveryHandler;
+    }
+
+    void start() {
+        thread = new Thread(this, String.format("nats-batch-listener-%s.%s"
+                , method.getDeclaringClass().getSimpleName(), method.getName()));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            List<Message> messages;
+            try {
+                messages = fetch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.log(Level.SEVERE, String.format("Cannot fetch messages for batch listener method %s in class %s."
+                        , method.getName(), method.getDeclaringClass().getName()), e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(maxWait.toMillis());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            if (!messages.isEmpty()) {
+                process(messages);
+            }
+        }
+    }
+
+    private List<Message> fetch() throws InterruptedException {
+        synchronized (subscription) {  // the pull subscription may be shared with the other consumers of the subject
+            return maxBytes <= 0 ? subscription.fetch(batchSize, maxWait) : pullMaxBytes();
+        }
+    }
+
+    private List<Message> pullMaxBytes() throws InterruptedException {
+        subscription.pull(PullRequestOptions.builder(batchSize)
+                .maxBytes(maxBytes)
+                .expiresIn(maxWait)
+                .build());
+        List<Message> messages = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (messages.size() < batchSize) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {  // nextMessage would wait forever with zero timeout
+                break;
+            }
+            Message message = subscription.nextMessage(remaining);
+            if (message == null) {
+                break;
+            }
+            if (message.isJetStream()) {  // skip the status messages
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * With {@link AckPolicy#All}, acknowledging a message acknowledges all the previous ones too, including the rejected
+     * ones. So only the messages before the first rejected one are acknowledged; the later ones are redelivered after
+     * the ack wait, together with the rejected one.
+     */
+    private void process(List<Message> messages) {
+        List<Message> received = new ArrayList<>(messages.size());
+        Message lastBeforeRejection = null;
+        boolean rejected = false;
+        List<Object> payloads = new ArrayList<>(messages.size());
+        List<JetStreamMessage> wrappers = method.getParameterCount() == 2 ? new ArrayList<>(messages.size()) : null;
+        for (Message message : messages) {
+            try {
+                payloads.add(NatsCodecs.forMessage(message, codec).decode(PayloadCompression.decompress(message), elementType));
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, String.format("Cannot deserialize the message as class %s for subject %s and connection %s."
+                        , elementType.getRawClass().getName(), message.getSubject()
+                        , message.getConnection().getConnectedUrl()), e);
+                redeliveryHandler.rejectPoison(message, e);
+                rejected = true;
+                continue;
+            }
+            received.add(message);
+            if (!rejected) {
+                lastBeforeRejection = message;
+            }
+            if (wrappers != null) {
+                wrappers.add(new JetStreamMessage(message));
+            }
+        }
+        if (received.isEmpty()) {
+            return;
+        }
+
+        try {
+            invoker.invoke(reference, payloads, wrappers);
+        } catch (Throwable e) {
+            LOG.log(Level.SEVERE, String.format("Method %s could not be invoked for a batch of %d messages."
+                    , method.getName(), received.size()), e);
+            received.forEach(message -> redeliveryHandler.reject(message, e));
+            return;
+        }
+
+        if (ackPolicy == AckPolicy.All) {  // acknowledges all the previous messages as well
+            if (lastBeforeRejection != null) {
+                lastBeforeRejection.ack();
+            }
+        } else if (ackPolicy != AckPolicy.None) {
+            received.forEach(Message::ack);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.common.util.AnnotatedInstance;
+import com.kumuluz.ee.nats.common.util.SerDes;
+import com.kumuluz.ee.nats.jetstream.JetStreamExtension;
+import com.kumuluz.ee.nats.jetstream.annotations.JetStreamBatchListener;
+import com.kumuluz.ee.nats.jetstream.consumer.subscriber.SubscriberFactory;
+import com.kumuluz.ee.nats.jetstream.context.ContextFactory;
+import com.kumuluz.ee.nats.jetstream.wrappers.JetStreamMessage;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.api.AckPolicy;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessBean;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds methods annotated with a {@link JetStreamBatchListener} annotation and starts a fetch loop for each of them.
+ *
+ * @author Matej Bizjak
+ */
+
+public class BatchListenerInitializerExtension implements Extension {
+
+    private static final Logger LOG = Logger.getLogger(BatchListenerInitializerExtension.class.getName());
+    private final List<AnnotatedInstance<JetStreamBatchListener, ConsumerConfig>> INSTANCES = new ArrayList<>();
+
+    public <T> void processBatchListeners(@Observes ProcessBean<T> processBean) {
+        for (Method method : processBean.getBean().getBeanClass().getMethods()) {
+            if (method.getAnnotation(JetStreamBatchListener.class) != null) {
+                INSTANCES.add(new AnnotatedInstance<>(processBean.getBean(), method
+                        , method.getAnnotation(JetStreamBatchListener.class), method.getAnnotation(ConsumerConfig.class)));
+            }
+        }
+    }
+
+    public void after(@Observes AfterDeploymentValidation adv, BeanManager beanManager) {
+        if (!JetStreamExtension.isExtensionEnabled()) {
+            return;
+        }
+
+        for (AnnotatedInstance<JetStreamBatchListener, ConsumerConfig> inst : INSTANCES) {
+            LOG.info(String.format("Found JetStream batch listener method %s in class %s.", inst.getMethod().getName()
+                    , inst.getMethod().getDeclaringClass().getName()));
+        }
+
+        for (AnnotatedInstance<JetStreamBatchListener, ConsumerConfig> inst : INSTANCES) {
+            Method method = inst.getMethod();
+            JetStreamBatchListener batchListenerAnnotation = inst.getAnnotation1();
+
+            //region Validation
+            if (method.getParameterCount() < 1 || method.getParameterCount() > 2) {
+                throw new DefinitionException(String.format("Batch listener method %s in class %s must have exactly 1 or 2 parameters."
+                        , method.getName(), method.getDeclaringClass().getName()));
+            }
+            Type elementType = getListElementType(method, 0);
+            if (elementType == null) {
+                throw new DefinitionException(String.format("The 1st parameter of batch listener method %s in class %s must be of type List<T>."
+                        , method.getName(), method.getDeclaringClass().getName()));
+            }
+            if (method.getParameterCount() == 2 && !JetStreamMessage.class.equals(getListElementType(method, 1))) {
+                throw new DefinitionException(String
+                        .format("The 2nd parameter of batch listener method %s in class %s must be of type List<JetStreamMessage>."
+                                , method.getName(), method.getDeclaringClass().getName()));
+            }
+            if (batchListenerAnnotation.batchSize() < 1) {
+                throw new DefinitionException(String.format("Batch size of batch listener method %s in class %s must be at least 1."
+                        , method.getName(), method.getDeclaringClass().getName()));
+            }
+            Duration maxWait;
+            try {
+                maxWait = Duration.parse(batchListenerAnnotation.maxWait());
+            } catch (DateTimeParseException e) {
+                throw new DefinitionException(String.format("Invalid max wait %s at batch listener method %s in class %s."
+                        , batchListenerAnnotation.maxWait(), method.getName(), method.getDeclaringClass().getName()), e);
+            }
+            NatsCodec codec = NatsCodecs.resolve(batchListenerAnnotation.codec(), method);
+            //endregion
+
+            JetStreamSubscription subscription = SubscriberFactory.getInstance().getSubscription(batchListenerAnnotation.connection()
+                    , batchListenerAnnotation.context(), batchListenerAnnotation.stream(), batchListenerAnnotation.subject()
+                    , batchListenerAnnotation.durable(), batchListenerAnnotation.bind(), inst.getAnnotation2());
+            if (subscription == null) {
+                LOG.severe(String.format("Cannot establish a NATS JetStream batch listener for method %s class %s and connection %s."
+                        , method.getName(), method.getDeclaringClass().getName(), batchListenerAnnotation.connection()));
+                continue;
+            }
+
+            AckPolicy ackPolicy = AckPolicy.Explicit;
+            try {
+                ackPolicy = subscription.getConsumerInfo().getConsumerConfiguration().getAckPolicy();
+            } catch (IOException | JetStreamApiException e) {
+                LOG.log(Level.WARNING, String.format("Cannot obtain the consumer info for batch listener method %s in class %s, messages will be acknowledged one by one."
+                        , method.getName(), method.getDeclaringClass().getName()), e);
+            }
+
+            Object reference = beanManager.getReference(inst.getBean(), method.getDeclaringClass()
+                    , beanManager.createCreationalContext(inst.getBean()));
+            JavaType javaType = SerDes.getTypeFactory().constructType(elementType);
+            codec.prepare(javaType);
+            JetStream jetStream = ContextFactory.getInstance().getContext(batchListenerAnnotation.connection()
+                    , batchListenerAnnotation.context());
+            RedeliveryHandler redeliveryHandler = new RedeliveryHandler(method, batchListenerAnnotation.backoff()
+                    , inst.getAnnotation2(), jetStream);
+            redeliveryHandler.init(subscription);
+            BatchListener batchListener = new BatchListener(method, reference, subscription, javaType
+                    , codec, batchListenerAnnotation.batchSize(), maxWait, batchListenerAnnotation.maxBytes(), ackPolicy
+                    , redeliveryHandler);
+            batchListener.start();
+
+            // disconnect
+            Runtime.getRuntime().addShutdownHook(new Thread(batchListener::stop));
+        }
+    }
+
+    /**
+     * @return type argument of the List parameter or null if the parameter is not a List
+     */
+    private static Type getListElementType(Method method, int index) {
+        if (!List.class.equals(method.getParameterTypes()[index])) {
+            return null;
+        }
+        Type genericType = method.getGenericParameterTypes()[index];
+        if (!(genericType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        return ((ParameterizedType) genericType).getActualTypeArguments()[0];
+    }
+}
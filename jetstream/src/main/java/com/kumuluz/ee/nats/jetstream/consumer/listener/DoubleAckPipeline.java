@@ -0,0 +1,175 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.kumuluz.ee.nats.common.backoff.BackoffPolicy;
+import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
+import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+import com.kumuluz.ee.nats.jetstream.wrappers.JetStreamMessage;
+import io.nats.client.Message;
+import io.nats.client.impl.AckType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends double acks (acks which expect a confirmation from the server) without blocking the dispatcher thread.
+ * The acks are sent as asynchronous requests, unconfirmed acks are resent after a backoff and final failures are passed
+ * to the registered {@link AckFailureHandler}s. At most {@link GeneralConfig#getAckConfirmationMaxInFlight()} acks
+ * wait for the confirmation at once, further acks block the calling thread until a confirmation arrives.
+ *
+ * @author Matej Bizjak
+ */
+
+public class DoubleAckPipeline {
+
+    private static final Logger LOG = Logger.getLogger(DoubleAckPipeline.class.getName());
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofMillis(100);
+
+    private static volatile DoubleAckPipeline instance;
+
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore permits;
+    private final List<AckFailureHandler> failureHandlers;
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private DoubleAckPipeline(int maxInFlight) {
+        this(newScheduler(), maxInFlight, AckFailureHandler.getHandlers());
+    }
+
+    DoubleAckPipeline(ScheduledExecutorService scheduler, int maxInFlight, List<AckFailureHandler> failureHandlers) {
+        this.scheduler = scheduler;
+        this.permits = new Semaphore(maxInFlight);
+        this.failureHandlers = failureHandlers;
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "nats-double-ack");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static synchronized void init() {
+        if (instance == null) {
+            instance = new DoubleAckPipeline(NatsConfigLoader.getInstance().getGeneralConfig()
+                    .getAckConfirmationMaxInFlight());
+        }
+    }
+
+    public static DoubleAckPipeline getInstance() {
+        if (instance == null) {
+            init();
+        }
+        return instance;
+    }
+
+    /**
+     * Acknowledges the message and returns without waiting for the confirmation, unless the maximum number of acks is
+     * already waiting for it.
+     *
+     * @param msg           message to acknowledge
+     * @param generalConfig configuration of the confirmation timeout and the number of retries
+     */
+    public void ack(Message msg, GeneralConfig generalConfig) {
+        try {
+            permits.acquire();  // pushes back on the dispatcher
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            notifyHandlers(msg, e);
+            return;
+        }
+        inFlight.increment();
+        Duration timeout = generalConfig.getAckConfirmationTimeout();
+        send(msg, timeout, generalConfig.getAckConfirmationRetries(), BackoffPolicy.fullJitter(INITIAL_RETRY_DELAY
+                , timeout), 1);
+    }
+
+    /**
+     * Sends the ack as a request to the reply subject of the message, the same way as {@link Message#ackSync(Duration)}
+     * does. The message does not record the ack, so a later ack, nak or term of the same message is still sent.
+     */
+    private void send(Message msg, Duration timeout, int maxRetries, BackoffPolicy backoff, int attempt) {
+        CompletableFuture<Message> confirmation;
+        try {
+            confirmation = msg.getConnection().requestWithTimeout(msg.getReplyTo(), AckType.AckAck.bodyBytes(-1)
+                    , timeout);
+        } catch (RuntimeException e) {  // e.g. the connection is closed
+            confirmation = CompletableFuture.failedFuture(e);
+        }
+        confirmation.whenComplete((reply, e) -> {
+            if (e == null) {
+                complete();
+                confirmed.increment();
+            } else if (attempt <= maxRetries) {
+                LOG.log(Level.WARNING, "Could not receive an ack confirmation from the server. Retrying...", e);
+                Duration delay = backoff.nextDelay(attempt);
+                try {
+                    scheduler.schedule(() -> send(msg, timeout, maxRetries, backoff, attempt + 1), delay.toNanos()
+                            , TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException ex) {
+                    fail(msg, ex);
+                }
+            } else {
+                fail(msg, e);
+            }
+        });
+    }
+
+    private void complete() {
+        inFlight.decrement();
+        permits.release();
+    }
+
+    private void fail(Message msg, Throwable e) {
+        complete();
+        failed.increment();
+        LOG.log(Level.SEVERE, "Could not receive an ack confirmation from the server. This was a final try.", e);
+        notifyHandlers(msg, e);
+    }
+
+    private void notifyHandlers(Message msg, Throwable e) {
+        JetStreamMessage jetStreamMessage = new JetStreamMessage(msg);
+        for (AckFailureHandler handler : failureHandlers) {
+            try {
+                handler.onAckFailure(jetStreamMessage, e);
+            } catch (RuntimeException ex) {
+                LOG.log(Level.SEVERE, "Ack failure handler threw an exception.", ex);
+            }
+        }
+    }
+
+    /**
+     * @return number of acks waiting for the confirmation
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @return number of confirmed acks
+     */
+    public long getConfirmed() {
+        return confirmed.sum();
+    }
+
+    /**
+     * @return number of acks which were not confirmed after all the retries
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+}
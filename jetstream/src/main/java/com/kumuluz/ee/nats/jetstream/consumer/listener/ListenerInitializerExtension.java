@@ -1,6 +1,10 @@
 package com.kumuluz.ee.nats.jetstream.consumer.listener;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
 import com.kumuluz.ee.nats.common.connection.NatsConnection;
 import com.kumuluz.ee.nats.common.connection.config.ConnectionConfig;
 import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
@@ -8,11 +12,13 @@ import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
 import com.kumuluz.ee.nats.common.connection.config.StreamConsumerConfiguration;
 import com.kumuluz.ee.nats.common.exception.DefinitionException;
 import com.kumuluz.ee.nats.common.exception.InvocationException;
+import com.kumuluz.ee.nats.common.exception.NatsException;
 import com.kumuluz.ee.nats.common.exception.SerializationException;
 import com.kumuluz.ee.nats.common.management.StreamManagement;
 import com.kumuluz.ee.nats.common.util.AnnotatedInstance;
 import com.kumuluz.ee.nats.common.util.CollectionSerDes;
-import com.kumuluz.ee.nats.common.util.SerDes;
+import com.kumuluz.ee.nats.common.util.ListenerExecutors;
+import com.kumuluz.ee.nats.common.util.MethodInvoker;
 import com.kumuluz.ee.nats.jetstream.JetStreamExtension;
 import com.kumuluz.ee.nats.jetstream.annotations.JetStreamListener;
 import com.kumuluz.ee.nats.jetstream.context.ContextFactory;
@@ -27,13 +33,12 @@ import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.ProcessBean;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -95,6 +100,10 @@ public class ListenerInitializerExtension implements Extension {
                 throw new DefinitionException(String.format("Stream was not specified for listener method %s in class %s."
                         , method.getName(), method.getDeclaringClass().getName()));
             }
+            if (jetStreamListenerAnnotation.ordered() && jetStreamListenerAnnotation.concurrency() > 1) {
+                throw new DefinitionException(String.format("Ordered listener method %s in class %s cannot have concurrency greater than 1."
+                        , method.getName(), method.getDeclaringClass().getName()));
+            }
             Connection connection = NatsConnection.getConnection(jetStreamListenerAnnotation.connection());
             if (connection == null) {
                 LOG.severe(String.format("Cannot establish a NATS JetStream listener for method %s class %s and connection %s, because the connection was not established."
@@ -105,41 +114,58 @@ public class ListenerInitializerExtension implements Extension {
 
             Object reference = beanManager.getReference(inst.getBean(), method.getDeclaringClass()
                     , beanManager.createCreationalContext(inst.getBean()));
-            Object[] args = new Object[method.getParameterCount()];
-
+            MethodInvoker invoker = MethodInvoker.of(method);
+            NatsCodec codec = NatsCodecs.resolve(jetStreamListenerAnnotation.codec(), method);
+            JavaType payloadType = CollectionSerDes.getCollectionParameterType(method);
+            codec.prepare(payloadType);
+            ExecutorService executor = ListenerExecutors.newWorkerPool(method, jetStreamListenerAnnotation.concurrency());
             JetStream jetStream = ContextFactory.getInstance().getContext(jetStreamListenerAnnotation.connection()
                     , jetStreamListenerAnnotation.context());
+            RedeliveryHandler redeliveryHandler = new RedeliveryHandler(method, jetStreamListenerAnnotation.backoff()
+                    , consumerConfigAnnotation, jetStream);
             Dispatcher dispatcher = connection.createDispatcher();
 
+            BiConsumer<Message, Object> listener = (msg, receivedMsg) -> {
+                try {
+                    invoker.invoke(reference, receivedMsg, method.getParameterCount() == 2 ? new JetStreamMessage(msg) : null);
+                } catch (Throwable e) {
+                    redeliveryHandler.reject(msg, e);
+                    throw new InvocationException(String
+                            .format("Method %s could not be invoked for subject %s and connection %s."
+                                    , method.getName(), msg.getSubject(), msg.getConnection().getConnectedUrl()
+                            ), e);
+                }
+                if (jetStreamListenerAnnotation.doubleAck()) {
+                    DoubleAckPipeline.getInstance().ack(msg, generalConfig);
+                } else {
+                    msg.ack();
+                }
+            };
+
             MessageHandler handler = msg -> {
                 Object receivedMsg;
                 try {
-                    receivedMsg = SerDes.deserialize(msg.getData(), CollectionSerDes.getCollectionParameterType(method));
-                    args[0] = receivedMsg;
-                    if (method.getParameterCount() == 2) {
-                        args[1] = new JetStreamMessage(msg);
-                    }
+                    receivedMsg = NatsCodecs.forMessage(msg, codec)
+                            .decode(PayloadCompression.decompress(msg), payloadType);
                 } catch (IOException e) {
-                    exponentialNak(msg);
+                    redeliveryHandler.rejectPoison(msg, e);
                     throw new SerializationException(String
                             .format("Cannot deserialize the message as class %s for subject %s and connection %s."
                                     , method.getParameterTypes()[0].getName(), msg.getSubject()
                                     , msg.getConnection().getConnectedUrl()
                             ), e);
                 }
-                try {
-                    method.invoke(reference, args);
-                    if (jetStreamListenerAnnotation.doubleAck()) {
-                        ackSyncWithRetries(msg, generalConfig);
-                    } else {
-                        msg.ack();
-                    }
-                } catch (InvocationTargetException | IllegalAccessException e) {
-                    exponentialNak(msg);
-                    throw new InvocationException(String
-                            .format("Method %s could not be invoked for subject %s and connection %s."
-                                    , method.getName(), msg.getSubject(), msg.getConnection().getConnectedUrl()
-                            ), e);
+
+                if (executor == null) {
+                    listener.accept(msg, receivedMsg);
+                } else {
+                    executor.execute(() -> {
+                        try {
+                            listener.accept(msg, receivedMsg);
+                        } catch (NatsException e) {
+                            LOG.log(Level.SEVERE, e.getMessage(), e);
+                        }
+                    });
                 }
             };
 
@@ -173,38 +199,20 @@ public class ListenerInitializerExtension implements Extension {
             //endregion
 
             try {
-                jetStream.subscribe(jetStreamListenerAnnotation.subject(), jetStreamListenerAnnotation.queue()
-                        , dispatcher, handler, false, pushSubscribeOptions);
+                JetStreamSubscription subscription = jetStream.subscribe(jetStreamListenerAnnotation.subject()
+                        , jetStreamListenerAnnotation.queue(), dispatcher, handler, false, pushSubscribeOptions);
+                redeliveryHandler.init(subscription);
             } catch (JetStreamApiException | IOException e) {
                 LOG.log(Level.SEVERE, String
                         .format("There was a problem with the JetStream listener at the method %s in class %s for connection %s."
                                 , method.getName(), method.getDeclaringClass().getName(), jetStreamListenerAnnotation.connection()
                         ), e);
             }
-        }
-    }
 
-    private void ackSyncWithRetries(Message msg, GeneralConfig generalConfig) {
-        for (int retries = 0; ; retries++) {
-            try {
-                msg.ackSync(generalConfig.getAckConfirmationTimeout());
-                return;
-            } catch (InterruptedException | TimeoutException e) {
-                if (retries < generalConfig.getAckConfirmationRetries()) {
-                    try {
-                        Thread.sleep(generalConfig.getAckConfirmationTimeout().toMillis());
-                        LOG.log(Level.SEVERE, "Could not receive an ack confirmation from the server. Retrying...", e);
-                    } catch (InterruptedException ex) {
-                        LOG.log(Level.SEVERE, "Could not receive an ack confirmation from the server. Retrying...", ex);
-                    }
-                } else {
-                    LOG.log(Level.SEVERE, "Could not receive an ack confirmation from the server. This was a final try.", e);
-                }
+            // the subscription is drained with the connection
+            if (executor != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdown));
             }
         }
     }
-
-    private void exponentialNak(Message msg) {
-        msg.nakWithDelay(Duration.ofSeconds((long) Math.pow(5, msg.metaData().deliveredCount())));
-    }
 }
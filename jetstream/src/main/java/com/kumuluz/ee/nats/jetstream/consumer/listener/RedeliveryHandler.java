@@ -0,0 +1,200 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.kumuluz.ee.nats.common.annotations.Backoff;
+import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+import com.kumuluz.ee.nats.common.backoff.BackoffPolicy;
+import com.kumuluz.ee.nats.common.backoff.BackoffType;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.common.util.DeadLetterPublisher;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import io.nats.client.api.PublishAck;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Negatively acknowledges the messages a listener could not process, with a delay computed by the {@link BackoffPolicy}.
+ * After the max deliveries, or immediately if the message cannot be deserialized, the message is handed to the
+ * dead-letter subject and terminated.
+ *
+ * @author Matej Bizjak
+ */
+
+class RedeliveryHandler {
+
+    private static final Logger LOG = Logger.getLogger(RedeliveryHandler.class.getName());
+
+    private final Method method;
+    private final BackoffType type;
+    private final int maxDeliveries;
+    private final String deadLetterSubject;
+    private final JetStream jetStream;
+    private volatile BackoffPolicy policy;
+
+    /**
+     * @param method         listener method
+     * @param backoff        backoff from the listener annotation
+     * @param consumerConfig consumer config annotation of the listener or null
+     * @param jetStream      context used for publishing the dead letters
+     */
+    RedeliveryHandler(Method method, Backoff[] backoff, ConsumerConfig consumerConfig, JetStream jetStream) {
+        this.method = method;
+        this.jetStream = jetStream;
+        Backoff backoffAnnotation = resolve(method, backoff, consumerConfig);
+        if (backoffAnnotation == null) {  // same as the default values of the annotation
+            this.type = BackoffType.EXPONENTIAL;
+            this.maxDeliveries = 0;
+            this.deadLetterSubject = "";
+            this.policy = BackoffPolicy.DEFAULT;
+        } else {
+            this.type = backoffAnnotation.type();
+            this.maxDeliveries = backoffAnnotation.maxDeliveries();
+            this.deadLetterSubject = backoffAnnotation.deadLetterSubject();
+            this.policy = createPolicy(method, backoffAnnotation);
+        }
+    }
+
+    /**
+     * Reads the backoff list of the consumer, if the policy is {@link BackoffType#CONSUMER}.
+     *
+     * @param subscription subscription of the listener
+     */
+    void init(JetStreamSubscription subscription) {
+        if (type != BackoffType.CONSUMER || subscription == null) {
+            return;
+        }
+        try {
+            policy = BackoffPolicy.consumer(subscription.getConsumerInfo().getConsumerConfiguration().getBackoff());
+        } catch (IOException | JetStreamApiException e) {
+            LOG.log(Level.WARNING, String.format("Cannot read the consumer backoff for listener method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()), e);
+        }
+    }
+
+    /**
+     * Schedules the redelivery of the message or hands it to the dead-letter subject after the max deliveries.
+     *
+     * @param msg   message that was not processed
+     * @param cause the failure
+     */
+    void reject(Message msg, Throwable cause) {
+        long deliveredCount = msg.metaData().deliveredCount();
+        if (maxDeliveries > 0 && deliveredCount >= maxDeliveries) {
+            deadLetter(msg, cause);
+            return;
+        }
+
+        Duration delay = policy.nextDelay(deliveredCount);
+        if (delay == null || delay.isZero() || delay.isNegative()) {
+            msg.nak();
+        } else {
+            msg.nakWithDelay(delay);
+        }
+    }
+
+    /**
+     * Rejects a message which cannot be deserialized. Redelivering it would not help, so it is handed to the
+     * dead-letter subject immediately, if one is set.
+     *
+     * @param msg   message that could not be deserialized
+     * @param cause the failure
+     */
+    void rejectPoison(Message msg, Throwable cause) {
+        if (deadLetterSubject.isEmpty()) {
+            reject(msg, cause);
+        } else {
+            deadLetter(msg, cause);
+        }
+    }
+
+    /**
+     * Republishes the message to the dead-letter subject and terminates it. If the subject belongs to a stream,
+     * the message is terminated only after the stream stored the dead letter.
+     */
+    private void deadLetter(Message msg, Throwable cause) {
+        if (deadLetterSubject.isEmpty()) {
+            msg.term();
+            return;
+        }
+
+        Message deadLetter = DeadLetterPublisher.build(deadLetterSubject, msg, cause);
+        CompletableFuture<PublishAck> publishAck;
+        try {
+            publishAck = jetStream != null ? jetStream.publishAsync(deadLetter)
+                    : CompletableFuture.failedFuture(new IllegalStateException("JetStream context is not available."));
+        } catch (RuntimeException e) {
+            publishAck = CompletableFuture.failedFuture(e);
+        }
+        publishAck.whenComplete((ack, e) -> {
+            if (e != null) {  // e.g. no stream for the dead-letter subject
+                try {
+                    msg.getConnection().publish(deadLetter);
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.SEVERE, String.format("Cannot publish the message to the dead-letter subject %s for listener method %s in class %s."
+                            , deadLetterSubject, method.getName(), method.getDeclaringClass().getName()), ex);
+                    msg.nak();
+                    return;
+                }
+            }
+            msg.term();
+        });
+    }
+
+    private static Backoff resolve(Method method, Backoff[] backoff, ConsumerConfig consumerConfig) {
+        Backoff[] consumerBackoff = consumerConfig != null ? consumerConfig.backoff() : new Backoff[0];
+        if (backoff.length > 1 || consumerBackoff.length > 1) {
+            throw new DefinitionException(String.format("At most one backoff can be specified for listener method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        if (backoff.length == 1) {
+            return backoff[0];
+        }
+        if (consumerBackoff.length == 1) {
+            return consumerBackoff[0];
+        }
+        return null;
+    }
+
+    private static BackoffPolicy createPolicy(Method method, Backoff backoff) {
+        switch (backoff.type()) {
+            case FULL_JITTER:
+                return BackoffPolicy.fullJitter(parse(method, backoff.initial()), parse(method, backoff.max()));
+            case FIXED:
+                return BackoffPolicy.fixed(parse(method, backoff.initial()));
+            case CONSUMER:
+                return BackoffPolicy.consumer(null);
+            case CUSTOM:
+                if (backoff.policy().equals(BackoffPolicy.class)) {
+                    throw new DefinitionException(String.format("Custom backoff policy class was not specified for listener method %s in class %s."
+                            , method.getName(), method.getDeclaringClass().getName()));
+                }
+                try {
+                    return backoff.policy().getConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new DefinitionException(String.format("Cannot instantiate backoff policy %s for listener method %s in class %s."
+                            , backoff.policy().getName(), method.getName(), method.getDeclaringClass().getName()), e);
+                }
+            case EXPONENTIAL:
+            default:
+                return BackoffPolicy.exponential(parse(method, backoff.initial()), parse(method, backoff.max())
+                        , backoff.multiplier());
+        }
+    }
+
+    private static Duration parse(Method method, String duration) {
+        try {
+            return Duration.parse(duration);
+        } catch (DateTimeParseException e) {
+            throw new DefinitionException(String.format("Invalid backoff duration %s at listener method %s in class %s."
+                    , duration, method.getName(), method.getDeclaringClass().getName()), e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.kumuluz.ee.nats.jetstream.consumer.subscriber;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.connection.NatsConnection;
+import com.kumuluz.ee.nats.common.util.ListenerExecutors;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Flow.Publisher} of the messages of a pull consumer. The demand of the subscriber is translated into fetches
+ * of at most the requested number of messages, so the messages held in memory are bounded by the demand.
+ * A message is acknowledged after the subscriber's onNext returns. The fetches of all the publishers run on a shared
+ * executor, one fetch per task, so a subscriber with an unbounded demand does not hold a thread between fetches.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PullPublisher<T> implements Flow.Publisher<T> {
+
+    private static final Logger LOG = Logger.getLogger(PullPublisher.class.getName());
+    private static final int MAX_CONCURRENT_FETCHES = 64;
+    private static final ExecutorService EXECUTOR = ListenerExecutors.newSharedExecutor("nats-pull-publisher"
+            , MAX_CONCURRENT_FETCHES);
+
+    static {
+        // no fetches are started once the connections drain
+        NatsConnection.addDrainListener(EXECUTOR::shutdown);
+    }
+
+    private final Supplier<JetStreamSubscription> subscriptionSupplier;
+    private final JavaType type;
+    private final NatsCodec codec;
+    private final int batchSize;
+    private final Duration maxWait;
+    private final Executor executor;
+
+    /**
+     * @param subscriptionSupplier pull subscription, obtained on the first subscribe
+     * @param type                 type of the emitted payloads
+     * @param codec                codec used when the message does not advertise its own
+     * @param batchSize            maximum number of messages fetched at once
+     * @param maxWait              maximum time a fetch waits for the messages
+     */
+    public PullPublisher(Supplier<JetStreamSubscription> subscriptionSupplier, JavaType type, NatsCodec codec
+            , int batchSize, Duration maxWait) {
+        this(subscriptionSupplier, type, codec, batchSize, maxWait, EXECUTOR);
+    }
+
+    PullPublisher(Supplier<JetStreamSubscription> subscriptionSupplier, JavaType type, NatsCodec codec, int batchSize
+            , Duration maxWait, Executor executor) {
+        this.subscriptionSupplier = subscriptionSupplier;
+        this.type = type;
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.maxWait = maxWait;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        JetStreamSubscription subscription;
+        try {
+            subscription = subscriptionSupplier.get();
+        } catch (RuntimeException e) {
+            subscription = null;
+            LOG.log(Level.SEVERE, "Cannot obtain the JetStream subscription.", e);
+        }
+        if (subscription == null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("JetStream subscription is not available."));
+            return;
+        }
+        subscriber.onSubscribe(new PullSubscription(subscriber, subscription));
+    }
+
+    private class PullSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final JetStreamSubscription subscription;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+
+        private PullSubscription(Flow.Subscriber<? super T> subscriber, JetStreamSubscription subscription) {
+            this.subscriber = subscriber;
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {  // rule 3.9 of the Reactive Streams specification
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Non-positive request " + n + "."));
+                return;
+            }
+            long previous = demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            if (previous == 0) {  // the pull loop is not running
+                schedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::pull);
+            } catch (RejectedExecutionException e) {  // shut down
+                fail(e);
+            }
+        }
+
+        /**
+         * Fetches and emits one batch, then schedules the next fetch while there is demand.
+         */
+        private void pull() {
+            if (cancelled) {
+                return;
+            }
+            int emitted;
+            try {
+                emitted = fetchAndEmit((int) Math.min(demand.get(), batchSize));
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            if (demand.addAndGet(-emitted) > 0 && !cancelled) {
+                schedule();
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onError(e);
+            }
+        }
+
+        private int fetchAndEmit(int count) {
+            List<Message> messages;
+            synchronized (subscription) {  // fetches of the shared subscription must not overlap
+                messages = subscription.fetch(count, maxWait);
+            }
+            int emitted = 0;
+            for (Message message : messages) {
+                if (cancelled) {
+                    message.nak();
+                    continue;
+                }
+                T payload;
+                try {
+                    payload = decode(message);
+                } catch (IOException e) {
+                    LOG.log(Level.SEVERE, String.format("Cannot deserialize the message as class %s for subject %s and connection %s."
+                            , type.getRawClass().getName(), message.getSubject()
+                            , message.getConnection().getConnectedUrl()), e);
+                    message.nak();
+                    continue;
+                }
+                try {
+                    subscriber.onNext(payload);
+                } catch (RuntimeException e) {  // rule 2.13, the subscription is considered cancelled
+                    cancelled = true;
+                    message.nak();
+                    LOG.log(Level.SEVERE, String.format("Subscriber failed to process the message for subject %s."
+                            , message.getSubject()), e);
+                    continue;
+                }
+                message.ack();
+                emitted++;
+            }
+            return emitted;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T decode(Message message) throws IOException {
+            return (T) NatsCodecs.forMessage(message, codec).decode(PayloadCompression.decompress(message), type);
+        }
+    }
+}
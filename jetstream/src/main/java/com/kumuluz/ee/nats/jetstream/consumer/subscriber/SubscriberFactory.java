@@ -32,7 +32,7 @@ import java.util.logging.Logger;
 public class SubscriberFactory {
     private static final Logger LOG = Logger.getLogger(SubscriberFactory.class.getName());
 
-    private static SubscriberFactory instance;
+    private static volatile SubscriberFactory instance;
 
     private static final TwoKeyTable<JetStream, String, JetStreamSubscription> SUBSCRIPTIONS = new TwoKeyTable<>();
 
@@ -52,82 +52,83 @@ public class SubscriberFactory {
         return instance;
     }
 
-    private JetStreamSubscription createSubscription(JetStreamSubscriber jetStreamSubscriberAnnotation, ConsumerConfig consumerConfigAnnotation, JetStream jetStream) {
+    private JetStreamSubscription createSubscription(String connection, String context, String stream, String subject
+            , String durable, boolean bind, ConsumerConfig consumerConfigAnnotation, JetStream jetStream) {
         JetStreamSubscription jetStreamSubscription = null;
 
         //region Validation
-        if (jetStreamSubscriberAnnotation.subject().isEmpty()) {
+        if (subject.isEmpty()) {
             throw new DefinitionException(String.format("Subject was not specified at JetStream subscription for connection %s context %s."
-                    , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context()));
+                    , connection, context));
         }
-        if (jetStreamSubscriberAnnotation.stream().isEmpty()) {
+        if (stream.isEmpty()) {
             throw new DefinitionException(String.format("Stream was not specified at JetStream subscription for connection %s context %s and subject %s."
-                    , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()));
+                    , connection, context, subject));
         }
-        if (jetStreamSubscriberAnnotation.durable().isEmpty()) {
+        if (durable.isEmpty()) {
             throw new DefinitionException(String.format("Durable must be set for pull based subscriptions. Cannot create a JetStream subscription for connection %s context %s and subject %s."
-                    , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()));
+                    , connection, context, subject));
         }
         //endregion
 
         //region Configuration
         PullSubscribeOptions.Builder builder = PullSubscribeOptions.builder()
-                .stream(jetStreamSubscriberAnnotation.stream())
-                .durable(jetStreamSubscriberAnnotation.durable())
-                .bind(jetStreamSubscriberAnnotation.bind());
-        ConnectionConfig connectionConfig = NatsConfigLoader.getInstance().getConfigForConnection(jetStreamSubscriberAnnotation.connection());
+                .stream(stream)
+                .durable(durable)
+                .bind(bind);
+        ConnectionConfig connectionConfig = NatsConfigLoader.getInstance().getConfigForConnection(connection);
         StreamConsumerConfiguration streamConsumerConfiguration = connectionConfig
-                .getStreamConsumerConfiguration(jetStreamSubscriberAnnotation.stream());
+                .getStreamConsumerConfiguration(stream);
         if (streamConsumerConfiguration == null) {  // stream not specified in configuration
             StreamInfo streamInfo = null;
             try {
                 streamInfo = StreamManagement.getStreamInfoOrNullWhenNotExist(NatsConnection
-                        .getConnection(jetStreamSubscriberAnnotation.connection()), jetStreamSubscriberAnnotation.stream());
+                        .getConnection(connection), stream);
             } catch (JetStreamApiException | IOException e) {
                 LOG.log(Level.SEVERE, String.format("There was a problem obtaining stream info for a connection %s context %s and subject %s."
-                        , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()), e);
+                        , connection, context, subject), e);
             }
             if (streamInfo == null) {  // check if stream already exists (was created previously)
                 throw new DefinitionException(String.format("Stream must be set and valid for for connection %s context %s and subject %s."
-                        , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()));
+                        , connection, context, subject));
             }
         } else {  // stream specified in configuration
             Optional<ConsumerConfiguration> consumerConfiguration = streamConsumerConfiguration
-                    .getAndCombineConsumerConfig(NatsConnection.getConnection(jetStreamSubscriberAnnotation.connection())
-                            , jetStreamSubscriberAnnotation.durable(), consumerConfigAnnotation);
+                    .getAndCombineConsumerConfig(NatsConnection.getConnection(connection)
+                            , durable, consumerConfigAnnotation);
             consumerConfiguration.ifPresent(builder::configuration);
         }
         PullSubscribeOptions pullSubscribeOptions = builder.build();
         //endregion
 
         try {
-            jetStreamSubscription = jetStream.subscribe(jetStreamSubscriberAnnotation.subject(), pullSubscribeOptions);
+            jetStreamSubscription = jetStream.subscribe(subject, pullSubscribeOptions);
             LOG.info(String.format("JetStream subscription for connection %s context %s and subject %s was created successfully."
-                    , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()));
+                    , connection, context, subject));
         } catch (IOException | JetStreamApiException e) {
             LOG.log(Level.SEVERE, String.format("Cannot create JetStream subscription for a connection %s context %s and subject %s."
-                    , jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context(), jetStreamSubscriberAnnotation.subject()), e);
+                    , connection, context, subject), e);
         }
         return jetStreamSubscription;
     }
 
     public JetStreamSubscription getSubscription(JetStreamSubscriber jetStreamSubscriberAnnotation, ConsumerConfig consumerConfigAnnotation) {
+        return getSubscription(jetStreamSubscriberAnnotation.connection(), jetStreamSubscriberAnnotation.context()
+                , jetStreamSubscriberAnnotation.stream(), jetStreamSubscriberAnnotation.subject()
+                , jetStreamSubscriberAnnotation.durable(), jetStreamSubscriberAnnotation.bind(), consumerConfigAnnotation);
+    }
+
+    public JetStreamSubscription getSubscription(String connection, String context, String stream, String subject
+            , String durable, boolean bind, ConsumerConfig consumerConfigAnnotation) {
         if (!JetStreamExtension.isExtensionEnabled()) {
             return null;
         }
 
-        JetStream jetStream = ContextFactory.getInstance().getContext(jetStreamSubscriberAnnotation.connection()
-                , jetStreamSubscriberAnnotation.context());
+        JetStream jetStream = ContextFactory.getInstance().getContext(connection, context);
         if (jetStream == null) {
             return null;
         }
-        if (!SUBSCRIPTIONS.contains(jetStream, jetStreamSubscriberAnnotation.subject())) {
-            JetStreamSubscription jetStreamSubscription = createSubscription(jetStreamSubscriberAnnotation
-                    , consumerConfigAnnotation, jetStream);
-            if (jetStreamSubscription != null) {
-                SUBSCRIPTIONS.put(jetStream, jetStreamSubscriberAnnotation.subject(), jetStreamSubscription);
-            }
-        }
-        return SUBSCRIPTIONS.get(jetStream, jetStreamSubscriberAnnotation.subject());
+        return SUBSCRIPTIONS.computeIfAbsent(jetStream, subject, (js, s) -> createSubscription(connection, context
+                , stream, s, durable, bind, consumerConfigAnnotation, js));
     }
 }
@@ -1,12 +1,22 @@
 package com.kumuluz.ee.nats.jetstream.consumer.subscriber;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.kumuluz.ee.nats.common.annotations.ConsumerConfig;
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.common.util.SerDes;
 import com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubscriber;
 import io.nats.client.JetStreamSubscription;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.InjectionPoint;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Flow;
 
 /**
  * Producer for {@link JetStreamSubscriber} annotation.
@@ -28,4 +38,45 @@ public class SubscriberInitializer {
         }
         return SubscriberFactory.getInstance().getSubscription(jetStreamSubscriberAnnotation, consumerConfigAnnotation);
     }
+
+    @Produces
+    @JetStreamSubscriber
+    @ConsumerConfig
+    public static <T> Flow.Publisher<T> getPublisher(InjectionPoint injectionPoint) {
+        JetStreamSubscriber jetStreamSubscriberAnnotation = injectionPoint.getAnnotated().getAnnotation(JetStreamSubscriber.class);
+        ConsumerConfig consumerConfigAnnotation = null;
+        if (injectionPoint.getAnnotated().isAnnotationPresent(ConsumerConfig.class)) {
+            consumerConfigAnnotation = injectionPoint.getAnnotated().getAnnotation(ConsumerConfig.class);
+        }
+
+        //region Validation
+        String member = injectionPoint.getMember() != null ? injectionPoint.getMember().getName() : "";
+        String declaringClass = injectionPoint.getMember() != null ? injectionPoint.getMember().getDeclaringClass().getName() : "";
+        if (jetStreamSubscriberAnnotation.batchSize() < 1) {
+            throw new DefinitionException(String.format("Batch size of JetStream subscriber %s in class %s must be at least 1."
+                    , member, declaringClass));
+        }
+        Duration maxWait;
+        try {
+            maxWait = Duration.parse(jetStreamSubscriberAnnotation.maxWait());
+        } catch (DateTimeParseException e) {
+            throw new DefinitionException(String.format("Invalid max wait %s at JetStream subscriber %s in class %s."
+                    , jetStreamSubscriberAnnotation.maxWait(), member, declaringClass), e);
+        }
+        NatsCodec codec = jetStreamSubscriberAnnotation.codec().isEmpty() ? NatsCodecs.getDefault()
+                : NatsCodecs.get(jetStreamSubscriberAnnotation.codec());
+        if (codec == null) {
+            throw new DefinitionException(String.format("Codec %s at JetStream subscriber %s in class %s is not available."
+                    , jetStreamSubscriberAnnotation.codec(), member, declaringClass));
+        }
+        //endregion
+
+        Type type = injectionPoint.getType();
+        JavaType payloadType = SerDes.getTypeFactory().constructType(type instanceof ParameterizedType
+                ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class);
+        codec.prepare(payloadType);
+        ConsumerConfig consumerConfig = consumerConfigAnnotation;
+        return new PullPublisher<>(() -> SubscriberFactory.getInstance().getSubscription(jetStreamSubscriberAnnotation
+                , consumerConfig), payloadType, codec, jetStreamSubscriberAnnotation.batchSize(), maxWait);
+    }
 }
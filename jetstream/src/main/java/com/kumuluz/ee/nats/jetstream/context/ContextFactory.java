@@ -3,6 +3,7 @@ package com.kumuluz.ee.nats.jetstream.context;
 import com.kumuluz.ee.nats.common.connection.NatsConnection;
 import com.kumuluz.ee.nats.common.connection.config.ConnectionConfig;
 import com.kumuluz.ee.nats.common.connection.config.NatsConfigLoader;
+import com.kumuluz.ee.nats.common.connection.config.PublishWindowConfig;
 import com.kumuluz.ee.nats.jetstream.JetStreamExtension;
 import com.kumuluz.ee.nats.jetstream.util.TwoKeyTable;
 import io.nats.client.Connection;
@@ -10,6 +11,7 @@ import io.nats.client.JetStream;
 import io.nats.client.JetStreamOptions;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,9 +25,10 @@ public class ContextFactory {
 
     private static final Logger LOG = Logger.getLogger(ContextFactory.class.getName());
 
-    private static ContextFactory instance;
+    private static volatile ContextFactory instance;
 
     private static final TwoKeyTable<String, String, JetStream> JET_STREAM_CONTEXTS = new TwoKeyTable<>();
+    private static final TwoKeyTable<String, String, PublishWindow> PUBLISH_WINDOWS = new TwoKeyTable<>();
 
     public ContextFactory() {
     }
@@ -74,13 +77,32 @@ public class ContextFactory {
             return null;
         }
 
-        if (!JET_STREAM_CONTEXTS.contains(connectionName, contextName)) {
-            JetStream jetStream = createContext(connectionName, contextName);
-            if (jetStream != null) {
-                JET_STREAM_CONTEXTS.put(connectionName, contextName, jetStream);
+        return JET_STREAM_CONTEXTS.computeIfAbsent(connectionName, contextName, this::createContext);
+    }
+
+    private PublishWindow createPublishWindow(String connectionName, String contextName) {
+        ConnectionConfig config = NatsConfigLoader.getInstance().getConfigForConnection(connectionName);
+        PublishWindowConfig publishWindowConfig = null;
+        Duration timeout = null;
+        if (config != null) {
+            publishWindowConfig = config.getPublishWindowConfigs().get(contextName);
+            JetStreamOptions jetStreamOptions = config.getJetStreamContextOptions().get(contextName);
+            if (jetStreamOptions != null) {
+                timeout = jetStreamOptions.getRequestTimeout();
             }
         }
-        return JET_STREAM_CONTEXTS.get(connectionName, contextName);
+        return new PublishWindow(connectionName, contextName
+                , publishWindowConfig != null ? publishWindowConfig : PublishWindowConfig.UNBOUNDED
+                , timeout != null ? timeout : JetStreamOptions.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param connectionName name of the connection
+     * @param contextName    name of the JetStream context
+     * @return the window of asynchronous publishes of the context
+     */
+    public PublishWindow getPublishWindow(String connectionName, String contextName) {
+        return PUBLISH_WINDOWS.computeIfAbsent(connectionName, contextName, this::createPublishWindow);
     }
 
 }
@@ -0,0 +1,255 @@
+package com.kumuluz.ee.nats.jetstream.context;
+
+import com.kumuluz.ee.nats.common.connection.config.BackpressureMode;
+import com.kumuluz.ee.nats.common.connection.config.PublishWindowConfig;
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.api.PublishAck;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of asynchronous publishes of a JetStream context which are waiting for their acks.
+ * When the window is full, the publish blocks, fails fast or drops the oldest outstanding publish from the window,
+ * depending on the {@link BackpressureMode}. A publish holds its slot until the server acks it, the ack times out or
+ * the publish is dropped. Also keeps the in-flight count and the ack latency of the context.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PublishWindow {
+
+    private final String connectionName;
+    private final String contextName;
+    private final int maxInFlight;
+    private final BackpressureMode backpressure;
+    private final long timeoutNanos;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Slot> outstanding = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger orphaned = new AtomicInteger();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder ackLatencyTotal = new LongAdder();
+    private final LongAccumulator ackLatencyMax = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Slot of a publish in the window, released once by either the ack or the drop of the publish.
+     */
+    private static final class Slot {
+        private final CompletableFuture<PublishAck> future = new CompletableFuture<>();
+        private final AtomicBoolean held = new AtomicBoolean(true);
+    }
+
+    /**
+     * @param connectionName name of the connection
+     * @param contextName    name of the JetStream context
+     * @param config         publish window settings of the context
+     * @param timeout        the longest a publish waits for a free slot in the {@link BackpressureMode#BLOCK} mode
+     */
+    PublishWindow(String connectionName, String contextName, PublishWindowConfig config, Duration timeout) {
+        this.connectionName = connectionName;
+        this.contextName = contextName;
+        this.maxInFlight = Math.max(config.getMaxInFlight(), 0);
+        this.backpressure = config.getBackpressure();
+        this.timeoutNanos = timeout.toNanos();
+        this.permits = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+    }
+
+    /**
+     * Publishes the message asynchronously once there is a free slot in the window.
+     *
+     * @param jetStream JetStream context
+     * @param message   message to publish
+     * @return future of the ack; completed exceptionally with a {@link RejectedExecutionException} if the window
+     * stayed full, or cancelled if a newer publish dropped it from the window in the {@link BackpressureMode#DROP_OLDEST}
+     * mode
+     */
+    public CompletableFuture<PublishAck> publishAsync(JetStream jetStream, Message message) {
+        if (permits != null && !acquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(String
+                    .format("Publish window of JetStream context %s for connection %s is full (%d publishes in flight)."
+                            , contextName, connectionName, maxInFlight)));
+        }
+
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        Slot slot = new Slot();
+        CompletableFuture<PublishAck> ack;
+        try {
+            ack = jetStream.publishAsync(message);
+        } catch (RuntimeException e) {
+            release(slot);
+            throw e;
+        }
+        if (backpressure == BackpressureMode.DROP_OLDEST) {
+            outstanding.add(slot);
+        }
+        ack.whenComplete((publishAck, e) -> {
+            if (!release(slot)) {  // dropped before, only its ack was still outstanding
+                orphaned.decrementAndGet();
+            }
+            if (e == null) {
+                long latency = System.nanoTime() - start;
+                ackLatencyTotal.add(latency);
+                ackLatencyMax.accumulate(latency);
+                acked.increment();
+                slot.future.complete(publishAck);
+            } else {
+                failed.increment();
+                slot.future.completeExceptionally(e);
+            }
+        });
+        return slot.future;
+    }
+
+    private boolean acquire() {
+        switch (backpressure) {
+            case FAIL_FAST:
+                return permits.tryAcquire();
+            case DROP_OLDEST:
+                while (!permits.tryAcquire()) {
+                    if (!dropOldest()) {  // the slots are not held by the publishes of this window yet
+                        return tryAcquire();
+                    }
+                }
+                return true;
+            case BLOCK:
+            default:
+                return tryAcquire();
+        }
+    }
+
+    /**
+     * Frees the slot of the oldest outstanding publish and cancels its future. The message is not withdrawn, its ack
+     * is still awaited, but it no longer counts towards the window.
+     *
+     * @return whether a slot was freed
+     */
+    private boolean dropOldest() {
+        Slot oldest;
+        while ((oldest = outstanding.poll()) != null) {
+            if (release(oldest)) {
+                orphaned.incrementAndGet();
+                dropped.increment();
+                oldest.future.cancel(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the slot was still held, false if it was released before
+     */
+    private boolean release(Slot slot) {
+        if (!slot.held.compareAndSet(true, false)) {
+            return false;
+        }
+        inFlight.decrementAndGet();
+        if (backpressure == BackpressureMode.DROP_OLDEST) {
+            outstanding.remove(slot);
+        }
+        if (permits != null) {
+            permits.release();
+        }
+        return true;
+    }
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public String getContextName() {
+        return contextName;
+    }
+
+    /**
+     * @return maximum number of publishes waiting for their acks, 0 means unbounded
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public BackpressureMode getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * @return number of publishes currently holding a slot of the window
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of publishes dropped from the window whose acks are still outstanding
+     */
+    public int getOrphaned() {
+        return orphaned.get();
+    }
+
+    /**
+     * @return average time between the publish and its ack
+     */
+    public Duration getAverageAckLatency() {
+        long count = acked.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(ackLatencyTotal.sum() / count);
+    }
+
+    /**
+     * @return the longest time between a publish and its ack
+     */
+    public Duration getMaxAckLatency() {
+        return Duration.ofNanos(ackLatencyMax.get());
+    }
+
+    /**
+     * @return number of acknowledged publishes
+     */
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    /**
+     * @return number of publishes which completed with an error, including the ack timeouts
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return number of publishes dropped from the window in favour of newer ones
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of publishes rejected because the window was full
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
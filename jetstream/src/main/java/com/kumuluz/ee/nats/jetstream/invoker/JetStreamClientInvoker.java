@@ -1,22 +1,26 @@
 package com.kumuluz.ee.nats.jetstream.invoker;
 
-import com.kumuluz.ee.nats.common.connection.config.SingleConnectionConfig;
-import com.kumuluz.ee.nats.common.exception.DefinitionException;
-import com.kumuluz.ee.nats.common.util.SerDes;
-import com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubject;
-import com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.reactive.FuturePublisher;
 import com.kumuluz.ee.nats.jetstream.context.ContextFactory;
+import com.kumuluz.ee.nats.jetstream.msgid.MessageIds;
+import com.kumuluz.ee.nats.jetstream.wrappers.BatchPublishResult;
 import io.nats.client.JetStream;
 import io.nats.client.Message;
 import io.nats.client.api.PublishAck;
 import io.nats.client.impl.Headers;
 import io.nats.client.impl.NatsMessage;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -29,114 +33,144 @@ public class JetStreamClientInvoker implements InvocationHandler {
 
     private static final Logger LOG = Logger.getLogger(JetStreamClientInvoker.class.getName());
 
+    /**
+     * Builds the message of an item of a batch.
+     */
+    @FunctionalInterface
+    interface MessageFactory {
+        Message create(Object item) throws IOException;
+    }
+
+    /**
+     * The plan of a method is created on its first invocation, so an invalid method does not fail the injection.
+     */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        String connectionName = getAnnotatedConnection(method);
-        String contextName = getContext(method);
-        String subjectName = getAnnotatedSubject(method, args);
-        boolean uniqueHeader = isHeaderUnique(method);
-        Object payload = getPayload(method, args);
-        Class<?> returnType = method.getReturnType();
-
-        JetStream jetStream = ContextFactory.getInstance().getContext(connectionName, contextName);
-        if (jetStream == null) {
-            LOG.severe(String.format("Cannot invoke JetStream Client method %s in class %s for connection %s and context %s, because the connection was not established."
-                    , method.getName(), method.getDeclaringClass().getName(), connectionName, contextName));
-            return null;
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (declaringClass.equals(Object.class)) {
+            return method.invoke(this, args);
         }
-
-        NatsMessage.Builder builder = NatsMessage.builder();
-        builder.data(SerDes.serialize(payload));
-        builder.subject(subjectName);
-        if (uniqueHeader) {
-            String uniqueID = UUID.randomUUID().toString();
-            Headers headers = new Headers().add("Nats-Msg-Id", uniqueID);
-            builder.headers(headers);
+        if (declaringClass.equals(Closeable.class) || declaringClass.equals(AutoCloseable.class)) {
+            return null;
         }
-        Message message = builder.build();
 
-        if (returnType.equals(PublishAck.class)) {  // synchronous publishing
-            return jetStream.publish(message);
-        } else {  // asynchronous publishing
-            // we validated the correctness of the interface before (we know the type can only be CompletableFuture<PublishAck>)
-            return jetStream.publishAsync(message);
-        }
+        PublishPlan plan = PublishPlan.of(method);
+        return execute(plan, plan.getSubject(args), plan.getPayload(args), plan.getMessageId(args));
     }
 
-    private String getAnnotatedConnection(Method method) {
-        String connectionName;
-
-        // declaring class annotation
-        RegisterJetStreamClient registerJetStreamClientAnnotation = method.getDeclaringClass()
-                .getAnnotation(RegisterJetStreamClient.class);
-        connectionName = registerJetStreamClientAnnotation.connection();
+    /**
+     * Publishes the payload as described by the publish plan. Shared by the proxy and the generated JetStream Client
+     * implementations.
+     *
+     * @param plan    publish plan of the client method
+     * @param subject subject to publish the message to
+     * @param payload message payload
+     * @return {@link PublishAck}, its future or the future of the {@link BatchPublishResult}
+     * @throws Exception if the message cannot be serialized or published
+     */
+    public static Object execute(PublishPlan plan, String subject, Object payload) throws Exception {
+        return execute(plan, subject, payload, null);
+    }
 
-        // method annotation variables
-        JetStreamSubject jetStreamSubjectAnnotation = method.getAnnotation(JetStreamSubject.class);
-        if (jetStreamSubjectAnnotation != null && !jetStreamSubjectAnnotation.connection().isEmpty()) {
-            connectionName = jetStreamSubjectAnnotation.connection();
+    /**
+     * Publishes the payload as described by the publish plan, with the value of the
+     * {@link com.kumuluz.ee.nats.jetstream.annotations.MessageId} parameter.
+     *
+     * @param plan      publish plan of the client method
+     * @param subject   subject to publish the message to
+     * @param payload   message payload
+     * @param messageId value of the message ID parameter or null
+     * @return {@link PublishAck}, its future or publisher, or the future of the {@link BatchPublishResult}
+     * @throws Exception if the message cannot be serialized or published
+     */
+    public static Object execute(PublishPlan plan, String subject, Object payload, Object messageId) throws Exception {
+        Method method = plan.getMethod();
+        JetStream jetStream = plan.getJetStream();
+        if (jetStream == null) {
+            jetStream = ContextFactory.getInstance().getContext(plan.getConnectionName(), plan.getContextName());
+            if (jetStream == null) {
+                LOG.severe(String.format("Cannot invoke JetStream Client method %s in class %s for connection %s and context %s, because the connection was not established."
+                        , method.getName(), method.getDeclaringClass().getName(), plan.getConnectionName(), plan.getContextName()));
+                return null;
+            }
         }
 
-        if (connectionName.isEmpty()) {
-            connectionName = SingleConnectionConfig.DEFAULT_NAME;
+        if (plan.isBatch()) {
+            JetStream context = jetStream;
+            return publishAll(message -> plan.getPublishWindow().publishAsync(context, message), (List<?>) payload
+                    , item -> buildMessage(plan, subject, item, null));
         }
 
-        return connectionName;
-    }
-
-    private String getContext(Method method) {
-        String contextName;
-
-        // declaring class annotation
-        RegisterJetStreamClient registerJetStreamClientAnnotation = method.getDeclaringClass()
-                .getAnnotation(RegisterJetStreamClient.class);
-        contextName = registerJetStreamClientAnnotation.context();
-
-        // method annotation variables
-        JetStreamSubject jetStreamSubjectAnnotation = method.getAnnotation(JetStreamSubject.class);
-        if (jetStreamSubjectAnnotation != null && !jetStreamSubjectAnnotation.context().isEmpty()) {
-            contextName = jetStreamSubjectAnnotation.context();
+        if (plan.isReactive()) {  // published once the subscriber requests the ack
+            JetStream context = jetStream;
+            return new FuturePublisher<>(() -> {
+                try {
+                    return plan.getPublishWindow().publishAsync(context, buildMessage(plan, subject, payload, messageId));
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            });
         }
 
-        if (contextName.isEmpty()) {
-            contextName = "default";
+        Message message = buildMessage(plan, subject, payload, messageId);
+        if (plan.isSynchronous()) {  // synchronous publishing
+            return jetStream.publish(message);
+        } else {  // asynchronous publishing
+            return plan.getPublishWindow().publishAsync(jetStream, message);
         }
-
-        return contextName;
     }
 
-    private String getAnnotatedSubject(Method method, Object[] args) {
-        String subject = null;
-        // method annotation
-        JetStreamSubject jetStreamSubjectAnnotation = method.getAnnotation(JetStreamSubject.class);
-        if (jetStreamSubjectAnnotation != null) {
-            subject = jetStreamSubjectAnnotation.value();
-        }
-        // parameter annotation - overrides the method annotation value if both exists
-        Parameter[] parameters = method.getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            if (parameters[i].isAnnotationPresent(JetStreamSubject.class)) {
-                return (String) args[i];
+    /**
+     * Publishes every item of the list asynchronously without waiting for the acks in between, and combines the acks
+     * into one result. An item which cannot be serialized or published is recorded as a failure of the batch.
+     */
+    static CompletableFuture<BatchPublishResult> publishAll(Function<Message, CompletableFuture<PublishAck>> publisher
+            , List<?> items, MessageFactory messageFactory) {
+        List<CompletableFuture<PublishAck>> futures = new ArrayList<>(items.size());
+        for (Object item : items) {
+            CompletableFuture<PublishAck> future;
+            try {
+                future = publisher.apply(messageFactory.create(item));
+            } catch (IOException | RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
             }
+            futures.add(future);
         }
-        return subject;
-    }
 
-    private boolean isHeaderUnique(Method method) {
-        JetStreamSubject jetStreamSubjectAnnotation = method.getAnnotation(JetStreamSubject.class);
-        if (jetStreamSubjectAnnotation != null) {
-            return jetStreamSubjectAnnotation.uniqueMessageHeader();
-        }
-        return false;
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((x, e) -> {
+                    List<PublishAck> acks = new ArrayList<>(futures.size());
+                    List<Throwable> failures = new ArrayList<>(futures.size());
+                    for (CompletableFuture<PublishAck> future : futures) {
+                        try {
+                            acks.add(future.join());
+                            failures.add(null);
+                        } catch (CompletionException | CancellationException ex) {
+                            acks.add(null);
+                            failures.add(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                        }
+                    }
+                    return new BatchPublishResult(acks, failures);
+                });
     }
 
-    private Object getPayload(Method method, Object[] args) {
-        int index = 0;
-        for (int i = 0; i < method.getParameters().length; i++) {
-            if (!method.getParameters()[i].isAnnotationPresent(JetStreamSubject.class)) {
-                index = i;
-            }
+    private static Message buildMessage(PublishPlan plan, String subject, Object payload, Object messageId)
+            throws IOException {
+        byte[] data = plan.getCodec().encode(payload);
+        Headers headers = null;
+        String id = MessageIds.generate(plan.getMessageIdStrategy(), subject, payload, data, messageId);
+        if (id != null) {
+            headers = new Headers().add(MessageIds.MESSAGE_ID_HEADER, id);
+        }
+        headers = NatsCodecs.advertise(headers, plan.getCodec());
+        if (plan.getCompression().applies(data)) {
+            data = plan.getCompression().compress(data);
+            headers = plan.getCompression().advertise(headers);
         }
-        return args[index];
+        NatsMessage.Builder builder = NatsMessage.builder();
+        builder.data(data);
+        builder.subject(subject);
+        builder.headers(headers);
+        return builder.build();
     }
 }
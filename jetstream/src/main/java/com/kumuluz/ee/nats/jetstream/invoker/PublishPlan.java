@@ -0,0 +1,252 @@
+package com.kumuluz.ee.nats.jetstream.invoker;
+
+import com.kumuluz.ee.nats.common.codec.NatsCodec;
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.compression.CompressionType;
+import com.kumuluz.ee.nats.common.compression.PayloadCompression;
+import com.kumuluz.ee.nats.common.connection.config.SingleConnectionConfig;
+import com.kumuluz.ee.nats.common.exception.DefinitionException;
+import com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubject;
+import com.kumuluz.ee.nats.jetstream.annotations.MessageId;
+import com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient;
+import com.kumuluz.ee.nats.jetstream.context.ContextFactory;
+import com.kumuluz.ee.nats.jetstream.context.PublishWindow;
+import com.kumuluz.ee.nats.jetstream.msgid.MessageIdStrategy;
+import com.kumuluz.ee.nats.jetstream.wrappers.BatchPublishResult;
+import io.nats.client.JetStream;
+import io.nats.client.api.PublishAck;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Immutable, precomputed description of how a JetStream Client method publishes a message.
+ * Holds the already resolved {@link JetStream} context and {@link NatsCodec}, so that publishing only pays
+ * for the serialization and the network write.
+ *
+ * @author Matej Bizjak
+ */
+
+public final class PublishPlan {
+
+    private static final Map<Method, PublishPlan> PLANS = new ConcurrentHashMap<>();
+
+    private final Method method;
+    private final String connectionName;
+    private final String contextName;
+    private final String subject;
+    private final int subjectIndex;
+    private final int payloadIndex;
+    private final int messageIdIndex;
+    private final MessageIdStrategy messageIdStrategy;
+    private final boolean uniqueMessageHeader;
+    private final boolean synchronous;
+    private final boolean batch;
+    private final boolean reactive;
+    private final NatsCodec codec;
+    private final PayloadCompression compression;
+    private final JetStream jetStream;
+    private final PublishWindow publishWindow;
+
+    private PublishPlan(Method method) {
+        this.method = method;
+
+        RegisterJetStreamClient registerJetStreamClientAnnotation = method.getDeclaringClass()
+                .getAnnotation(RegisterJetStreamClient.class);
+        JetStreamSubject jetStreamSubjectAnnotation = method.getAnnotation(JetStreamSubject.class);
+
+        String connectionName = registerJetStreamClientAnnotation != null ? registerJetStreamClientAnnotation.connection() : "";
+        String contextName = registerJetStreamClientAnnotation != null ? registerJetStreamClientAnnotation.context() : "";
+        if (jetStreamSubjectAnnotation != null && !jetStreamSubjectAnnotation.connection().isEmpty()) {
+            connectionName = jetStreamSubjectAnnotation.connection();
+        }
+        if (jetStreamSubjectAnnotation != null && !jetStreamSubjectAnnotation.context().isEmpty()) {
+            contextName = jetStreamSubjectAnnotation.context();
+        }
+        this.connectionName = connectionName.isEmpty() ? SingleConnectionConfig.DEFAULT_NAME : connectionName;
+        this.contextName = contextName.isEmpty() ? "default" : contextName;
+
+        this.subject = jetStreamSubjectAnnotation != null ? jetStreamSubjectAnnotation.value() : null;
+        this.uniqueMessageHeader = jetStreamSubjectAnnotation != null && jetStreamSubjectAnnotation.uniqueMessageHeader();
+
+        // parameter annotation - overrides the method annotation value if both exists
+        int subjectIndex = -1;
+        int payloadIndex = 0;
+        int messageIdIndex = -1;
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(JetStreamSubject.class)) {
+                if (subjectIndex < 0) {
+                    subjectIndex = i;
+                }
+            } else if (parameters[i].isAnnotationPresent(MessageId.class)) {
+                messageIdIndex = i;
+            } else {
+                payloadIndex = i;
+            }
+        }
+        this.subjectIndex = subjectIndex;
+        this.payloadIndex = payloadIndex;
+        this.messageIdIndex = messageIdIndex;
+
+        // we validated the correctness of the interface before (the type is either PublishAck, CompletableFuture<PublishAck>,
+        // CompletableFuture<BatchPublishResult> or Flow.Publisher<PublishAck>)
+        this.synchronous = method.getReturnType().equals(PublishAck.class);
+        this.reactive = method.getReturnType().equals(Flow.Publisher.class);
+        this.batch = method.getGenericReturnType() instanceof ParameterizedType
+                && BatchPublishResult.class.equals(((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0]);
+        this.messageIdStrategy = resolveMessageIdStrategy(method, jetStreamSubjectAnnotation);
+        this.codec = NatsCodecs.resolve(jetStreamSubjectAnnotation != null ? jetStreamSubjectAnnotation.codec() : "", method);
+        this.compression = jetStreamSubjectAnnotation != null ? PayloadCompression.resolve(jetStreamSubjectAnnotation.compression()
+                , jetStreamSubjectAnnotation.compressionThreshold(), this.connectionName, method)
+                : PayloadCompression.resolve(CompressionType.DEFAULT, -1, this.connectionName, method);
+        this.jetStream = ContextFactory.getInstance().getContext(this.connectionName, this.contextName);
+        this.publishWindow = ContextFactory.getInstance().getPublishWindow(this.connectionName, this.contextName);
+    }
+
+    private MessageIdStrategy resolveMessageIdStrategy(Method method, JetStreamSubject jetStreamSubjectAnnotation) {
+        MessageIdStrategy strategy = jetStreamSubjectAnnotation != null ? jetStreamSubjectAnnotation.messageId()
+                : MessageIdStrategy.DEFAULT;
+        if (strategy == MessageIdStrategy.DEFAULT) {
+            if (uniqueMessageHeader) {
+                strategy = MessageIdStrategy.RANDOM;
+            } else if (messageIdIndex >= 0) {
+                strategy = MessageIdStrategy.FIELD;
+            }
+        }
+        if (messageIdIndex >= 0 && (strategy != MessageIdStrategy.FIELD || batch)) {
+            throw new DefinitionException(String.format("The @MessageId parameter of JetStream client's method %s in class %s can only be used with the FIELD message ID strategy and a single payload."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+        return strategy;
+    }
+
+    /**
+     * Returns the plan for the method with the given name and parameter types, creating it on the first call.
+     * Used by the generated JetStream Client implementations.
+     *
+     * @param aClass         interface annotated with {@link RegisterJetStreamClient}
+     * @param name           method name
+     * @param parameterTypes method parameter types
+     * @return the publish plan
+     */
+    public static PublishPlan of(Class<?> aClass, String name, Class<?>... parameterTypes) {
+        Method method;
+        try {
+            method = aClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new DefinitionException(String.format("JetStream client's method %s in class %s does not exist."
+                    , name, aClass.getName()), e);
+        }
+        return of(method);
+    }
+
+    /**
+     * Returns the plan for the given method, creating it on the first call. A plan whose JetStream context could not
+     * be created is not cached, so the context is resolved again on the next call.
+     *
+     * @param method JetStream Client method
+     * @return the publish plan
+     */
+    static PublishPlan of(Method method) {
+        PublishPlan[] uncached = new PublishPlan[1];
+        PublishPlan plan = PLANS.computeIfAbsent(method, m -> {
+            PublishPlan created = new PublishPlan(m);
+            if (created.jetStream == null) {
+                uncached[0] = created;
+                return null;
+            }
+            return created;
+        });
+        return plan != null ? plan : uncached[0];
+    }
+
+    /**
+     * @return the subject from the method annotation
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getSubject(Object[] args) {
+        if (subjectIndex >= 0) {
+            return (String) args[subjectIndex];
+        }
+        return subject;
+    }
+
+    public Object getPayload(Object[] args) {
+        return args[payloadIndex];
+    }
+
+    /**
+     * @return value of the {@link MessageId} parameter or null if the method does not have one
+     */
+    public Object getMessageId(Object[] args) {
+        return messageIdIndex >= 0 ? args[messageIdIndex] : null;
+    }
+
+    public MessageIdStrategy getMessageIdStrategy() {
+        return messageIdStrategy;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public String getContextName() {
+        return contextName;
+    }
+
+    public boolean isUniqueMessageHeader() {
+        return uniqueMessageHeader;
+    }
+
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * @return true if the method publishes every item of the payload list as a separate message
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * @return true if the method returns a {@link Flow.Publisher} of the ack
+     */
+    public boolean isReactive() {
+        return reactive;
+    }
+
+    public NatsCodec getCodec() {
+        return codec;
+    }
+
+    public PayloadCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return the resolved JetStream context or null if it could not be created when the plan was created
+     */
+    public JetStream getJetStream() {
+        return jetStream;
+    }
+
+    /**
+     * @return window of the asynchronous publishes of the context
+     */
+    public PublishWindow getPublishWindow() {
+        return publishWindow;
+    }
+}
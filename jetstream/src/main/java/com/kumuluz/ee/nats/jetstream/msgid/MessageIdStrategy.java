@@ -0,0 +1,32 @@
+package com.kumuluz.ee.nats.jetstream.msgid;
+
+/**
+ * How the message ID (Nats-Msg-Id header) of a published message is generated.
+ * Only the IDs derived from the message itself make the server deduplicate a retried publish.
+ *
+ * @author Matej Bizjak
+ */
+
+public enum MessageIdStrategy {
+    /**
+     * {@link #RANDOM} if the unique message header is enabled, the value of the {@link
+     * com.kumuluz.ee.nats.jetstream.annotations.MessageId} parameter if the method has one, otherwise no ID.
+     */
+    DEFAULT,
+    /**
+     * Random UUID from a non-cryptographic generator.
+     */
+    RANDOM,
+    /**
+     * Monotonic sequence prefixed with a random instance ID.
+     */
+    SEQUENCE,
+    /**
+     * Hash of the subject and the serialized payload.
+     */
+    HASH,
+    /**
+     * Value of the {@link com.kumuluz.ee.nats.jetstream.annotations.MessageId} parameter or payload field.
+     */
+    FIELD
+}
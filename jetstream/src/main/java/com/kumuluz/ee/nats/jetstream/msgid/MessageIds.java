@@ -0,0 +1,200 @@
+package com.kumuluz.ee.nats.jetstream.msgid;
+
+import com.kumuluz.ee.nats.common.exception.InvocationException;
+import com.kumuluz.ee.nats.jetstream.annotations.MessageId;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the message IDs (Nats-Msg-Id header) of the published messages by a {@link MessageIdStrategy}.
+ *
+ * @author Matej Bizjak
+ */
+
+public final class MessageIds {
+
+    public static final String MESSAGE_ID_HEADER = "Nats-Msg-Id";
+
+    private static final String INSTANCE_ID = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final ClassValue<MethodHandle> FIELD_GETTERS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(MessageId.class)) {
+                        try {
+                            field.setAccessible(true);
+                            return MethodHandles.lookup().unreflectGetter(field);
+                        } catch (ReflectiveOperationException | RuntimeException e) {
+                            throw new InvocationException(String.format("Cannot access the message ID field %s of class %s."
+                                    , field.getName(), type.getName()), e);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private MessageIds() {
+    }
+
+    /**
+     * @param strategy  message ID strategy, resolved from {@link MessageIdStrategy#DEFAULT}
+     * @param subject   subject of the message
+     * @param payload   payload of the message
+     * @param data      serialized payload
+     * @param messageId value of the {@link MessageId} parameter or null
+     * @return the message ID or null if the message has none
+     */
+    public static String generate(MessageIdStrategy strategy, String subject, Object payload, byte[] data, Object messageId) {
+        switch (strategy) {
+            case RANDOM:
+                return random();
+            case SEQUENCE:
+                return sequence();
+            case HASH:
+                return hash(subject, data);
+            case FIELD:
+                return messageId != null ? messageId.toString() : field(payload);
+            case DEFAULT:
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return random UUID; unlike {@link UUID#randomUUID()} it does not contend on a shared SecureRandom
+     */
+    public static String random() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;  // version 4
+        long lsb = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);  // IETF variant
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * @return the next value of the monotonic sequence of this instance
+     */
+    public static String sequence() {
+        return INSTANCE_ID + "-" + SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * @return 128-bit hash of the subject and the serialized payload, as 32 hexadecimal digits
+     */
+    public static String hash(String subject, byte[] data) {
+        byte[] subjectBytes = subject.getBytes(StandardCharsets.UTF_8);
+        long seed = xxHash64(subjectBytes, 0);
+        return String.format("%016x%016x", xxHash64(data, seed), xxHash64(data, seed ^ PRIME5));
+    }
+
+    /**
+     * @return value of the payload field annotated with {@link MessageId}
+     */
+    public static String field(Object payload) {
+        if (payload == null) {
+            throw new InvocationException("Cannot read the message ID of a null payload.");
+        }
+        MethodHandle getter = FIELD_GETTERS.get(payload.getClass());
+        if (getter == null) {
+            throw new InvocationException(String.format("Class %s has no field annotated with @MessageId."
+                    , payload.getClass().getName()));
+        }
+        Object value;
+        try {
+            value = getter.invoke(payload);
+        } catch (Throwable e) {
+            throw new InvocationException(String.format("Cannot read the message ID of class %s."
+                    , payload.getClass().getName()), e);
+        }
+        if (value == null) {
+            throw new InvocationException(String.format("The message ID field of class %s is null."
+                    , payload.getClass().getName()));
+        }
+        return value.toString();
+    }
+
+    /**
+     * XXH64 hash of the data.
+     */
+    static long xxHash64(byte[] data, long seed) {
+        int length = data.length;
+        int i = 0;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            for (int limit = length - 32; i <= limit; i += 32) {
+                v1 = round(v1, readLong(data, i));
+                v2 = round(v2, readLong(data, i + 8));
+                v3 = round(v3, readLong(data, i + 16));
+                v4 = round(v4, readLong(data, i + 24));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += length;
+
+        for (; i + 8 <= length; i += 8) {
+            hash ^= round(0, readLong(data, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= length) {
+            hash ^= (readInt(data, i) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            hash ^= (data[i] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    private static long readLong(byte[] data, int i) {
+        return (readInt(data, i) & 0xFFFFFFFFL) | ((long) readInt(data, i + 4) << 32);
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24;
+    }
+}
@@ -2,7 +2,9 @@ package com.kumuluz.ee.nats.jetstream.util;
 
 import com.kumuluz.ee.nats.common.exception.DefinitionException;
 import com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubject;
+import com.kumuluz.ee.nats.jetstream.annotations.MessageId;
 import com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient;
+import com.kumuluz.ee.nats.jetstream.wrappers.BatchPublishResult;
 import io.nats.client.api.PublishAck;
 
 import java.lang.annotation.Annotation;
@@ -10,7 +12,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
 /**
  * Helper for validating interfaces annotated with {@link RegisterJetStreamClient}.
@@ -52,15 +57,31 @@ public class JetStreamInterfaceValidationUtil {
     }
 
     private static void checkMethodParameters(Method method) {
-        if (method.getParameterCount() < 1) {
+        int numberOfMessageIdParameters = 0;
+        for (Parameter parameter : method.getParameters()) {
+            if (parameter.isAnnotationPresent(MessageId.class)) {
+                if (parameter.isAnnotationPresent(JetStreamSubject.class)) {
+                    throw new DefinitionException(String.format("Wrong method parameters at method %s in class %s."
+                            , method.getName(), method.getDeclaringClass().getName()));
+                }
+                numberOfMessageIdParameters += 1;
+            }
+        }
+        if (numberOfMessageIdParameters > 1) {
+            throw new DefinitionException(String.format("More than one @MessageId parameter at method %s in class %s."
+                    , method.getName(), method.getDeclaringClass().getName()));
+        }
+
+        int parameterCount = method.getParameterCount() - numberOfMessageIdParameters;
+        if (parameterCount < 1) {
             throw new DefinitionException(String.format("Not enough method parameters at method %s in class %s."
                     , method.getName(), method.getDeclaringClass().getName()));
-        } else if (method.getParameterCount() == 1) {
-            if (method.getParameters()[0].isAnnotationPresent(JetStreamSubject.class)) {
+        } else if (parameterCount == 1) {
+            if (Arrays.stream(method.getParameters()).anyMatch(p -> p.isAnnotationPresent(JetStreamSubject.class))) {
                 throw new DefinitionException(String.format("Not enough method parameters at method %s in class %s."
                         , method.getName(), method.getDeclaringClass().getName()));
             }
-        } else if (method.getParameterCount() == 2) {
+        } else if (parameterCount == 2) {
             int numberOfSubjectAnnotations = 0;
             for (Parameter parameter : method.getParameters()) {
                 if (parameter.isAnnotationPresent(JetStreamSubject.class)) {
@@ -84,16 +105,25 @@ public class JetStreamInterfaceValidationUtil {
             return;
         }
 
-        // check whether the return type is CompletableFuture<PublishAck>
+        // check whether the return type is CompletableFuture<PublishAck>, CompletableFuture<BatchPublishResult>
+        // or Flow.Publisher<PublishAck>
         if (returnType instanceof ParameterizedType) {
             ParameterizedType type = (ParameterizedType) returnType;
             Type rawType = type.getRawType();
 
+            if (Flow.Publisher.class.equals(rawType) && type.getActualTypeArguments()[0].equals(PublishAck.class)) {
+                return;
+            }
+
             if (rawType instanceof Class<?> && CompletableFuture.class.isAssignableFrom((Class<?>) rawType)) {
                 Type[] typeArguments = type.getActualTypeArguments();
                 if (typeArguments.length == 1 && typeArguments[0].equals(PublishAck.class)) {
                     return;
                 }
+                if (typeArguments.length == 1 && typeArguments[0].equals(BatchPublishResult.class)) {
+                    checkBatchPayload(method);
+                    return;
+                }
             }
         }
 
@@ -101,4 +131,14 @@ public class JetStreamInterfaceValidationUtil {
                 , method.getName(), method.getDeclaringClass().getName()));
     }
 
+    private static void checkBatchPayload(Method method) {
+        for (Parameter parameter : method.getParameters()) {
+            if (!parameter.isAnnotationPresent(JetStreamSubject.class) && !parameter.isAnnotationPresent(MessageId.class)
+                    && !List.class.equals(parameter.getType())) {
+                throw new DefinitionException(String.format("The payload of batch publishing method %s in class %s must be of type List<T>."
+                        , method.getName(), method.getDeclaringClass().getName()));
+            }
+        }
+    }
+
 }
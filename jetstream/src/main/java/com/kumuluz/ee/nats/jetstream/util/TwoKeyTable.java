@@ -1,40 +1,98 @@
 package com.kumuluz.ee.nats.jetstream.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 /**
  * Custom implementation of two-key generic table.
+ * Safe for concurrent use; the values are stored under a composite key of both keys and created at most once.
  *
  * @author Matej Bizjak
  */
 
 public class TwoKeyTable<K1, K2, V> {
 
-    private final Map<K1, Map<K2, V>> table;
+    private final Map<Key<K1, K2>, CompletableFuture<V>> table;
 
     public TwoKeyTable() {
-        this.table = new HashMap<>();
+        this.table = new ConcurrentHashMap<>();
     }
 
-    public void put(K1 key1, K2 key2, V value) {
-        if (!table.containsKey(key1)) {
-            table.put(key1, new HashMap<>());
+    /**
+     * Returns the value of the keys, creating it at most once if it is absent. The value is created without holding
+     * a lock of the table, so a slow factory (e.g. one doing I/O) does not stall the other keys; concurrent callers
+     * of the same keys wait for the creation and receive the same value.
+     *
+     * @param factory creates the value, if it returns null or throws nothing is stored
+     * @return the current or the created value, null if the factory returned null
+     */
+    public V computeIfAbsent(K1 key1, K2 key2, BiFunction<? super K1, ? super K2, ? extends V> factory) {
+        Key<K1, K2> key = new Key<>(key1, key2);
+        CompletableFuture<V> future = table.get(key);
+        if (future == null) {
+            CompletableFuture<V> creation = new CompletableFuture<>();
+            future = table.putIfAbsent(key, creation);
+            if (future == null) {
+                return create(key, creation, factory);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
-        table.get(key1).put(key2, value);
     }
 
-    public V get(K1 key1, K2 key2) {
-        if (!table.containsKey(key1)) {
-            return null;
+    private V create(Key<K1, K2> key, CompletableFuture<V> creation
+            , BiFunction<? super K1, ? super K2, ? extends V> factory) {
+        V value;
+        try {
+            value = factory.apply(key.key1, key.key2);
+        } catch (RuntimeException | Error e) {
+            table.remove(key, creation);
+            creation.completeExceptionally(e);
+            throw e;
+        }
+        if (value == null) {  // the next caller tries again
+            table.remove(key, creation);
         }
-        return table.get(key1).get(key2);
+        creation.complete(value);
+        return value;
     }
 
-    public boolean contains(K1 key1, K2 key2) {
-        if (!table.containsKey(key1)) {
-            return false;
+    private static final class Key<K1, K2> {
+        private final K1 key1;
+        private final K2 key2;
+        private final int hash;
+
+        private Key(K1 key1, K2 key2) {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.hash = 31 * Objects.hashCode(key1) + Objects.hashCode(key2);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key<?, ?> key = (Key<?, ?>) o;
+            return Objects.equals(key1, key.key1) && Objects.equals(key2, key.key2);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
-        return table.get(key1).containsKey(key2);
     }
 }
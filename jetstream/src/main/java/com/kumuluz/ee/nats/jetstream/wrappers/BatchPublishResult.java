@@ -0,0 +1,152 @@
+package com.kumuluz.ee.nats.jetstream.wrappers;
+
+import io.nats.client.api.PublishAck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated result of a batch publish of a JetStream client: the ack or the failure of every item, in the order of
+ * the published list.
+ *
+ * @author Matej Bizjak
+ */
+
+public class BatchPublishResult {
+
+    /**
+     * Range of the stream sequences the items of the batch were stored at.
+     */
+    public static class SequenceRange {
+        private final String stream;
+        private final long first;
+        private final long last;
+
+        SequenceRange(String stream, long first, long last) {
+            this.stream = stream;
+            this.first = first;
+            this.last = last;
+        }
+
+        public String getStream() {
+            return stream;
+        }
+
+        public long getFirst() {
+            return first;
+        }
+
+        public long getLast() {
+            return last;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%d-%d]", stream, first, last);
+        }
+    }
+
+    private final List<PublishAck> acks;
+    private final List<Throwable> failures;
+    private final int failed;
+
+    /**
+     * @param acks     ack of every item, null where the publish failed
+     * @param failures failure of every item, null where the publish succeeded
+     */
+    public BatchPublishResult(List<PublishAck> acks, List<Throwable> failures) {
+        this.acks = Collections.unmodifiableList(acks);
+        this.failures = Collections.unmodifiableList(failures);
+        int failed = 0;
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                failed++;
+            }
+        }
+        this.failed = failed;
+    }
+
+    /**
+     * @return number of items in the batch
+     */
+    public int getSize() {
+        return acks.size();
+    }
+
+    public int getSucceeded() {
+        return getSize() - failed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return true if every item of the batch was acknowledged
+     */
+    public boolean isSuccessful() {
+        return failed == 0;
+    }
+
+    /**
+     * @param index index of the item in the published list
+     * @return the ack of the item or null if its publish failed
+     */
+    public PublishAck getAck(int index) {
+        return acks.get(index);
+    }
+
+    /**
+     * @param index index of the item in the published list
+     * @return the failure of the item or null if it was acknowledged
+     */
+    public Throwable getFailure(int index) {
+        return failures.get(index);
+    }
+
+    /**
+     * @return acks in the order of the published list, null where the publish failed
+     */
+    public List<PublishAck> getAcks() {
+        return acks;
+    }
+
+    /**
+     * @return failures by the index of the item in the published list
+     */
+    public Map<Integer, Throwable> getFailures() {
+        Map<Integer, Throwable> map = new LinkedHashMap<>();
+        for (int i = 0; i < failures.size(); i++) {
+            if (failures.get(i) != null) {
+                map.put(i, failures.get(i));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return the lowest and the highest sequence of the acknowledged items per stream
+     */
+    public List<SequenceRange> getSequenceRanges() {
+        Map<String, long[]> ranges = new LinkedHashMap<>();
+        for (PublishAck ack : acks) {
+            if (ack == null || ack.isDuplicate()) {  // duplicates refer to the sequence of the original message
+                continue;
+            }
+            long[] range = ranges.computeIfAbsent(ack.getStream(), x -> new long[]{ack.getSeqno(), ack.getSeqno()});
+            range[0] = Math.min(range[0], ack.getSeqno());
+            range[1] = Math.max(range[1], ack.getSeqno());
+        }
+        List<SequenceRange> sequenceRanges = new ArrayList<>(ranges.size());
+        ranges.forEach((stream, range) -> sequenceRanges.add(new SequenceRange(stream, range[0], range[1])));
+        return sequenceRanges;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchPublishResult{size=%d, failed=%d, ranges=%s}", getSize(), failed, getSequenceRanges());
+    }
+}
@@ -0,0 +1,155 @@
+package com.kumuluz.ee.nats.jetstream.consumer.listener;
+
+import com.kumuluz.ee.nats.common.connection.config.GeneralConfig;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Checks the confirmation, the retries and the in-flight limit of the double acks, against a connection stub whose
+ * confirmations are completed by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class DoubleAckPipelineTest {
+
+    private static final GeneralConfig CONFIG = GeneralConfig.builder()
+            .ackConfirmationTimeout(Duration.ofMillis(10))
+            .ackConfirmationRetries(2)
+            .build();
+
+    private final LinkedBlockingQueue<CompletableFuture<Message>> requests = new LinkedBlockingQueue<>();
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+    private final Message message = message();
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @BeforeMethod
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        requests.clear();
+        failures.clear();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void confirmedAckReleasesTheSlot() throws Exception {
+        DoubleAckPipeline pipeline = pipeline(1);
+
+        pipeline.ack(message, CONFIG);
+        Assert.assertEquals(pipeline.getInFlight(), 1);
+        nextRequest().complete(message);
+
+        Assert.assertEquals(pipeline.getInFlight(), 0);
+        Assert.assertEquals(pipeline.getConfirmed(), 1);
+        Assert.assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void unconfirmedAckIsResent() throws Exception {
+        DoubleAckPipeline pipeline = pipeline(1);
+
+        pipeline.ack(message, CONFIG);
+        nextRequest().completeExceptionally(new TimeoutException());
+        nextRequest().complete(message);
+
+        awaitCount(pipeline::getConfirmed, 1);
+        Assert.assertEquals(pipeline.getFailed(), 0);
+    }
+
+    @Test
+    public void ackFailsAfterTheRetries() throws Exception {
+        DoubleAckPipeline pipeline = pipeline(1);
+
+        pipeline.ack(message, CONFIG);
+        for (int i = 0; i <= CONFIG.getAckConfirmationRetries(); i++) {
+            nextRequest().completeExceptionally(new TimeoutException());
+        }
+
+        awaitCount(pipeline::getFailed, 1);
+        Assert.assertEquals(pipeline.getInFlight(), 0);
+        Assert.assertEquals(failures.size(), 1);
+        Assert.assertTrue(failures.get(0) instanceof TimeoutException);
+        Assert.assertNull(requests.poll(50, TimeUnit.MILLISECONDS), "No request after the last retry.");
+    }
+
+    @Test
+    public void fullPipelineBlocksTheCaller() throws Exception {
+        DoubleAckPipeline pipeline = pipeline(1);
+        pipeline.ack(message, CONFIG);
+        CompletableFuture<Message> first = nextRequest();
+
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> pipeline.ack(message, CONFIG));
+        Assert.assertNull(requests.poll(50, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(second.isDone());
+
+        first.complete(message);
+        second.get(1, TimeUnit.SECONDS);
+        nextRequest().complete(message);
+        Assert.assertEquals(pipeline.getConfirmed(), 2);
+    }
+
+    private DoubleAckPipeline pipeline(int maxInFlight) {
+        return new DoubleAckPipeline(scheduler, maxInFlight
+                , Collections.singletonList((msg, cause) -> failures.add(cause)));
+    }
+
+    private CompletableFuture<Message> nextRequest() throws InterruptedException {
+        CompletableFuture<Message> request = requests.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(request, "The ack was not sent.");
+        return request;
+    }
+
+    /**
+     * The callbacks of the resent acks may still be registered on the scheduler thread after the test completes them.
+     */
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (count.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(count.getAsLong(), expected);
+    }
+
+    private Message message() {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader()
+                , new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("requestWithTimeout")) {
+                        CompletableFuture<Message> request = new CompletableFuture<>();
+                        requests.add(request);
+                        return request;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class}
+                , (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return connection;
+                        case "getReplyTo":
+                            return "$JS.ACK.orders.consumer.1.1.1.0.0";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
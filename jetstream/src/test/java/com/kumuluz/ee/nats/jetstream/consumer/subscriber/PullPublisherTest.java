@@ -0,0 +1,267 @@
+package com.kumuluz.ee.nats.jetstream.consumer.subscriber;
+
+import com.kumuluz.ee.nats.common.codec.NatsCodecs;
+import com.kumuluz.ee.nats.common.util.SerDes;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Checks how the demand of the subscriber is translated into fetches, against a pull subscription stub and an
+ * executor whose tasks are run by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PullPublisherTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    /**
+     * Serves the pending messages to the fetches and records the sizes of the fetches and the acks.
+     */
+    private static class StubSubscription {
+        private final Queue<Message> pending = new ArrayDeque<>();
+        private final List<Integer> fetches = new ArrayList<>();
+        private final List<String> acked = new ArrayList<>();
+        private final List<String> naked = new ArrayList<>();
+        private final JetStreamSubscription subscription = (JetStreamSubscription) Proxy.newProxyInstance(
+                JetStreamSubscription.class.getClassLoader(), new Class<?>[]{JetStreamSubscription.class}
+                , (proxy, method, args) -> {
+                    if (method.getName().equals("fetch") && args[1] instanceof Duration) {
+                        int batchSize = (Integer) args[0];
+                        fetches.add(batchSize);
+                        List<Message> messages = new ArrayList<>();
+                        while (messages.size() < batchSize && !pending.isEmpty()) {
+                            messages.add(pending.poll());
+                        }
+                        return messages;
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        private void add(int count) {
+            for (int i = 0; i < count; i++) {
+                String data = String.valueOf(acked.size() + naked.size() + pending.size());
+                pending.add(message(data));
+            }
+        }
+
+        private Message message(String data) {
+            return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class}
+                    , (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getData":
+                                return ("\"" + data + "\"").getBytes(StandardCharsets.UTF_8);  // JSON string
+                            case "hasHeaders":
+                                return false;
+                            case "getSubject":
+                                return "orders";
+                            case "ack":
+                                acked.add(data);
+                                return null;
+                            case "nak":
+                                naked.add(data);
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Queues the tasks until the test runs them.
+     */
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Records the signals of the publisher, optionally cancelling after the given number of items.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<String> {
+        private final List<String> items = new ArrayList<>();
+        private final int cancelAfter;
+        private Flow.Subscription subscription;
+        private Throwable error;
+
+        private RecordingSubscriber(int cancelAfter) {
+            this.cancelAfter = cancelAfter;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+            if (items.size() == cancelAfter) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Test
+    public void noFetchBeforeTheFirstRequest() {
+        StubSubscription stub = new StubSubscription();
+        ManualExecutor executor = new ManualExecutor();
+        subscribe(stub, executor, 0);
+
+        executor.runAll();
+
+        Assert.assertTrue(stub.fetches.isEmpty());
+    }
+
+    @Test
+    public void demandIsFetchedInBatches() {
+        StubSubscription stub = new StubSubscription();
+        stub.add(100);
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = subscribe(stub, executor, 0);
+
+        subscriber.subscription.request(3);
+        executor.runAll();
+        Assert.assertEquals(stub.fetches, Collections.singletonList(3));
+        Assert.assertEquals(subscriber.items, Arrays.asList("0", "1", "2"));
+
+        subscriber.subscription.request(25);
+        executor.runAll();
+        Assert.assertEquals(stub.fetches, Arrays.asList(3, 10, 10, 5));
+        Assert.assertEquals(subscriber.items.size(), 28);
+        Assert.assertEquals(stub.acked, subscriber.items);
+    }
+
+    @Test
+    public void demandAddedDuringAFetchIsNotLost() {
+        StubSubscription stub = new StubSubscription();
+        stub.add(100);
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = subscribe(stub, executor, 0);
+
+        subscriber.subscription.request(2);
+        subscriber.subscription.request(2);  // the pull is already scheduled
+        Assert.assertEquals(executor.tasks.size(), 1);
+        executor.runAll();
+
+        Assert.assertEquals(stub.fetches, Collections.singletonList(4));
+        Assert.assertEquals(subscriber.items.size(), 4);
+    }
+
+    @Test
+    public void emptyFetchIsRepeatedWhileThereIsDemand() {
+        StubSubscription stub = new StubSubscription();
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = subscribe(stub, executor, 0);
+        subscriber.subscription.request(2);
+
+        executor.tasks.poll().run();  // max wait expires without messages
+        Assert.assertEquals(executor.tasks.size(), 1, "Every fetch is a separate task.");
+
+        stub.add(5);
+        executor.runAll();
+        Assert.assertEquals(stub.fetches, Arrays.asList(2, 2));
+        Assert.assertEquals(subscriber.items, Arrays.asList("0", "1"));
+    }
+
+    @Test
+    public void cancelledSubscriptionNaksTheFetchedMessages() {
+        StubSubscription stub = new StubSubscription();
+        stub.add(5);
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = subscribe(stub, executor, 2);
+
+        subscriber.subscription.request(5);
+        executor.runAll();
+
+        Assert.assertEquals(subscriber.items, Arrays.asList("0", "1"));
+        Assert.assertEquals(stub.acked, Arrays.asList("0", "1"));
+        Assert.assertEquals(stub.naked, Arrays.asList("2", "3", "4"));
+        Assert.assertEquals(stub.fetches.size(), 1);
+    }
+
+    @Test
+    public void cancelBeforeThePullStopsTheFetch() {
+        StubSubscription stub = new StubSubscription();
+        stub.add(5);
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = subscribe(stub, executor, 0);
+
+        subscriber.subscription.request(5);
+        subscriber.subscription.cancel();
+        executor.runAll();
+
+        Assert.assertTrue(stub.fetches.isEmpty());
+    }
+
+    @Test
+    public void nonPositiveRequestFails() {
+        StubSubscription stub = new StubSubscription();
+        RecordingSubscriber subscriber = subscribe(stub, new ManualExecutor(), 0);
+
+        subscriber.subscription.request(0);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void shutDownExecutorFailsTheSubscriber() {
+        StubSubscription stub = new StubSubscription();
+        RecordingSubscriber subscriber = subscribe(stub, command -> {
+            throw new RejectedExecutionException("shut down");
+        }, 0);
+
+        subscriber.subscription.request(1);
+
+        Assert.assertTrue(subscriber.error instanceof RejectedExecutionException);
+    }
+
+    private static RecordingSubscriber subscribe(StubSubscription stub, Executor executor, int cancelAfter) {
+        PullPublisher<String> publisher = new PullPublisher<>(() -> stub.subscription
+                , SerDes.getTypeFactory().constructType(String.class), NatsCodecs.getDefault(), BATCH_SIZE
+                , Duration.ofMillis(10), executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber(cancelAfter);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+}
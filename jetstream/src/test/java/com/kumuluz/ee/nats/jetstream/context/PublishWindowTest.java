@@ -0,0 +1,231 @@
+package com.kumuluz.ee.nats.jetstream.context;
+
+import com.kumuluz.ee.nats.common.connection.config.BackpressureMode;
+import com.kumuluz.ee.nats.common.connection.config.PublishWindowConfig;
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.NatsMessage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks the backpressure modes of the publish window against a JetStream stub whose acks are completed by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class PublishWindowTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+    private static final Message MESSAGE = NatsMessage.builder().subject("orders").build();
+
+    /**
+     * Records the futures of the asynchronous publishes, the other methods are not supported.
+     */
+    private static class StubJetStream {
+        private final List<CompletableFuture<PublishAck>> acks = new ArrayList<>();
+        private final JetStream jetStream = (JetStream) Proxy.newProxyInstance(JetStream.class.getClassLoader()
+                , new Class<?>[]{JetStream.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("publishAsync") && args.length == 1 && args[0] instanceof Message) {
+                        CompletableFuture<PublishAck> ack = new CompletableFuture<>();
+                        synchronized (acks) {
+                            acks.add(ack);
+                        }
+                        return ack;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        private CompletableFuture<PublishAck> ack(int index) {
+            synchronized (acks) {
+                return acks.get(index);
+            }
+        }
+
+        private int published() {
+            synchronized (acks) {
+                return acks.size();
+            }
+        }
+    }
+
+    @Test
+    public void unboundedWindowDoesNotLimit() {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(0, BackpressureMode.FAIL_FAST);
+
+        for (int i = 0; i < 100; i++) {
+            window.publishAsync(stub.jetStream, MESSAGE);
+        }
+
+        Assert.assertEquals(stub.published(), 100);
+        Assert.assertEquals(window.getInFlight(), 100);
+    }
+
+    @Test
+    public void failFastRejectsWhenFull() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(2, BackpressureMode.FAIL_FAST);
+        PublishAck ack = publishAck();
+
+        CompletableFuture<PublishAck> first = window.publishAsync(stub.jetStream, MESSAGE);
+        window.publishAsync(stub.jetStream, MESSAGE);
+        CompletableFuture<PublishAck> rejected = window.publishAsync(stub.jetStream, MESSAGE);
+
+        assertFailsWith(rejected, RejectedExecutionException.class);
+        Assert.assertEquals(stub.published(), 2);
+        Assert.assertEquals(window.getRejected(), 1);
+
+        stub.ack(0).complete(ack);
+        Assert.assertSame(first.get(), ack);
+        Assert.assertFalse(window.publishAsync(stub.jetStream, MESSAGE).isDone());
+        Assert.assertEquals(stub.published(), 3);
+        Assert.assertEquals(window.getAcked(), 1);
+    }
+
+    @Test
+    public void blockWaitsForAFreeSlot() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(1, BackpressureMode.BLOCK);
+        window.publishAsync(stub.jetStream, MESSAGE);
+
+        CompletableFuture<CompletableFuture<PublishAck>> second = CompletableFuture
+                .supplyAsync(() -> window.publishAsync(stub.jetStream, MESSAGE));
+        Thread.sleep(50);
+        Assert.assertFalse(second.isDone());
+
+        stub.ack(0).complete(publishAck());
+        Assert.assertFalse(second.get(1, TimeUnit.SECONDS).isDone());
+        Assert.assertEquals(stub.published(), 2);
+    }
+
+    @Test
+    public void blockRejectsAfterTheTimeout() {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(1, BackpressureMode.BLOCK);
+        window.publishAsync(stub.jetStream, MESSAGE);
+
+        long start = System.nanoTime();
+        CompletableFuture<PublishAck> rejected = window.publishAsync(stub.jetStream, MESSAGE);
+
+        Assert.assertTrue(System.nanoTime() - start >= TIMEOUT.toNanos());
+        assertFailsWith(rejected, RejectedExecutionException.class);
+        Assert.assertEquals(stub.published(), 1);
+    }
+
+    @Test
+    public void dropOldestFreesTheSlotOfTheOldest() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(1, BackpressureMode.DROP_OLDEST);
+        CompletableFuture<PublishAck> oldest = window.publishAsync(stub.jetStream, MESSAGE);
+
+        CompletableFuture<PublishAck> newer = window.publishAsync(stub.jetStream, MESSAGE);  // does not wait
+
+        Assert.assertTrue(oldest.isCancelled());
+        Assert.assertFalse(newer.isDone());
+        Assert.assertEquals(stub.published(), 2);
+        Assert.assertEquals(window.getDropped(), 1);
+        Assert.assertEquals(window.getInFlight(), 1);
+        Assert.assertEquals(window.getOrphaned(), 1);
+
+        stub.ack(0).complete(publishAck());  // the ack of the dropped publish does not free a slot
+        Assert.assertEquals(window.getOrphaned(), 0);
+        Assert.assertEquals(window.getInFlight(), 1);
+        Assert.assertEquals(window.getAcked(), 1);
+
+        PublishAck ack = publishAck();
+        stub.ack(1).complete(ack);
+        Assert.assertSame(newer.get(1, TimeUnit.SECONDS), ack);
+        Assert.assertEquals(window.getInFlight(), 0);
+    }
+
+    @Test
+    public void dropOldestDropsInPublishOrder() {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(2, BackpressureMode.DROP_OLDEST);
+        List<CompletableFuture<PublishAck>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(window.publishAsync(stub.jetStream, MESSAGE));
+        }
+
+        Assert.assertTrue(futures.get(0).isCancelled());
+        Assert.assertTrue(futures.get(1).isCancelled());
+        Assert.assertFalse(futures.get(2).isDone());
+        Assert.assertFalse(futures.get(3).isDone());
+        Assert.assertEquals(window.getDropped(), 2);
+        Assert.assertEquals(window.getRejected(), 0);
+        Assert.assertEquals(window.getInFlight(), 2);
+
+        stub.ack(1).completeExceptionally(new TimeoutException("ack timed out"));
+        Assert.assertEquals(window.getOrphaned(), 1);
+        Assert.assertEquals(window.getFailed(), 1);
+        Assert.assertEquals(window.getInFlight(), 2);
+    }
+
+    @Test
+    public void dropOldestDoesNotDropAckedPublishes() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(2, BackpressureMode.DROP_OLDEST);
+        CompletableFuture<PublishAck> first = window.publishAsync(stub.jetStream, MESSAGE);
+        CompletableFuture<PublishAck> second = window.publishAsync(stub.jetStream, MESSAGE);
+
+        stub.ack(0).complete(publishAck());
+        window.publishAsync(stub.jetStream, MESSAGE);  // takes the slot freed by the ack
+
+        Assert.assertFalse(first.isCancelled());
+        Assert.assertNotNull(first.get());
+        Assert.assertFalse(second.isDone());
+        Assert.assertEquals(window.getDropped(), 0);
+    }
+
+    @Test
+    public void failedAcksReleaseTheSlot() {
+        StubJetStream stub = new StubJetStream();
+        PublishWindow window = window(1, BackpressureMode.FAIL_FAST);
+        CompletableFuture<PublishAck> failed = window.publishAsync(stub.jetStream, MESSAGE);
+
+        stub.ack(0).completeExceptionally(new IllegalStateException("no stream"));
+
+        assertFailsWith(failed, IllegalStateException.class);
+        Assert.assertEquals(window.getFailed(), 1);
+        Assert.assertEquals(window.getInFlight(), 0);
+        Assert.assertFalse(window.publishAsync(stub.jetStream, MESSAGE).isDone());
+    }
+
+    private static PublishWindow window(int maxInFlight, BackpressureMode backpressure) {
+        return new PublishWindow("default", "context", PublishWindowConfig.builder()
+                .maxInFlight(maxInFlight)
+                .backpressure(backpressure)
+                .build(), TIMEOUT);
+    }
+
+    private static PublishAck publishAck() throws Exception {
+        return new PublishAck(NatsMessage.builder()
+                .subject("reply")
+                .data("{\"stream\":\"orders\",\"seq\":1}".getBytes())
+                .build());
+    }
+
+    private static void assertFailsWith(CompletableFuture<PublishAck> future, Class<? extends Throwable> type) {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail("The future did not fail.");
+        } catch (ExecutionException e) {
+            Assert.assertEquals(e.getCause().getClass(), type);
+        } catch (CancellationException | InterruptedException | TimeoutException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
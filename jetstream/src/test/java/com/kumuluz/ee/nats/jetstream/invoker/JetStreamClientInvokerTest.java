@@ -0,0 +1,186 @@
+package com.kumuluz.ee.nats.jetstream.invoker;
+
+import com.kumuluz.ee.nats.jetstream.wrappers.BatchPublishResult;
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.NatsMessage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Checks the aggregation of the acks of a batch publish against a JetStream stub whose acks are completed by the test.
+ *
+ * @author Matej Bizjak
+ */
+
+public class JetStreamClientInvokerTest {
+
+    private static final String POISON = "poison";
+
+    /**
+     * Records the published messages and the futures of their acks, the other methods are not supported.
+     */
+    private static class StubJetStream {
+        private final List<Message> messages = new ArrayList<>();
+        private final List<CompletableFuture<PublishAck>> acks = new ArrayList<>();
+        private final JetStream jetStream = (JetStream) Proxy.newProxyInstance(JetStream.class.getClassLoader()
+                , new Class<?>[]{JetStream.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("publishAsync") && args.length == 1 && args[0] instanceof Message) {
+                        CompletableFuture<PublishAck> ack = new CompletableFuture<>();
+                        synchronized (acks) {
+                            messages.add((Message) args[0]);
+                            acks.add(ack);
+                        }
+                        return ack;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        private CompletableFuture<PublishAck> ack(int index) {
+            synchronized (acks) {
+                return acks.get(index);
+            }
+        }
+
+        private int published() {
+            synchronized (acks) {
+                return acks.size();
+            }
+        }
+
+        private String data(int index) {
+            synchronized (acks) {
+                return new String(messages.get(index).getData(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    @Test
+    public void resultKeepsTheOrderOfTheList() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        CompletableFuture<BatchPublishResult> future = publishAll(stub.jetStream::publishAsync, "a", "b", "c");
+
+        // the acks arrive in the reverse order
+        stub.ack(2).complete(publishAck("orders", 3));
+        stub.ack(1).complete(publishAck("orders", 2));
+        Assert.assertFalse(future.isDone(), "The result must wait for the ack of every item.");
+        stub.ack(0).complete(publishAck("orders", 1));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(result.isSuccessful());
+        Assert.assertEquals(result.getSize(), 3);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(result.getAck(i).getSeqno(), i + 1);
+        }
+        Assert.assertEquals(Arrays.asList(stub.data(0), stub.data(1), stub.data(2)), Arrays.asList("a", "b", "c"));
+        Assert.assertEquals(result.getSequenceRanges().size(), 1);
+        Assert.assertEquals(result.getSequenceRanges().get(0).getStream(), "orders");
+        Assert.assertEquals(result.getSequenceRanges().get(0).getFirst(), 1);
+        Assert.assertEquals(result.getSequenceRanges().get(0).getLast(), 3);
+    }
+
+    @Test
+    public void partialFailuresAreRecordedByIndex() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        CompletableFuture<BatchPublishResult> future = publishAll(stub.jetStream::publishAsync, "a", POISON, "c", "d");
+
+        // the poison item is not published, so the stub acks belong to a, c and d
+        stub.ack(0).complete(publishAck("orders", 10));
+        stub.ack(1).completeExceptionally(new TimeoutException("ack timed out"));
+        stub.ack(2).complete(publishAck("orders", 12));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        Assert.assertFalse(result.isSuccessful());
+        Assert.assertEquals(result.getSize(), 4);
+        Assert.assertEquals(result.getSucceeded(), 2);
+        Assert.assertEquals(result.getFailed(), 2);
+        Assert.assertEquals(result.getAck(0).getSeqno(), 10);
+        Assert.assertNull(result.getAck(1));
+        Assert.assertNull(result.getAck(2));
+        Assert.assertEquals(result.getAck(3).getSeqno(), 12);
+        Assert.assertEquals(result.getFailure(1).getClass(), IOException.class);
+        Assert.assertEquals(result.getFailure(2).getClass(), TimeoutException.class);
+        Assert.assertEquals(new ArrayList<>(result.getFailures().keySet()), Arrays.asList(1, 2));
+        Assert.assertEquals(result.getSequenceRanges().get(0).getFirst(), 10);
+        Assert.assertEquals(result.getSequenceRanges().get(0).getLast(), 12);
+    }
+
+    @Test
+    public void rejectedItemsFailWithoutFailingTheBatch() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        // like a full publish window in the fail-fast mode
+        CompletableFuture<BatchPublishResult> future = publishAll(message -> stub.published() < 2
+                ? stub.jetStream.publishAsync(message)
+                : CompletableFuture.failedFuture(new RejectedExecutionException("window full")), "a", "b", "c");
+
+        stub.ack(0).complete(publishAck("orders", 1));
+        stub.ack(1).complete(publishAck("orders", 2));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(result.getSucceeded(), 2);
+        Assert.assertEquals(result.getFailure(2).getClass(), RejectedExecutionException.class);
+    }
+
+    @Test
+    public void sequenceRangesArePerStreamWithoutDuplicates() throws Exception {
+        StubJetStream stub = new StubJetStream();
+        CompletableFuture<BatchPublishResult> future = publishAll(stub.jetStream::publishAsync, "a", "b", "c", "d", "e");
+
+        stub.ack(0).complete(publishAck("orders", 7));
+        stub.ack(1).complete(publishAck("audit", 40));
+        stub.ack(2).complete(publishAck("orders", 5));
+        stub.ack(3).complete(publishAck("orders", 1, true));  // refers to the sequence of the original message
+        stub.ack(4).complete(publishAck("audit", 41));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(result.isSuccessful());
+        Assert.assertEquals(result.getSequenceRanges().toString(), "[orders[5-7], audit[40-41]]");
+    }
+
+    @Test
+    public void emptyListCompletesImmediately() throws Exception {
+        BatchPublishResult result = publishAll(new StubJetStream().jetStream::publishAsync).get(1, TimeUnit.SECONDS);
+
+        Assert.assertTrue(result.isSuccessful());
+        Assert.assertEquals(result.getSize(), 0);
+        Assert.assertTrue(result.getSequenceRanges().isEmpty());
+    }
+
+    private static CompletableFuture<BatchPublishResult> publishAll(
+            Function<Message, CompletableFuture<PublishAck>> publisher, String... items) {
+        return JetStreamClientInvoker.publishAll(publisher, Arrays.asList(items), item -> {
+            if (POISON.equals(item)) {
+                throw new IOException("cannot serialize");
+            }
+            return NatsMessage.builder()
+                    .subject("orders")
+                    .data(((String) item).getBytes(StandardCharsets.UTF_8))
+                    .build();
+        });
+    }
+
+    private static PublishAck publishAck(String stream, long seq) throws Exception {
+        return publishAck(stream, seq, false);
+    }
+
+    private static PublishAck publishAck(String stream, long seq, boolean duplicate) throws Exception {
+        return new PublishAck(NatsMessage.builder()
+                .subject("reply")
+                .data(String.format("{\"stream\":\"%s\",\"seq\":%d,\"duplicate\":%b}", stream, seq, duplicate)
+                        .getBytes(StandardCharsets.UTF_8))
+                .build());
+    }
+}
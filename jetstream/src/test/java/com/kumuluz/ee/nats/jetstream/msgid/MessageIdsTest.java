@@ -0,0 +1,129 @@
+package com.kumuluz.ee.nats.jetstream.msgid;
+
+import com.kumuluz.ee.nats.common.exception.InvocationException;
+import com.kumuluz.ee.nats.jetstream.annotations.MessageId;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Checks the XXH64 implementation against the reference vectors and the message ID strategies.
+ *
+ * @author Matej Bizjak
+ */
+
+public class MessageIdsTest {
+
+    private static final String LONG_INPUT = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ!";
+
+    public static class Order {
+        @MessageId
+        private String orderId;
+
+        public Order(String orderId) {
+            this.orderId = orderId;
+        }
+    }
+
+    public static class ExpressOrder extends Order {
+        private final int priority;
+
+        public ExpressOrder(String orderId, int priority) {
+            super(orderId);
+            this.priority = priority;
+        }
+    }
+
+    public static class Receipt {
+        private String id;
+    }
+
+    /**
+     * Reference values of the XXH64 implementation of xxHash.
+     */
+    @DataProvider
+    public Object[][] vectors() {
+        return new Object[][]{
+                {"", 0L, 0xef46db3751d8e999L},
+                {"a", 0L, 0xd24ec4f1a98c6e5bL},
+                {"abc", 0L, 0x44bc2cf5ad770999L},
+                {"abcd", 0L, 0xde0327b0d25d92ccL},  // one 4-byte lane
+                {"abcdefg", 0L, 0x1860940e2902822dL},  // a 4-byte lane and trailing bytes
+                {"abcdefgh", 0L, 0x3ad351775b4634b7L},
+                {"message digest", 0L, 0x066ed728fceeb3beL},
+                {"abcdefghijklmnopqrstuvwxyz012345", 0L, 0xbf2cd639b4143b80L},  // exactly one stripe
+                {"The quick brown fox jumps over the lazy dog", 0L, 0x0b242d361fda71bcL},
+                {LONG_INPUT, 0L, 0xdc0279ff690e8490L},
+                {"", 1L, 0xd5afba1336a3be4bL},
+                {"abc", 1L, 0xbea9ca8199328908L},
+                {"message digest", 1L, 0xcba434b6417dd0fdL},
+                {LONG_INPUT, 1L, 0xa52f33642a7be6b3L},
+                {"abcdefg", 0x9e3779b185ebca87L, 0xc4fb843531f731b4L},
+                {LONG_INPUT, 0x9e3779b185ebca87L, 0x450cb260259a2c3eL},
+        };
+    }
+
+    @Test(dataProvider = "vectors")
+    public void xxHash64MatchesTheReference(String input, long seed, long expected) {
+        Assert.assertEquals(MessageIds.xxHash64(input.getBytes(StandardCharsets.UTF_8), seed), expected
+                , String.format("XXH64 of \"%s\" with seed %d", input, seed));
+    }
+
+    @Test
+    public void hashDependsOnTheSubjectAndThePayload() {
+        byte[] data = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        String hash = MessageIds.hash("orders", data);
+
+        Assert.assertTrue(hash.matches("[0-9a-f]{32}"), hash);
+        Assert.assertEquals(MessageIds.hash("orders", data.clone()), hash);
+        Assert.assertNotEquals(MessageIds.hash("orders.eu", data), hash);
+        Assert.assertNotEquals(MessageIds.hash("orders", "{\"id\":2}".getBytes(StandardCharsets.UTF_8)), hash);
+    }
+
+    @Test
+    public void randomIsAVersion4Uuid() {
+        UUID uuid = UUID.fromString(MessageIds.random());
+
+        Assert.assertEquals(uuid.version(), 4);
+        Assert.assertEquals(uuid.variant(), 2);
+        Assert.assertNotEquals(MessageIds.random(), MessageIds.random());
+    }
+
+    @Test
+    public void sequenceIncreases() {
+        String first = MessageIds.sequence();
+        String second = MessageIds.sequence();
+        String prefix = first.substring(0, first.lastIndexOf('-') + 1);
+
+        Assert.assertTrue(second.startsWith(prefix));
+        Assert.assertEquals(Long.parseLong(second.substring(prefix.length()))
+                , Long.parseLong(first.substring(prefix.length())) + 1);
+    }
+
+    @Test
+    public void fieldIsRead() {
+        Assert.assertEquals(MessageIds.field(new Order("o-1")), "o-1");
+        Assert.assertEquals(MessageIds.generate(MessageIdStrategy.FIELD, "orders", new Order("o-1"), null, null), "o-1");
+        Assert.assertEquals(MessageIds.generate(MessageIdStrategy.FIELD, "orders", new Order("o-1"), null, 7), "7");
+    }
+
+    @Test
+    public void inheritedFieldIsRead() {
+        Assert.assertEquals(MessageIds.field(new ExpressOrder("o-2", 1)), "o-2");
+    }
+
+    @Test
+    public void nullFieldIsRejected() {
+        Assert.assertThrows(InvocationException.class, () -> MessageIds.field(new Order(null)));
+        Assert.assertThrows(InvocationException.class, () -> MessageIds.field(new ExpressOrder(null, 1)));
+    }
+
+    @Test
+    public void missingFieldAndNullPayloadAreRejected() {
+        Assert.assertThrows(InvocationException.class, () -> MessageIds.field(new Receipt()));
+        Assert.assertThrows(InvocationException.class, () -> MessageIds.field(null));
+    }
+}
@@ -0,0 +1,95 @@
+package com.kumuluz.ee.nats.jetstream.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the values are created once per pair of keys and outside of the locks of the table.
+ *
+ * @author Matej Bizjak
+ */
+
+public class TwoKeyTableTest {
+
+    @Test
+    public void valueIsCreatedOncePerKeys() throws Exception {
+        TwoKeyTable<String, String, Integer> table = new TwoKeyTable<>();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<CompletableFuture<Integer>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(CompletableFuture.supplyAsync(() -> {
+                await(start);
+                return table.computeIfAbsent("connection", "context", (k1, k2) -> {
+                    sleep(50);
+                    return created.incrementAndGet();
+                });
+            }));
+        }
+        start.countDown();
+
+        for (CompletableFuture<Integer> caller : callers) {
+            Assert.assertEquals(caller.get(5, TimeUnit.SECONDS), Integer.valueOf(1));
+        }
+        Assert.assertEquals(created.get(), 1);
+        Assert.assertEquals(table.computeIfAbsent("connection", "context", (k1, k2) -> 2), Integer.valueOf(1));
+        Assert.assertEquals(table.computeIfAbsent("connection", "other", (k1, k2) -> 2), Integer.valueOf(2));
+    }
+
+    @Test
+    public void slowCreationDoesNotBlockOtherKeys() throws Exception {
+        TwoKeyTable<String, Integer, String> table = new TwoKeyTable<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> table.computeIfAbsent("connection", 0
+                , (k1, k2) -> {
+                    await(release);
+                    return "slow";
+                }));
+
+        try {
+            // keys which could share a bin of the map with the slow one
+            for (int i = 1; i < 1000; i++) {
+                Assert.assertEquals(table.computeIfAbsent("connection", i, (k1, k2) -> "fast"), "fast");
+            }
+            Assert.assertFalse(slow.isDone());
+        } finally {
+            release.countDown();
+        }
+        Assert.assertEquals(slow.get(5, TimeUnit.SECONDS), "slow");
+    }
+
+    @Test
+    public void nullAndFailedCreationsAreNotStored() {
+        TwoKeyTable<String, String, String> table = new TwoKeyTable<>();
+
+        Assert.assertNull(table.computeIfAbsent("connection", "context", (k1, k2) -> null));
+        Assert.assertThrows(IllegalStateException.class, () -> table.computeIfAbsent("connection", "context", (k1, k2) -> {
+            throw new IllegalStateException("not connected");
+        }));
+        Assert.assertEquals(table.computeIfAbsent("connection", "context", (k1, k2) -> k1 + "." + k2), "connection.context");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
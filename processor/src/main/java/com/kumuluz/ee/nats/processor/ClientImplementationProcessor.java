@@ -0,0 +1,236 @@
+package com.kumuluz.ee.nats.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates concrete implementations of interfaces annotated with {@code @RegisterNatsClient} and
+ * {@code @RegisterJetStreamClient}. The CDI extensions prefer the generated class over a {@link java.lang.reflect.Proxy},
+ * so the client methods are invoked directly, without boxing the arguments and dispatching through an
+ * {@link java.lang.reflect.InvocationHandler}.
+ *
+ * @author Matej Bizjak
+ */
+
+@SupportedAnnotationTypes({ClientImplementationProcessor.CORE_ANNOTATION, ClientImplementationProcessor.JETSTREAM_ANNOTATION})
+public class ClientImplementationProcessor extends AbstractProcessor {
+
+    static final String CORE_ANNOTATION = "com.kumuluz.ee.nats.core.annotations.RegisterNatsClient";
+    static final String JETSTREAM_ANNOTATION = "com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient";
+
+    private static final ClientKind CORE = new ClientKind("com.kumuluz.ee.nats.core.annotations.Subject", null
+            , "NatsClientImpl", "com.kumuluz.ee.nats.core.invoker.InvocationPlan"
+            , "com.kumuluz.ee.nats.core.invoker.ClientInvoker");
+    private static final ClientKind JETSTREAM = new ClientKind("com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubject"
+            , "com.kumuluz.ee.nats.jetstream.annotations.MessageId"
+            , "JetStreamClientImpl", "com.kumuluz.ee.nats.jetstream.invoker.PublishPlan"
+            , "com.kumuluz.ee.nats.jetstream.invoker.JetStreamClientInvoker");
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            ClientKind kind = annotation.getQualifiedName().contentEquals(CORE_ANNOTATION) ? CORE : JETSTREAM;
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.INTERFACE) {
+                    continue;  // reported by the CDI extension at deployment
+                }
+                generate((TypeElement) element, kind);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type, ClientKind kind) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (method.getEnclosingElement().getKind() == ElementKind.INTERFACE
+                    && method.getModifiers().contains(Modifier.ABSTRACT)) {
+                methods.add(method);
+            }
+        }
+
+        if (!type.getTypeParameters().isEmpty() || methods.stream().anyMatch(m -> !m.getTypeParameters().isEmpty())) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format(
+                    "Client %s has type parameters, its implementation will not be generated.", type.getQualifiedName()), type);
+            return;
+        }
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String simpleName = implementationSimpleName(type, kind);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        boolean vetoAvailable = elements.getTypeElement("javax.enterprise.inject.Vetoed") != null;
+
+        Filer filer = processingEnv.getFiler();
+        try (PrintWriter out = new PrintWriter(filer.createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+            if (vetoAvailable) {
+                out.println("@javax.enterprise.inject.Vetoed");
+            }
+            out.println("@SuppressWarnings(\"unchecked\")");
+            out.println("public final class " + simpleName + " implements " + type.getQualifiedName() + " {");
+            out.println();
+            for (int i = 0; i < methods.size(); i++) {
+                out.println("    private final " + kind.planClass + " plan" + i + ";");
+            }
+            out.println();
+            out.println("    public " + simpleName + "() {");
+            for (int i = 0; i < methods.size(); i++) {
+                ExecutableElement method = methods.get(i);
+                StringBuilder parameterTypes = new StringBuilder();
+                for (VariableElement parameter : method.getParameters()) {
+                    parameterTypes.append(", ").append(types.erasure(parameter.asType())).append(".class");
+                }
+                out.println("        this.plan" + i + " = " + kind.planClass + ".of(" + type.getQualifiedName() + ".class, \""
+                        + method.getSimpleName() + "\"" + parameterTypes + ");");
+            }
+            out.println("    }");
+            for (int i = 0; i < methods.size(); i++) {
+                out.println();
+                writeMethod(out, methods.get(i), i, kind);
+            }
+            out.println("}");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(
+                    "Cannot generate the implementation of client %s: %s", type.getQualifiedName(), e.getMessage()), type);
+        }
+    }
+
+    private void writeMethod(PrintWriter out, ExecutableElement method, int index, ClientKind kind) {
+        Types types = processingEnv.getTypeUtils();
+        Elements elements = processingEnv.getElementUtils();
+        TypeMirror runtimeException = elements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror exception = elements.getTypeElement(Exception.class.getName()).asType();
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        String subject = "plan" + index + ".getSubject()";
+        String payload = parameters.isEmpty() ? "null" : "arg0";
+        String messageId = null;
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameter.asType()).append(" arg").append(i);
+            if (isAnnotated(parameter, kind.subjectAnnotation)) {
+                if (subject.startsWith("plan")) {
+                    subject = "arg" + i;
+                }
+            } else if (kind.messageIdAnnotation != null && isAnnotated(parameter, kind.messageIdAnnotation)) {
+                messageId = "arg" + i;
+            } else {
+                payload = "arg" + i;
+            }
+        }
+
+        // declared checked exceptions are rethrown as they are, the rest is wrapped like in a Proxy
+        List<TypeMirror> declared = new ArrayList<>();
+        boolean throwsAll = false;
+        for (TypeMirror thrown : method.getThrownTypes()) {
+            if (types.isSubtype(exception, thrown)) {
+                throwsAll = true;
+            } else if (!types.isSubtype(thrown, runtimeException)
+                    && method.getThrownTypes().stream().noneMatch(t -> t != thrown && types.isSubtype(thrown, t))) {
+                declared.add(thrown);
+            }
+        }
+
+        TypeMirror returnType = method.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        String call = kind.invokerClass + ".execute(plan" + index + ", " + subject + ", " + payload
+                + (messageId != null ? ", " + messageId : "") + ");";
+        String statement = isVoid ? call : "return (" + returnType + ") " + call;
+
+        StringBuilder throwsClause = new StringBuilder();
+        for (TypeMirror thrown : method.getThrownTypes()) {
+            throwsClause.append(throwsClause.length() == 0 ? " throws " : ", ").append(thrown);
+        }
+
+        out.println("    @Override");
+        out.println("    public " + returnType + " " + method.getSimpleName() + "(" + signature + ")" + throwsClause + " {");
+        if (throwsAll) {
+            out.println("        " + statement);
+        } else {
+            out.println("        try {");
+            out.println("            " + statement);
+            out.println("        } catch (RuntimeException e) {");
+            out.println("            throw e;");
+            for (TypeMirror thrown : declared) {
+                out.println("        } catch (" + thrown + " e) {");
+                out.println("            throw e;");
+            }
+            out.println("        } catch (Exception e) {");
+            out.println("            throw new java.lang.reflect.UndeclaredThrowableException(e);");
+            out.println("        }");
+        }
+        out.println("    }");
+    }
+
+    private static boolean isAnnotated(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Element annotationElement = mirror.getAnnotationType().asElement();
+            if (annotationElement instanceof TypeElement
+                    && ((TypeElement) annotationElement).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mirrors {@code GeneratedClientLoader.getImplementationName}: nested names are joined with an underscore.
+     */
+    private static String implementationSimpleName(TypeElement type, ClientKind kind) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing != null && enclosing.getKind() != ElementKind.PACKAGE) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name + "_" + kind.suffix;
+    }
+
+    private static final class ClientKind {
+        private final String subjectAnnotation;
+        private final String messageIdAnnotation;
+        private final String suffix;
+        private final String planClass;
+        private final String invokerClass;
+
+        private ClientKind(String subjectAnnotation, String messageIdAnnotation, String suffix, String planClass
+                , String invokerClass) {
+            this.subjectAnnotation = subjectAnnotation;
+            this.messageIdAnnotation = messageIdAnnotation;
+            this.suffix = suffix;
+            this.planClass = planClass;
+            this.invokerClass = invokerClass;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.kumuluz.ee.nats.processor;
+
+import com.kumuluz.ee.nats.common.util.GeneratedClientLoader;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles sample clients against stubs of the annotations, plans and invokers with the processor, then calls the
+ * generated implementations.
+ *
+ * @author Matej Bizjak
+ */
+
+public class ClientImplementationProcessorTest {
+
+    private Path output;
+    private URLClassLoader loader;
+
+    @BeforeClass
+    public void compile() throws IOException, URISyntaxException {
+        Path sources = Paths.get(getClass().getClassLoader().getResource("sources").toURI());
+        output = Files.createTempDirectory("nats-processor");
+        List<java.io.File> files;
+        try (Stream<Path> paths = Files.walk(sources)) {
+            files = paths.filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics
+                    , Arrays.asList("-d", output.toString(), "-s", output.toString())
+                    , null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new ClientImplementationProcessor()));
+            boolean success = task.call();
+            Assert.assertTrue(success, diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, null);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void cleanUp() throws IOException {
+        if (loader != null) {
+            loader.close();
+        }
+        if (output != null) {
+            try (Stream<Path> paths = Files.walk(output)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @BeforeMethod
+    public void resetInvokers() throws ReflectiveOperationException {
+        calls("com.kumuluz.ee.nats.core.invoker.ClientInvoker").clear();
+        calls("com.kumuluz.ee.nats.jetstream.invoker.JetStreamClientInvoker").clear();
+        Class<?> invoker = loader.loadClass("com.kumuluz.ee.nats.core.invoker.ClientInvoker");
+        invoker.getField("result").set(null, null);
+        invoker.getField("failure").set(null, null);
+    }
+
+    @Test
+    public void implementationNamesMatchTheLoader() throws ClassNotFoundException {
+        Class<?> client = loader.loadClass("sample.ProductClient");
+        Class<?> nested = loader.loadClass("sample.ProductClient$Nested");
+        Class<?> jetStreamClient = loader.loadClass("sample.OrderClient");
+
+        Assert.assertEquals(GeneratedClientLoader.getImplementationName(client, GeneratedClientLoader.CORE_SUFFIX)
+                , "sample.ProductClient_NatsClientImpl");
+        Assert.assertEquals(GeneratedClientLoader.getImplementationName(nested, GeneratedClientLoader.CORE_SUFFIX)
+                , "sample.ProductClient_Nested_NatsClientImpl");
+        Assert.assertEquals(GeneratedClientLoader.getImplementationName(jetStreamClient, GeneratedClientLoader.JETSTREAM_SUFFIX)
+                , "sample.OrderClient_JetStreamClientImpl");
+
+        Assert.assertNotNull(GeneratedClientLoader.findImplementation(client, GeneratedClientLoader.CORE_SUFFIX));
+        Assert.assertNotNull(GeneratedClientLoader.findImplementation(nested, GeneratedClientLoader.CORE_SUFFIX));
+        Assert.assertNotNull(GeneratedClientLoader.findImplementation(jetStreamClient, GeneratedClientLoader.JETSTREAM_SUFFIX));
+    }
+
+    @Test
+    public void genericClientsAreSkipped() {
+        Assert.assertFalse(Files.exists(output.resolve("sample/GenericClient_NatsClientImpl.java")));
+        Assert.assertNull(GeneratedClientLoader.findImplementation(loadUnchecked("sample.GenericClient")
+                , GeneratedClientLoader.CORE_SUFFIX));
+    }
+
+    @Test
+    public void subjectAndPayloadArePassed() throws Exception {
+        Object client = newClient("sample.ProductClient");
+        setResult("reply");
+
+        invoke(client, "send", new Class<?>[]{String.class}, "payload");
+        Object reply = invoke(client, "sendTo", new Class<?>[]{String.class, List.class}, "dynamic", List.of("a"));
+
+        Assert.assertEquals(reply, "reply");
+        List<List<Object>> calls = calls("com.kumuluz.ee.nats.core.invoker.ClientInvoker");
+        Assert.assertEquals(calls.get(0), Arrays.asList("default.send", "default.send", "payload"));
+        Assert.assertEquals(calls.get(1), Arrays.asList("default.sendTo", "dynamic", List.of("a")));
+    }
+
+    @Test
+    public void primitivesAreUnboxed() throws Exception {
+        Object client = newClient("sample.ProductClient");
+        setResult(42);
+
+        Object count = invoke(client, "count", new Class<?>[]{long.class}, 7L);
+
+        Assert.assertEquals(count, 42);
+        Assert.assertEquals(calls("com.kumuluz.ee.nats.core.invoker.ClientInvoker").get(0)
+                , Arrays.asList("default.count", "default.count", 7L));
+    }
+
+    @Test
+    public void jetStreamSubjectAndMessageIdArePassed() throws Exception {
+        Object client = newClient("sample.OrderClient");
+
+        invoke(client, "publish", new Class<?>[]{String.class}, "order");
+        invoke(client, "publishTo", new Class<?>[]{String.class, String.class, String.class}, "orders.eu", "id-1", "order");
+
+        List<List<Object>> calls = calls("com.kumuluz.ee.nats.jetstream.invoker.JetStreamClientInvoker");
+        Assert.assertEquals(calls.get(0), Arrays.asList("default.publish", "default.publish", "order"));
+        Assert.assertEquals(calls.get(1), Arrays.asList("default.publishTo", "orders.eu", "order", "id-1"));
+    }
+
+    @Test
+    public void declaredCheckedExceptionsAreRethrown() throws Exception {
+        Object client = newClient("sample.ProductClient");
+        IOException failure = new IOException("declared");
+        setFailure(failure);
+
+        Assert.assertSame(invokeAndCatch(client, "checked"), failure);
+        Assert.assertSame(invokeAndCatch(client, "all"), failure);
+    }
+
+    @Test
+    public void undeclaredCheckedExceptionsAreWrapped() throws Exception {
+        Object client = newClient("sample.ProductClient");
+        IOException failure = new IOException("undeclared");
+        setFailure(failure);
+
+        Throwable thrown = invokeAndCatch(client, "unchecked");
+
+        Assert.assertTrue(thrown instanceof UndeclaredThrowableException);
+        Assert.assertSame(thrown.getCause(), failure);
+    }
+
+    @Test
+    public void runtimeExceptionsAreRethrown() throws Exception {
+        Object client = newClient("sample.ProductClient");
+        IllegalStateException failure = new IllegalStateException("runtime");
+        setFailure(failure);
+
+        Assert.assertSame(invokeAndCatch(client, "unchecked"), failure);
+    }
+
+    private Object newClient(String interfaceName) throws ReflectiveOperationException {
+        String suffix = interfaceName.equals("sample.OrderClient") ? GeneratedClientLoader.JETSTREAM_SUFFIX
+                : GeneratedClientLoader.CORE_SUFFIX;
+        return GeneratedClientLoader.findImplementation(loader.loadClass(interfaceName), suffix).newInstance();
+    }
+
+    private Object invoke(Object client, String name, Class<?>[] parameterTypes, Object... args) throws Exception {
+        Method method = client.getClass().getMethod(name, parameterTypes);
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private Throwable invokeAndCatch(Object client, String name) throws ReflectiveOperationException {
+        try {
+            client.getClass().getMethod(name, String.class).invoke(client, "payload");
+        } catch (InvocationTargetException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Method " + name + " did not throw.");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> calls(String invoker) throws ReflectiveOperationException {
+        return (List<List<Object>>) loader.loadClass(invoker).getField("CALLS").get(null);
+    }
+
+    private void setResult(Object result) throws ReflectiveOperationException {
+        loader.loadClass("com.kumuluz.ee.nats.core.invoker.ClientInvoker").getField("result").set(null, result);
+    }
+
+    private void setFailure(Exception failure) throws ReflectiveOperationException {
+        loader.loadClass("com.kumuluz.ee.nats.core.invoker.ClientInvoker").getField("failure").set(null, failure);
+    }
+
+    private Class<?> loadUnchecked(String name) {
+        try {
+            return loader.loadClass(name);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test stub which records the calls of the generated clients.
+ */
+public final class ClientInvoker {
+
+    public static final List<List<Object>> CALLS = new ArrayList<>();
+    public static Object result;
+    public static Exception failure;
+
+    public static Object execute(InvocationPlan plan, String subject, Object payload) throws Exception {
+        CALLS.add(Arrays.asList(plan.getSubject(), subject, payload));
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package com.kumuluz.ee.nats.core.invoker;
+
+/**
+ * Test stub; fails like the real plan if the generated parameter types do not resolve the method.
+ */
+public final class InvocationPlan {
+
+    private final String subject;
+
+    private InvocationPlan(String subject) {
+        this.subject = subject;
+    }
+
+    public static InvocationPlan of(Class<?> aClass, String name, Class<?>... parameterTypes) {
+        try {
+            aClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        return new InvocationPlan("default." + name);
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+}
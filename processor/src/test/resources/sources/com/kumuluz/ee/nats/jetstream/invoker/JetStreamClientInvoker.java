@@ -0,0 +1,23 @@
+package com.kumuluz.ee.nats.jetstream.invoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test stub which records the calls of the generated clients.
+ */
+public final class JetStreamClientInvoker {
+
+    public static final List<List<Object>> CALLS = new ArrayList<>();
+
+    public static Object execute(PublishPlan plan, String subject, Object payload) throws Exception {
+        CALLS.add(Arrays.asList(plan.getSubject(), subject, payload));
+        return null;
+    }
+
+    public static Object execute(PublishPlan plan, String subject, Object payload, Object messageId) throws Exception {
+        CALLS.add(Arrays.asList(plan.getSubject(), subject, payload, messageId));
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.kumuluz.ee.nats.jetstream.invoker;
+
+/**
+ * Test stub; fails like the real plan if the generated parameter types do not resolve the method.
+ */
+public final class PublishPlan {
+
+    private final String subject;
+
+    private PublishPlan(String subject) {
+        this.subject = subject;
+    }
+
+    public static PublishPlan of(Class<?> aClass, String name, Class<?>... parameterTypes) {
+        try {
+            aClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        return new PublishPlan("default." + name);
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+}
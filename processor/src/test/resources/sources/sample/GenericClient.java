@@ -0,0 +1,11 @@
+package sample;
+
+import com.kumuluz.ee.nats.core.annotations.RegisterNatsClient;
+import com.kumuluz.ee.nats.core.annotations.Subject;
+
+@RegisterNatsClient
+public interface GenericClient {
+
+    @Subject("echo")
+    <T> T echo(T payload);
+}
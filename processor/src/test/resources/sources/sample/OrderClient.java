@@ -0,0 +1,15 @@
+package sample;
+
+import com.kumuluz.ee.nats.jetstream.annotations.JetStreamSubject;
+import com.kumuluz.ee.nats.jetstream.annotations.MessageId;
+import com.kumuluz.ee.nats.jetstream.annotations.RegisterJetStreamClient;
+
+@RegisterJetStreamClient
+public interface OrderClient {
+
+    @JetStreamSubject("orders")
+    void publish(String payload);
+
+    @JetStreamSubject
+    void publishTo(@JetStreamSubject String subject, @MessageId String messageId, String payload);
+}
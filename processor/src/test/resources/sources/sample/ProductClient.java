@@ -0,0 +1,35 @@
+package sample;
+
+import com.kumuluz.ee.nats.core.annotations.RegisterNatsClient;
+import com.kumuluz.ee.nats.core.annotations.Subject;
+
+import java.io.IOException;
+import java.util.List;
+
+@RegisterNatsClient
+public interface ProductClient {
+
+    @Subject("send")
+    void send(String payload);
+
+    @Subject
+    String sendTo(@Subject String subject, List<String> payload);
+
+    @Subject("count")
+    int count(long payload);
+
+    @Subject("checked")
+    String checked(String payload) throws IOException;
+
+    @Subject("unchecked")
+    String unchecked(String payload);
+
+    @Subject("all")
+    String all(String payload) throws Exception;
+
+    @RegisterNatsClient
+    interface Nested {
+        @Subject("ping")
+        void ping(String payload);
+    }
+}